@@ -1,13 +1,26 @@
 package software.coley.observables;
 
+import software.coley.observables.metrics.ObservableMetrics;
+
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Function;
 
 /**
  * Base type for observable implementations.
+ * <br>
+ * Values may be set and read from any thread, and the last value set is the value seen by readers.
+ * Listeners and bindings may be added and removed from any thread, including while listeners are being notified.
+ * Notifications from concurrent calls to {@link #setValue(Object)} are not ordered, so listeners may receive them
+ * in a different order than the values were set. Listeners removed concurrently with a notification may still
+ * receive that notification.
  *
  * @param <T>
  * 		Generic value type.
@@ -15,13 +28,26 @@
  * @author Matt Coley
  */
 public abstract class AbstractObservable<T> implements Observable<T> {
-	private final Map<ChangeListener<T>, ChangeListener<T>> asyncChangeListenerLookup = new IdentityHashMap<>();
-	private final List<ChangeListener<T>> changeListeners = new ArrayList<>();
-	@SuppressWarnings("rawtypes") // has to be raw for generic usage to compile, cannot use '?'
-	private final Set<Observable> bindReceivers = Collections.newSetFromMap(new IdentityHashMap<>());
+	@SuppressWarnings("rawtypes")
+	private static final AtomicLongFieldUpdater<AbstractObservable> STAMP =
+			AtomicLongFieldUpdater.newUpdater(AbstractObservable.class, "stamp");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<AbstractObservable, Object> VALUE =
+			AtomicReferenceFieldUpdater.newUpdater(AbstractObservable.class, Object.class, "value");
+	private static final Object NONE = new Object();
+	private static volatile ObservableMetrics defaultMetrics = ObservableMetrics.none();
 	private final Function<Object, T> boundValueMapper;
 	private Observable<?> bindTarget;
-	private T value;
+	private Equivalence<? super T> equivalence = Equivalence.identity();
+	// Change listeners: null, a single inline registration, or a list once a second listener is added
+	private volatile Object listeners;
+	// Bound receivers: null, a single observable, or an identity set once a second receiver is bound.
+	// Sets are copied on modification, so propagation can iterate them without locking.
+	private volatile Object receivers;
+	// Rarely configured state, only allocated when used
+	private volatile Extras<T> extras;
+	private volatile T value;
+	private volatile long stamp;
 
 	/**
 	 * @param value
@@ -43,10 +69,22 @@ public AbstractObservable(T value) {
 	public <I> AbstractObservable(T value, Function<I, T> boundValueMapper) {
 		this.boundValueMapper = (Function<Object, T>) boundValueMapper;
 		this.value = value;
+		ObservableMetrics metrics = defaultMetrics;
+		if (metrics != ObservableMetrics.none())
+			extras().metrics = metrics;
 	}
 
 	@Override
 	public final T getValue() {
+		if (ComputedObservable.isTracking())
+			ComputedObservable.recordRead(this);
+		return value;
+	}
+
+	/**
+	 * @return Current value, without recording a read by a {@link ComputedObservable} being computed.
+	 */
+	final T peekValue() {
 		return value;
 	}
 
@@ -55,7 +93,7 @@ public final void setValue(T newValue) {
 		if (bindTarget != null)
 			throw new BoundValueSetException(this);
 		validateNewValue(newValue);
-		set(newValue);
+		set(newValue, 0);
 	}
 
 	@Override
@@ -73,15 +111,72 @@ public <S extends Observable<?>> S bindTo(Observable<?> observable) {
 	}
 
 	@Override
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public <S extends Observable<?>> S bindTo(Observable<?> observable, Executor executor) {
+		Objects.requireNonNull(observable, "Observable target must not be null");
+		Objects.requireNonNull(executor, "Executor must not be null");
+		if (bindTarget != null) {
+			if (bindTarget != observable)
+				return (S) this;
+			throw new BoundTargetSetException(this);
+		}
+		bindTarget = observable;
+		AsyncBinding binding = new AsyncBinding(observable, executor);
+		extras().asyncBinding = binding;
+		((Observable) observable).addChangeListener(binding);
+		binding.schedule(observable.getValue());
+		return (S) this;
+	}
+
+	@Override
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public boolean unbind(Observable<T> observable) {
 		bindTarget = null;
+		Extras<T> extras = this.extras;
+		if (extras != null && extras.asyncBinding != null && extras.asyncBinding.source == observable) {
+			AsyncBinding binding = extras.asyncBinding;
+			extras.asyncBinding = null;
+			// Waits for an assignment in progress, so that none happens once unbound
+			synchronized (binding) {
+				binding.cancelled = true;
+			}
+			return ((Observable) observable).removeChangeListener(binding);
+		}
 		return observable.getBoundReceivers().remove(this);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <br>
+	 * The returned set is a live view, backed by storage which is only allocated once a second receiver is bound.
+	 */
 	@Override
 	@SuppressWarnings("rawtypes")
 	public Set<Observable> getBoundReceivers() {
-		return bindReceivers;
+		return new ReceiverSet();
+	}
+
+	/**
+	 * @return {@code null} when there are no bound receivers, the single {@link Observable} when there is one,
+	 * otherwise a set of receivers.
+	 *
+	 * @see Propagation
+	 */
+	Object boundReceivers() {
+		return receivers;
+	}
+
+	/**
+	 * Modification stamp, for consumers polling for changes rather than listening to them.
+	 * The stamp increases whenever a value is stored. Assignments ignored by the {@link #getEquivalence() equivalence}
+	 * do not change it, but with the default identity equivalence, replacing a value with an equal copy does.
+	 *
+	 * @return Number of times the value has changed.
+	 *
+	 * @see DirtyTracker
+	 */
+	public long getStamp() {
+		return stamp;
 	}
 
 	@Override
@@ -91,35 +186,223 @@ public Function<Object, T> getBoundValueMapper() {
 
 	@Override
 	public void addChangeListener(ChangeListener<T> listener) {
+		subscribe(listener);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized ListenerSubscription subscribe(ChangeListener<T> listener) {
 		Objects.requireNonNull(listener, "Listener must not be null");
-		if (!changeListeners.contains(listener))
-			changeListeners.add(listener);
+		Object current = listeners;
+		ListenerList.Registration<T> registration;
+		if (current == null) {
+			registration = new ListenerList.Registration<>(this, listener);
+			listeners = registration;
+		} else if (current instanceof ListenerList.Registration) {
+			ListenerList.Registration<T> single = (ListenerList.Registration<T>) current;
+			if (single.getListener().equals(listener))
+				return single;
+			// Inflate to a list once there is more than one listener
+			ListenerList<T> list = new ListenerList<>(this);
+			list.adopt(single);
+			registration = list.add(listener);
+			listeners = list;
+		} else {
+			ListenerList<T> list = (ListenerList<T>) current;
+			registration = list.add(listener);
+			if (registration == null)
+				return list.get(listener);
+		}
+		getMetrics().onListenerAdded(this, listener);
+		return registration;
 	}
 
 	@Override
-	public void addAsyncChangeListener(ChangeListener<T> listener, Executor executor) {
+	public synchronized void addAsyncChangeListener(ChangeListener<T> listener, Executor executor) {
 		Objects.requireNonNull(listener, "Listener must not be null");
 		Objects.requireNonNull(executor, "Executor service must not be null");
 
-		if (!asyncChangeListenerLookup.containsKey(listener)) {
+		Extras<T> extras = extras();
+		if (extras.asyncChangeListenerLookup == null)
+			extras.asyncChangeListenerLookup = new IdentityHashMap<>();
+		if (!extras.asyncChangeListenerLookup.containsKey(listener)) {
+			// Partitioned dispatchers keep events of this observable in order on a shared mailbox
+			Executor target = executor instanceof PartitionedDispatcher ?
+					((PartitionedDispatcher) executor).executorFor(this) : executor;
 			ChangeListener<T> asyncListener = (observable, oldValue, newValue) -> {
-				CompletableFuture.runAsync(() -> listener.changed(observable, oldValue, newValue), executor);
+				CompletableFuture.runAsync(() -> listener.changed(observable, oldValue, newValue), target);
 			};
-			asyncChangeListenerLookup.put(listener, asyncListener);
-			changeListeners.add(asyncListener);
+			extras.asyncChangeListenerLookup.put(listener, asyncListener);
+			subscribe(asyncListener);
 		}
 	}
 
 	@Override
-	public boolean removeChangeListener(ChangeListener<T> listener) {
-		ChangeListener<T> asyncListener = asyncChangeListenerLookup.remove(listener);
-		if (asyncListener != null) {
-			return changeListeners.remove(asyncListener);
+	public synchronized boolean removeChangeListener(ChangeListener<T> listener) {
+		Extras<T> extras = this.extras;
+		if (extras != null && extras.asyncChangeListenerLookup != null) {
+			ChangeListener<T> asyncListener = extras.asyncChangeListenerLookup.remove(listener);
+			if (asyncListener != null)
+				listener = asyncListener;
+		}
+		ListenerList.Registration<T> registration = registrationOf(listener);
+		return registration != null && removeRegistration(registration);
+	}
+
+	@SuppressWarnings("unchecked")
+	private ListenerList.Registration<T> registrationOf(ChangeListener<T> listener) {
+		Object current = listeners;
+		if (current instanceof ListenerList.Registration) {
+			ListenerList.Registration<T> single = (ListenerList.Registration<T>) current;
+			return single.getListener().equals(listener) ? single : null;
+		}
+		return current == null ? null : ((ListenerList<T>) current).get(listener);
+	}
+
+	/**
+	 * Removes a registration, including cancelled {@link ListenerSubscription subscriptions}.
+	 *
+	 * @param registration
+	 * 		Registration to remove.
+	 *
+	 * @return {@code true} when the registration was active.
+	 */
+	synchronized boolean removeRegistration(ListenerList.Registration<T> registration) {
+		ListenerList<T> list = registration.getList();
+		if (list == null) {
+			if (listeners != registration || !registration.isActive())
+				return false;
+			registration.deactivate();
+			listeners = null;
 		} else {
-			return changeListeners.remove(listener);
+			if (!list.remove(registration))
+				return false;
+			// Deflate once the last listener is gone. A dispatch in progress keeps its own reference to the list.
+			if (listeners == list && list.size() == 0)
+				listeners = null;
 		}
+		ChangeListener<T> listener = registration.getListener();
+		getMetrics().onListenerRemoved(this, listener);
+		ListenerWatchdog watchdog = getListenerWatchdog();
+		if (watchdog != null)
+			watchdog.forget(this, listener);
+		return true;
 	}
 
+	/**
+	 * @return Strategy deciding if an assigned value is the same as the current value.
+	 */
+	public Equivalence<? super T> getEquivalence() {
+		return equivalence;
+	}
+
+	/**
+	 * Assignments of values equivalent to the current value are ignored entirely. The current value is kept,
+	 * and listeners and bound observables are not notified.
+	 *
+	 * @param equivalence
+	 * 		Strategy deciding if an assigned value is the same as the current value.
+	 */
+	public void setEquivalence(Equivalence<? super T> equivalence) {
+		this.equivalence = Objects.requireNonNull(equivalence, "Equivalence must not be null");
+	}
+
+	/**
+	 * @return Watchdog supervising listener invocations, or {@code null} when listeners are invoked directly.
+	 */
+	public ListenerWatchdog getListenerWatchdog() {
+		Extras<T> extras = this.extras;
+		return extras == null ? null : extras.watchdog;
+	}
+
+	/**
+	 * @param watchdog
+	 * 		Watchdog to supervise listener invocations and isolate failures of listeners and bound receivers.
+	 * 		May be {@code null} to invoke listeners directly, in which case an exception thrown by a listener
+	 * 		aborts notification of the remaining listeners and receivers.
+	 */
+	public synchronized void setListenerWatchdog(ListenerWatchdog watchdog) {
+		if (watchdog != null || extras != null)
+			extras().watchdog = watchdog;
+	}
+
+	/**
+	 * @return Pool bound receivers are updated on in parallel, or {@code null} when they are updated sequentially.
+	 */
+	public ForkJoinPool getPropagationPool() {
+		Extras<T> extras = this.extras;
+		return extras == null ? null : extras.propagationPool;
+	}
+
+	/**
+	 * Opts in to updating the bound receivers of this observable in parallel, for observables with many receivers
+	 * whose {@link #getBoundValueMapper() mappers} are expensive. Receivers are partitioned across the pool, and each
+	 * receiver propagates to its own receivers on the pool thread that updated it. Setting the value returns once
+	 * all receivers have been updated.
+	 * <br>
+	 * Receivers updated in parallel notify their listeners on pool threads, and without a
+	 * {@link #setListenerWatchdog(ListenerWatchdog) watchdog} a failure of one receiver does not stop the others.
+	 * Receivers sharing a bound receiver of their own may update it concurrently.
+	 *
+	 * @param pool
+	 * 		Pool to update receivers on.
+	 * 		May be {@code null} to update receivers sequentially on the thread setting the value.
+	 * @param threshold
+	 * 		Minimum number of bound receivers to update in parallel. Fewer receivers are updated sequentially.
+	 */
+	public synchronized void setParallelPropagation(ForkJoinPool pool, int threshold) {
+		if (threshold < 2)
+			throw new IllegalArgumentException("Threshold must be at least 2: " + threshold);
+		if (pool != null || extras != null) {
+			Extras<T> extras = extras();
+			extras.propagationPool = pool;
+			extras.parallelThreshold = threshold;
+		}
+	}
+
+	/**
+	 * @return Minimum number of bound receivers to update in parallel on the {@link #getPropagationPool() pool}.
+	 */
+	int getParallelThreshold() {
+		Extras<T> extras = this.extras;
+		return extras == null ? Integer.MAX_VALUE : extras.parallelThreshold;
+	}
+
+	/**
+	 * @return Metrics recording activity of this observable.
+	 */
+	public ObservableMetrics getMetrics() {
+		Extras<T> extras = this.extras;
+		return extras == null ? ObservableMetrics.none() : extras.metrics;
+	}
+
+	/**
+	 * @param metrics
+	 * 		Metrics to record activity of this observable.
+	 * 		May be {@code null} to disable recording.
+	 */
+	public synchronized void setMetrics(ObservableMetrics metrics) {
+		if (metrics == null)
+			metrics = ObservableMetrics.none();
+		if (metrics != ObservableMetrics.none() || extras != null)
+			extras().metrics = metrics;
+	}
+
+	/**
+	 * @return Metrics assigned to newly created observables.
+	 */
+	public static ObservableMetrics getDefaultMetrics() {
+		return defaultMetrics;
+	}
+
+	/**
+	 * @param metrics
+	 * 		Metrics to assign to newly created observables.
+	 * 		May be {@code null} to disable recording for new observables.
+	 */
+	public static void setDefaultMetrics(ObservableMetrics metrics) {
+		defaultMetrics = metrics == null ? ObservableMetrics.none() : metrics;
+	}
 
 	/**
 	 * Validate if the value can be assigned.
@@ -133,24 +416,163 @@ protected void validateNewValue(T newValue) {
 
 	/**
 	 * Used internally to bypass {@link BoundValueSetException} check.
+	 * Also used by derived observables in this package which manage their own values.
+	 *
+	 * @param newValue
+	 * 		New value to assign.
+	 * @param depth
+	 * 		Number of bindings between the observable that was explicitly set and this observable.
+	 */
+	void set(T newValue, int depth) {
+		if (assign(newValue, depth) && receivers != null)
+			Propagation.propagate(this, newValue, depth + 1);
+	}
+
+	/**
+	 * Assigns the value and notifies listeners, without propagating to bound receivers.
 	 *
 	 * @param newValue
 	 * 		New value to assign.
+	 * @param depth
+	 * 		Number of bindings between the observable that was explicitly set and this observable.
+	 *
+	 * @return {@code true} when the value changed, and bound receivers need to be updated.
+	 * {@code false} when unchanged, or when notification is deferred until the active {@link Batch} completes.
+	 *
+	 * @see Propagation
 	 */
-	@SuppressWarnings({"rawtypes", "unchecked"})
-	private void set(T newValue) {
+	boolean assign(T newValue, int depth) {
 		T oldValue = this.value;
+		ObservableMetrics metrics = getMetrics();
+		boolean instrumented = metrics != ObservableMetrics.none();
+		if (instrumented && depth > 0)
+			metrics.onPropagation(this, depth);
+		if (equivalence.isEquivalent(oldValue, newValue)) {
+			if (instrumented)
+				metrics.onSuppressedSet(this);
+			return false;
+		}
+		boolean deferred = Batch.defer(this, oldValue);
 		this.value = newValue;
-		if (newValue != oldValue) {
-			changeListeners.forEach(l -> l.changed(this, oldValue, newValue));
-			bindReceivers.forEach(o -> {
-				if (o instanceof AbstractObservable) {
-					AbstractObservable ao = (AbstractObservable) o;
-					ao.set(ao.map(newValue));
-				} else {
-					throw new UnsupportedOperationException("Receiver does not implement internal set/map operations");
-				}
-			});
+		return stored(oldValue, newValue, deferred, metrics, instrumented);
+	}
+
+	/**
+	 * Assigns the value only if the current value is still the expected one, as the last step of a
+	 * read-copy-modify sequence. The current value is compared by identity, so the expected value must be the
+	 * instance read from {@link #getValue()}. Listeners and bound receivers are notified after the swap, without holding any lock.
+	 *
+	 * @param expected
+	 * 		Value the new value was derived from.
+	 * @param newValue
+	 * 		New value to assign.
+	 *
+	 * @return {@code true} when the value was assigned, or is equivalent to the expected value which is still current.
+	 * {@code false} when another thread changed the value first, and the new value must be derived again.
+	 *
+	 * @throws BoundValueSetException
+	 * 		When this observable is bound to another observable.
+	 */
+	public final boolean compareAndSetValue(T expected, T newValue) {
+		if (bindTarget != null)
+			throw new BoundValueSetException(this);
+		validateNewValue(newValue);
+		ObservableMetrics metrics = getMetrics();
+		boolean instrumented = metrics != ObservableMetrics.none();
+		if (equivalence.isEquivalent(expected, newValue)) {
+			if (value != expected)
+				return false;
+			if (instrumented)
+				metrics.onSuppressedSet(this);
+			return true;
+		}
+		if (!VALUE.compareAndSet(this, expected, newValue))
+			return false;
+		if (stored(expected, newValue, Batch.defer(this, expected), metrics, instrumented) && receivers != null)
+			Propagation.propagate(this, newValue, 1);
+		return true;
+	}
+
+	/**
+	 * Records a stored value, and notifies listeners unless the active {@link Batch} defers notification.
+	 *
+	 * @return {@code true} when listeners were notified, and bound receivers need to be updated.
+	 */
+	private boolean stored(T oldValue, T newValue, boolean deferred, ObservableMetrics metrics, boolean instrumented) {
+		STAMP.incrementAndGet(this);
+		if (instrumented)
+			metrics.onSet(this);
+		if (deferred)
+			return false;
+		notifyListeners(oldValue, newValue, metrics, instrumented);
+		return true;
+	}
+
+	/**
+	 * Notifies listeners and bound receivers of changes made during a {@link Batch}.
+	 *
+	 * @param batchOldValue
+	 * 		Value before the batch.
+	 */
+	@SuppressWarnings("unchecked")
+	void completeBatch(Object batchOldValue) {
+		T oldValue = (T) batchOldValue;
+		T newValue = this.value;
+		if (equivalence.isEquivalent(oldValue, newValue))
+			return;
+		ObservableMetrics metrics = getMetrics();
+		notifyListeners(oldValue, newValue, metrics, metrics != ObservableMetrics.none());
+		if (receivers != null)
+			Propagation.propagate(this, newValue, 1);
+	}
+
+	/**
+	 * Called on the notifying thread before listeners are notified of a change, including changes completed by a
+	 * {@link Batch}. Unlike a listener, it is never counted, measured or demoted.
+	 *
+	 * @param oldValue
+	 * 		Prior value.
+	 * @param newValue
+	 * 		New value.
+	 */
+	void beforeNotify(T oldValue, T newValue) {
+		// no-op by default
+	}
+
+	@SuppressWarnings("unchecked")
+	private void notifyListeners(T oldValue, T newValue, ObservableMetrics metrics, boolean instrumented) {
+		beforeNotify(oldValue, newValue);
+		Object current = listeners;
+		if (current == null)
+			return;
+		ListenerWatchdog watchdog = getListenerWatchdog();
+		if (current instanceof ListenerList.Registration) {
+			ChangeListener<T> listener = ((ListenerList.Registration<T>) current).getListener();
+			invokeListener(listener, oldValue, newValue, watchdog, metrics, instrumented);
+			return;
+		}
+		ListenerList<T> list = (ListenerList<T>) current;
+		int end = list.end();
+		ListenerList.Registration<T>[] slots = list.slots();
+		for (int i = 0; i < end; i++) {
+			ListenerList.Registration<T> registration = slots[i];
+			if (registration != null && registration.isActive())
+				invokeListener(registration.getListener(), oldValue, newValue, watchdog, metrics, instrumented);
+		}
+	}
+
+	private void invokeListener(ChangeListener<T> listener, T oldValue, T newValue,
+								ListenerWatchdog watchdog, ObservableMetrics metrics, boolean instrumented) {
+		if (watchdog != null) {
+			long elapsed = watchdog.invoke(this, listener, oldValue, newValue);
+			if (instrumented && elapsed >= 0)
+				metrics.onListenerInvoked(this, listener, elapsed);
+		} else if (instrumented) {
+			long start = System.nanoTime();
+			listener.changed(this, oldValue, newValue);
+			metrics.onListenerInvoked(this, listener, System.nanoTime() - start);
+		} else {
+			listener.changed(this, oldValue, newValue);
 		}
 	}
 
@@ -164,7 +586,210 @@ private void set(T newValue) {
 	 * @return Mapped value.
 	 */
 	@SuppressWarnings("unchecked")
-	private T map(Object value) {
+	T map(Object value) {
 		return boundValueMapper == null ? (T) value : boundValueMapper.apply(value);
 	}
+
+	private synchronized Extras<T> extras() {
+		Extras<T> extras = this.extras;
+		if (extras == null)
+			this.extras = extras = new Extras<>();
+		return extras;
+	}
+
+	/**
+	 * State most observables never configure, kept out of line to keep idle observables small.
+	 */
+	private static final class Extras<T> {
+		private ObservableMetrics metrics = ObservableMetrics.none();
+		private ListenerWatchdog watchdog;
+		private Map<ChangeListener<T>, ChangeListener<T>> asyncChangeListenerLookup;
+		private AbstractObservable<T>.AsyncBinding asyncBinding;
+		private ForkJoinPool propagationPool;
+		private int parallelThreshold = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Binding recomputing this observable from its target on an executor.
+	 * <br>
+	 * At most one computation runs at a time. Values of the target arriving while a computation is queued or
+	 * running replace any value still waiting, so only the latest value is computed. A computed value is only
+	 * assigned if no newer value arrived during its computation.
+	 */
+	private final class AsyncBinding implements ChangeListener<Object>, Runnable {
+		private final AtomicReference<Object> pending = new AtomicReference<>(NONE);
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private final Observable<?> source;
+		private final Executor executor;
+		private volatile boolean cancelled;
+
+		private AsyncBinding(Observable<?> source, Executor executor) {
+			this.source = source;
+			this.executor = executor;
+		}
+
+		@Override
+		public void changed(AbstractObservable<?> observable, Object oldValue, Object newValue) {
+			schedule(newValue);
+		}
+
+		private void schedule(Object value) {
+			pending.set(value);
+			if (scheduled.compareAndSet(false, true))
+				executor.execute(this);
+		}
+
+		@Override
+		public void run() {
+			try {
+				Object input;
+				while (!cancelled && (input = pending.getAndSet(NONE)) != NONE) {
+					T mapped = map(input);
+					// Skip assigning a result that is already stale, the newer value is computed next.
+					// Checked under the lock cancellation takes, so that results are not assigned after unbinding.
+					synchronized (this) {
+						if (!cancelled && pending.get() == NONE)
+							set(mapped, 1);
+					}
+				}
+			} finally {
+				scheduled.set(false);
+				// Values arriving after the loop ended, but before the flag was cleared, need another run
+				if (!cancelled && pending.get() != NONE && scheduled.compareAndSet(false, true))
+					executor.execute(this);
+			}
+		}
+	}
+
+	/**
+	 * Live view of {@link #receivers}, inflating and deflating the storage as receivers are added and removed.
+	 * Iterators walk the receivers as of their creation.
+	 */
+	@SuppressWarnings("rawtypes")
+	private final class ReceiverSet extends AbstractSet<Observable> {
+		@Override
+		public int size() {
+			Object current = receivers;
+			if (current == null)
+				return 0;
+			return current instanceof Observable ? 1 : multiple(current).size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			Object current = receivers;
+			if (current == null || o == null)
+				return false;
+			return current instanceof Observable ? current == o : multiple(current).contains(o);
+		}
+
+		@Override
+		public boolean add(Observable observable) {
+			Objects.requireNonNull(observable, "Receiver must not be null");
+			synchronized (AbstractObservable.this) {
+				Object current = receivers;
+				if (current == null) {
+					receivers = observable;
+					return true;
+				}
+				if (current == observable || (!(current instanceof Observable) && multiple(current).contains(observable)))
+					return false;
+				Set<Observable> set = Collections.newSetFromMap(new IdentityHashMap<>());
+				if (current instanceof Observable)
+					set.add((Observable) current);
+				else
+					set.addAll(multiple(current));
+				set.add(observable);
+				receivers = set;
+				return true;
+			}
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if (o == null)
+				return false;
+			synchronized (AbstractObservable.this) {
+				Object current = receivers;
+				if (current == null)
+					return false;
+				if (current instanceof Observable) {
+					if (current != o)
+						return false;
+					receivers = null;
+					return true;
+				}
+				Set<Observable> set = multiple(current);
+				if (!set.contains(o))
+					return false;
+				if (set.size() == 1) {
+					receivers = null;
+				} else {
+					Set<Observable> copy = Collections.newSetFromMap(new IdentityHashMap<>());
+					copy.addAll(set);
+					copy.remove(o);
+					receivers = copy;
+				}
+				return true;
+			}
+		}
+
+		@Override
+		public Iterator<Observable> iterator() {
+			Object current = receivers;
+			if (current == null)
+				return Collections.emptyIterator();
+			if (current instanceof Observable)
+				return new Iterator<Observable>() {
+					private boolean consumed;
+
+					@Override
+					public boolean hasNext() {
+						return !consumed;
+					}
+
+					@Override
+					public Observable next() {
+						if (consumed)
+							throw new NoSuchElementException();
+						consumed = true;
+						return (Observable) current;
+					}
+
+					@Override
+					public void remove() {
+						if (!consumed)
+							throw new IllegalStateException();
+						ReceiverSet.this.remove(current);
+					}
+				};
+			Iterator<Observable> iterator = multiple(current).iterator();
+			return new Iterator<Observable>() {
+				private Observable last;
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public Observable next() {
+					return last = iterator.next();
+				}
+
+				@Override
+				public void remove() {
+					if (last == null)
+						throw new IllegalStateException();
+					ReceiverSet.this.remove(last);
+					last = null;
+				}
+			};
+		}
+
+		@SuppressWarnings("unchecked")
+		private Set<Observable> multiple(Object current) {
+			return (Set<Observable>) current;
+		}
+	}
 }
@@ -0,0 +1,231 @@
+package software.coley.observables;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Base type for observable arrays of primitive values.
+ * <br>
+ * A single object holds all cells in a primitive array, instead of an observable per cell. Listeners are notified
+ * with the index of each changed cell. Listeners of specific indices are kept in a sorted array of watched indices,
+ * with a parallel array of the listeners of each, only allocated when the first such listener is added. Arrays where
+ * few cells are watched stay small, and finding the listeners of a cell involves no boxing.
+ * <br>
+ * Listener arrays are copied when listeners are added or removed, so listeners may add or remove listeners while
+ * being notified. A notification in progress still calls the listeners registered when it started.
+ *
+ * @param <L>
+ * 		Listener type.
+ *
+ * @author Matt Coley
+ */
+public abstract class AbstractObservableArray<L> {
+	private static final Object[] NONE = new Object[0];
+	private volatile Object[] listeners = NONE;
+	private volatile IndexListeners indexListeners;
+
+	/**
+	 * @return Number of cells.
+	 */
+	public abstract int length();
+
+	/**
+	 * @param listener
+	 * 		Listener to add, notified of changes to any cell.
+	 */
+	public synchronized void addChangeListener(L listener) {
+		Objects.requireNonNull(listener, "Listener must not be null");
+		listeners = with(listeners, listener);
+	}
+
+	/**
+	 * @param listener
+	 * 		Listener to remove.
+	 *
+	 * @return {@code true} when the listener was removed.
+	 * {@code false} if the listener was not registered.
+	 */
+	public synchronized boolean removeChangeListener(L listener) {
+		Object[] current = listeners;
+		Object[] updated = without(current, listener);
+		if (updated == current)
+			return false;
+		listeners = updated;
+		return true;
+	}
+
+	/**
+	 * @param index
+	 * 		Index of the cell to watch.
+	 * @param listener
+	 * 		Listener to add, notified of changes to the given cell only.
+	 */
+	public synchronized void addIndexListener(int index, L listener) {
+		Objects.requireNonNull(listener, "Listener must not be null");
+		checkIndex(index);
+		IndexListeners current = indexListeners;
+		if (current == null) {
+			indexListeners = new IndexListeners(new int[]{index}, new Object[][]{{listener}});
+			return;
+		}
+		int[] indices = current.indices;
+		Object[][] lists = current.lists;
+		int position = Arrays.binarySearch(indices, index);
+		if (position >= 0) {
+			Object[] list = lists[position];
+			Object[] updated = with(list, listener);
+			if (updated != list) {
+				lists = lists.clone();
+				lists[position] = updated;
+				indexListeners = new IndexListeners(indices, lists);
+			}
+			return;
+		}
+
+		// Insert the new index, keeping the indices sorted
+		int insertion = -position - 1;
+		int[] newIndices = new int[indices.length + 1];
+		Object[][] newLists = new Object[lists.length + 1][];
+		System.arraycopy(indices, 0, newIndices, 0, insertion);
+		System.arraycopy(lists, 0, newLists, 0, insertion);
+		newIndices[insertion] = index;
+		newLists[insertion] = new Object[]{listener};
+		System.arraycopy(indices, insertion, newIndices, insertion + 1, indices.length - insertion);
+		System.arraycopy(lists, insertion, newLists, insertion + 1, lists.length - insertion);
+		indexListeners = new IndexListeners(newIndices, newLists);
+	}
+
+	/**
+	 * @param index
+	 * 		Index of the watched cell.
+	 * @param listener
+	 * 		Listener to remove.
+	 *
+	 * @return {@code true} when the listener was removed.
+	 * {@code false} if the listener was not registered on the index.
+	 */
+	public synchronized boolean removeIndexListener(int index, L listener) {
+		IndexListeners current = indexListeners;
+		if (current == null)
+			return false;
+		int[] indices = current.indices;
+		Object[][] lists = current.lists;
+		int position = Arrays.binarySearch(indices, index);
+		if (position < 0)
+			return false;
+		Object[] list = lists[position];
+		Object[] updated = without(list, listener);
+		if (updated == list)
+			return false;
+		if (updated.length > 0) {
+			lists = lists.clone();
+			lists[position] = updated;
+			indexListeners = new IndexListeners(indices, lists);
+		} else if (indices.length == 1) {
+			indexListeners = null;
+		} else {
+			// Remove the index along with its last listener
+			int[] newIndices = new int[indices.length - 1];
+			Object[][] newLists = new Object[lists.length - 1][];
+			System.arraycopy(indices, 0, newIndices, 0, position);
+			System.arraycopy(lists, 0, newLists, 0, position);
+			System.arraycopy(indices, position + 1, newIndices, position, newIndices.length - position);
+			System.arraycopy(lists, position + 1, newLists, position, newLists.length - position);
+			indexListeners = new IndexListeners(newIndices, newLists);
+		}
+		return true;
+	}
+
+	/**
+	 * @return {@code true} when any listener needs to be notified of changes.
+	 */
+	boolean hasListeners() {
+		return listeners.length != 0 || indexListeners != null;
+	}
+
+	/**
+	 * @return Listeners of the whole array. The array is never modified.
+	 */
+	Object[] getListeners() {
+		return listeners;
+	}
+
+	/**
+	 * @param index
+	 * 		Index of a cell.
+	 *
+	 * @return Listeners of the given cell, or {@code null} when there are none. The array is never modified.
+	 */
+	Object[] getIndexListeners(int index) {
+		IndexListeners current = indexListeners;
+		if (current == null)
+			return null;
+		int position = Arrays.binarySearch(current.indices, index);
+		return position < 0 ? null : current.lists[position];
+	}
+
+	/**
+	 * @param index
+	 * 		Index to check.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 * 		When the index is outside the array.
+	 */
+	void checkIndex(int index) {
+		if (index < 0 || index >= length())
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length());
+	}
+
+	/**
+	 * Watched indices and their listeners, replaced as a whole on every change.
+	 */
+	private static final class IndexListeners {
+		// Sorted, with the listeners of each index at the same position of the lists
+		private final int[] indices;
+		private final Object[][] lists;
+
+		private IndexListeners(int[] indices, Object[][] lists) {
+			this.indices = indices;
+			this.lists = lists;
+		}
+	}
+
+	/**
+	 * @param listeners
+	 * 		Current listeners.
+	 * @param listener
+	 * 		Listener to add.
+	 *
+	 * @return Copy with the listener appended, or the given array when it already contains the listener.
+	 */
+	private static Object[] with(Object[] listeners, Object listener) {
+		for (Object existing : listeners)
+			if (existing.equals(listener))
+				return listeners;
+		Object[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+		updated[listeners.length] = listener;
+		return updated;
+	}
+
+	/**
+	 * @param listeners
+	 * 		Current listeners.
+	 * @param listener
+	 * 		Listener to remove.
+	 *
+	 * @return Copy without the listener, or the given array when it does not contain the listener.
+	 */
+	private static Object[] without(Object[] listeners, Object listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i].equals(listener)) {
+				if (listeners.length == 1)
+					return NONE;
+				Object[] updated = new Object[listeners.length - 1];
+				System.arraycopy(listeners, 0, updated, 0, i);
+				System.arraycopy(listeners, i + 1, updated, i, updated.length - i);
+				return updated;
+			}
+		}
+		return listeners;
+	}
+}
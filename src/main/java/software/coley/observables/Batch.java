@@ -0,0 +1,108 @@
+package software.coley.observables;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deferral of change notifications while a batch is active on the current thread.
+ * <br>
+ * Values assigned during a batch are stored immediately, so reads within the batch see them. Listeners and
+ * bound receivers are notified once the outermost batch completes, once per observable with the value it had
+ * before the batch and its final value. Observables whose final value is equivalent to their value before
+ * the batch do not notify at all.
+ * <br>
+ * Notification also happens when the batch action fails, as the values it assigned before failing are kept.
+ * A failure of one observable's listeners or receivers does not stop notification of the others.
+ *
+ * @author Matt Coley
+ * @see Observables#batch(Runnable)
+ */
+final class Batch {
+	private static final ThreadLocal<Batch> CURRENT = new ThreadLocal<>();
+	// Written once, so reads of it never contend. Assignments only look up the batch of their thread once batches exist.
+	private static volatile boolean used;
+	private final Map<AbstractObservable<?>, Object> originalValues = new IdentityHashMap<>();
+	private final List<AbstractObservable<?>> order = new ArrayList<>();
+
+	private Batch() {
+	}
+
+	/**
+	 * @param action
+	 * 		Action to run, with notifications deferred until it completes.
+	 */
+	static void run(Runnable action) {
+		if (CURRENT.get() != null) {
+			// Nested batches are part of the outer batch
+			action.run();
+			return;
+		}
+		if (!used)
+			used = true;
+		Batch batch = new Batch();
+		CURRENT.set(batch);
+		Throwable failure = null;
+		try {
+			action.run();
+		} catch (Throwable t) {
+			failure = t;
+			throw t;
+		} finally {
+			CURRENT.remove();
+			batch.flush(failure);
+		}
+	}
+
+	/**
+	 * @param observable
+	 * 		Observable about to be assigned a new value.
+	 * @param oldValue
+	 * 		Value of the observable before the assignment.
+	 *
+	 * @return {@code true} when a batch is active on the current thread, and notifications must be deferred.
+	 */
+	static boolean defer(AbstractObservable<?> observable, Object oldValue) {
+		if (!used)
+			return false;
+		Batch batch = CURRENT.get();
+		if (batch == null)
+			return false;
+		if (!batch.originalValues.containsKey(observable)) {
+			batch.originalValues.put(observable, oldValue);
+			batch.order.add(observable);
+		}
+		return true;
+	}
+
+	/**
+	 * Notify observables in the order they were first changed.
+	 *
+	 * @param actionFailure
+	 * 		Failure of the batch action, which failures of notifications are added to as suppressed exceptions.
+	 * 		Otherwise {@code null}, in which case the first failure of a notification is thrown once all observables
+	 * 		have been notified.
+	 */
+	private void flush(Throwable actionFailure) {
+		Throwable failure = actionFailure;
+		for (AbstractObservable<?> observable : order) {
+			try {
+				observable.completeBatch(originalValues.get(observable));
+			} catch (Throwable t) {
+				if (failure == null)
+					failure = t;
+				else
+					failure.addSuppressed(t);
+			}
+		}
+		if (actionFailure == null && failure != null) {
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+			if (failure instanceof Error)
+				throw (Error) failure;
+			throw new UndeclaredThrowableException(failure);
+		}
+	}
+}
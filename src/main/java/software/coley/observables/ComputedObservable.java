@@ -0,0 +1,179 @@
+package software.coley.observables;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Supplier;
+
+/**
+ * Observable whose value is computed from other observables.
+ * <br>
+ * Each time the value is computed, the observables read via {@link AbstractObservable#getValue()} are recorded.
+ * The computed observable listens to exactly those observables, and dependencies no longer read by the latest
+ * computation are released. Conditional computations therefore only depend on the branch last taken.
+ * <br>
+ * Computed values are compared with {@link Equivalence#equality()} by default, so a recomputation yielding an
+ * equal value does not notify listeners.
+ * <br>
+ * Recomputations are serialised. When a dependency changes while another thread is computing the value, that thread
+ * computes it again before publishing, rather than blocking the thread that changed the dependency.
+ *
+ * @param <T>
+ * 		Computed value type.
+ *
+ * @author Matt Coley
+ * @see Observables#computed(Supplier)
+ */
+public class ComputedObservable<T> extends AbstractObservable<T> {
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<ComputedObservable> REQUESTS =
+			AtomicIntegerFieldUpdater.newUpdater(ComputedObservable.class, "requests");
+	private static final ThreadLocal<ComputedObservable<?>> EVALUATING = new ThreadLocal<>();
+	// Written once, so reads of it never contend. Reads are only looked up per thread once computations exist.
+	private static volatile boolean used;
+	@SuppressWarnings("rawtypes")
+	private final ChangeListener dependencyListener = (observable, oldValue, newValue) -> recompute();
+	private final Supplier<T> supplier;
+	private volatile Set<AbstractObservable<?>> dependencies = Collections.emptySet();
+	// Only accessed by the thread holding the recomputation requests
+	private Set<AbstractObservable<?>> collected;
+	private volatile int requests;
+	private volatile boolean disposed;
+
+	/**
+	 * @param supplier
+	 * 		Computation of the value.
+	 */
+	public ComputedObservable(Supplier<T> supplier) {
+		super(null);
+		this.supplier = Objects.requireNonNull(supplier, "Supplier must not be null");
+		if (!used)
+			used = true;
+		setEquivalence(Equivalence.equality());
+		recompute();
+	}
+
+	@Override
+	protected void validateNewValue(T newValue) {
+		throw new BoundValueSetException(this);
+	}
+
+	@Override
+	public <S extends Observable<?>> S bindTo(Observable<?> observable) {
+		throw new UnsupportedOperationException("Computed observables cannot be bound to other observables");
+	}
+
+	@Override
+	public <S extends Observable<?>> S bindTo(Observable<?> observable, Executor executor) {
+		throw new UnsupportedOperationException("Computed observables cannot be bound to other observables");
+	}
+
+	/**
+	 * @return Observables read by the latest computation.
+	 */
+	public List<Observable<?>> getDependencies() {
+		return Collections.unmodifiableList(new ArrayList<>(dependencies));
+	}
+
+	/**
+	 * Stops listening to all dependencies. The value will no longer be updated.
+	 * When another thread is computing the value, dependencies are released once it completes.
+	 */
+	public void dispose() {
+		disposed = true;
+		recompute();
+	}
+
+	/**
+	 * Recomputes the value, updating dependencies to those read by the computation.
+	 * Only one thread computes at a time. Requests made while computing, by any thread, are counted so that the
+	 * computing thread runs again before publishing its value.
+	 */
+	@SuppressWarnings("unchecked")
+	private void recompute() {
+		if (REQUESTS.getAndIncrement(this) != 0)
+			return;
+		int missed = 1;
+		try {
+			while (true) {
+				if (disposed) {
+					for (AbstractObservable<?> dependency : dependencies)
+						dependency.removeChangeListener(dependencyListener);
+					dependencies = Collections.emptySet();
+				} else {
+					T newValue = evaluate();
+					int current = requests;
+					if (current != missed) {
+						// A dependency changed during the computation, the value may already be outdated
+						missed = current;
+						continue;
+					}
+					set(newValue, 0);
+				}
+				missed = REQUESTS.addAndGet(this, -missed);
+				if (missed == 0)
+					return;
+			}
+		} catch (Throwable t) {
+			requests = 0;
+			throw t;
+		}
+	}
+
+	/**
+	 * Runs the supplier, and swaps the dependencies to the observables it read.
+	 *
+	 * @return Computed value.
+	 */
+	@SuppressWarnings("unchecked")
+	private T evaluate() {
+		Set<AbstractObservable<?>> previous = dependencies;
+		collected = Collections.newSetFromMap(new IdentityHashMap<>());
+		T newValue;
+		ComputedObservable<?> outer = EVALUATING.get();
+		EVALUATING.set(this);
+		try {
+			newValue = supplier.get();
+		} finally {
+			if (outer == null)
+				EVALUATING.remove();
+			else
+				EVALUATING.set(outer);
+		}
+
+		// Release dependencies no longer read, and listen to new ones
+		Set<AbstractObservable<?>> current = collected;
+		collected = null;
+		for (AbstractObservable<?> dependency : previous)
+			if (!current.contains(dependency))
+				dependency.removeChangeListener(dependencyListener);
+		for (AbstractObservable<?> dependency : current)
+			if (!previous.contains(dependency))
+				dependency.addChangeListener(dependencyListener);
+		dependencies = current;
+		return newValue;
+	}
+
+	/**
+	 * @return {@code true} when reads may need to be recorded, as computed observables have been created.
+	 * Until then, reads skip the lookup of the computation running on the current thread.
+	 */
+	static boolean isTracking() {
+		return used;
+	}
+
+	/**
+	 * @param observable
+	 * 		Observable read during a computation on the current thread.
+	 */
+	static void recordRead(AbstractObservable<?> observable) {
+		ComputedObservable<?> computed = EVALUATING.get();
+		if (computed != null && computed != observable)
+			computed.collected.add(observable);
+	}
+}
@@ -0,0 +1,110 @@
+package software.coley.observables;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Poll-based change detection for many observables, without registering listeners on them.
+ * <br>
+ * The tracker records the {@link AbstractObservable#getStamp() stamp} of each tracked observable. Each
+ * {@link #poll()} compares the current stamps to the recorded ones, and yields every observable which changed
+ * since the previous poll, once, regardless of how many times it changed. Intended to be polled once per
+ * frame or tick by a single thread. The observables may be updated from any thread.
+ *
+ * @author Matt Coley
+ */
+public class DirtyTracker {
+	private final Map<AbstractObservable<?>, Integer> indices = new IdentityHashMap<>();
+	private final List<AbstractObservable<?>> dirty = new ArrayList<>();
+	private final List<AbstractObservable<?>> dirtyView = Collections.unmodifiableList(dirty);
+	@SuppressWarnings("rawtypes")
+	private AbstractObservable<?>[] tracked = new AbstractObservable[16];
+	private long[] stamps = new long[16];
+	private int size;
+
+	/**
+	 * Starts tracking an observable. Changes made before tracking starts are not reported.
+	 *
+	 * @param observable
+	 * 		Observable to track.
+	 *
+	 * @return {@code true} when the observable was not already tracked.
+	 */
+	public boolean track(AbstractObservable<?> observable) {
+		Objects.requireNonNull(observable, "Observable must not be null");
+		if (indices.containsKey(observable))
+			return false;
+		if (size == tracked.length) {
+			tracked = Arrays.copyOf(tracked, size * 2);
+			stamps = Arrays.copyOf(stamps, size * 2);
+		}
+		tracked[size] = observable;
+		stamps[size] = observable.getStamp();
+		indices.put(observable, size++);
+		return true;
+	}
+
+	/**
+	 * @param observable
+	 * 		Observable to stop tracking.
+	 *
+	 * @return {@code true} when the observable was tracked.
+	 */
+	public boolean untrack(AbstractObservable<?> observable) {
+		Integer index = indices.remove(observable);
+		if (index == null)
+			return false;
+		// Move the last observable into the vacated slot
+		int last = --size;
+		if (index != last) {
+			tracked[index] = tracked[last];
+			stamps[index] = stamps[last];
+			indices.put(tracked[index], index);
+		}
+		tracked[last] = null;
+		return true;
+	}
+
+	/**
+	 * @return Number of tracked observables.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return Observables which changed since the previous poll. The list is reused by the next poll,
+	 * so it must not be retained.
+	 */
+	public List<AbstractObservable<?>> poll() {
+		dirty.clear();
+		AbstractObservable<?>[] tracked = this.tracked;
+		long[] stamps = this.stamps;
+		for (int i = 0; i < size; i++) {
+			long stamp = tracked[i].getStamp();
+			if (stamp != stamps[i]) {
+				stamps[i] = stamp;
+				dirty.add(tracked[i]);
+			}
+		}
+		return dirtyView;
+	}
+
+	/**
+	 * Polls, passing each observable which changed since the previous poll to the consumer.
+	 *
+	 * @param consumer
+	 * 		Consumer of changed observables.
+	 */
+	public void drain(Consumer<? super AbstractObservable<?>> consumer) {
+		List<AbstractObservable<?>> changed = poll();
+		for (int i = 0; i < changed.size(); i++)
+			consumer.accept(changed.get(i));
+	}
+}
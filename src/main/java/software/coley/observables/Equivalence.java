@@ -0,0 +1,114 @@
+package software.coley.observables;
+
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+/**
+ * Strategy deciding if a newly assigned value is equivalent to the current value of an observable.
+ * Equivalent values do not notify listeners or propagate to bound observables.
+ *
+ * @param <T>
+ * 		Value type.
+ *
+ * @author Matt Coley
+ * @see AbstractObservable#setEquivalence(Equivalence)
+ */
+@FunctionalInterface
+public interface Equivalence<T> {
+	/**
+	 * @param current
+	 * 		Current value.
+	 * @param candidate
+	 * 		Newly assigned value.
+	 *
+	 * @return {@code true} when the values are considered the same, and the assignment should be ignored.
+	 */
+	boolean isEquivalent(T current, T candidate);
+
+	/**
+	 * @param <T>
+	 * 		Value type.
+	 *
+	 * @return Equivalence where values must be the same reference.
+	 */
+	static <T> Equivalence<T> identity() {
+		return (current, candidate) -> current == candidate;
+	}
+
+	/**
+	 * @param <T>
+	 * 		Value type.
+	 *
+	 * @return Equivalence by {@link Object#equals(Object)}.
+	 */
+	static <T> Equivalence<T> equality() {
+		return Objects::equals;
+	}
+
+	/**
+	 * Compares numbers of the same type by their primitive values, without boxing or calling {@code equals}.
+	 * Floating point values are compared as in {@link Double#compare(double, double)}, so {@code NaN}
+	 * is equivalent to itself. Numbers of different types are never equivalent, so that changing the type
+	 * of value held by an {@link ObservableNumber} is always observed.
+	 *
+	 * @param <N>
+	 * 		Number type.
+	 *
+	 * @return Equivalence by primitive numeric value.
+	 */
+	static <N extends Number> Equivalence<N> numeric() {
+		return (current, candidate) -> {
+			if (current == candidate)
+				return true;
+			if (current == null || candidate == null)
+				return false;
+			Class<?> type = current.getClass();
+			if (type != candidate.getClass())
+				return false;
+			if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class)
+				return current.longValue() == candidate.longValue();
+			if (type == Double.class || type == Float.class)
+				return Double.compare(current.doubleValue(), candidate.doubleValue()) == 0;
+			return current.equals(candidate);
+		};
+	}
+
+	/**
+	 * Compares numbers by their {@code double} values, treating values within the given tolerance as equivalent.
+	 * Since equivalent assignments are ignored, values drifting in small steps are observed once they move
+	 * beyond the tolerance from the last observed value.
+	 *
+	 * @param epsilon
+	 * 		Maximum difference between equivalent values.
+	 * @param <N>
+	 * 		Number type.
+	 *
+	 * @return Equivalence by tolerance.
+	 */
+	static <N extends Number> Equivalence<N> epsilon(double epsilon) {
+		if (!(epsilon >= 0))
+			throw new IllegalArgumentException("Epsilon must be a non-negative number: " + epsilon);
+		return (current, candidate) -> {
+			if (current == candidate)
+				return true;
+			if (current == null || candidate == null)
+				return false;
+			double a = current.doubleValue();
+			double b = candidate.doubleValue();
+			return Math.abs(a - b) <= epsilon || (Double.isNaN(a) && Double.isNaN(b));
+		};
+	}
+
+	/**
+	 * @param predicate
+	 * 		Predicate returning {@code true} for equivalent values.
+	 * @param <T>
+	 * 		Value type.
+	 *
+	 * @return Equivalence wrapping the predicate.
+	 */
+	static <T> Equivalence<T> of(BiPredicate<? super T, ? super T> predicate) {
+		Objects.requireNonNull(predicate, "Predicate must not be null");
+		return predicate::test;
+	}
+}
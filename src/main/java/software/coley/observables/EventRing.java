@@ -0,0 +1,232 @@
+package software.coley.observables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Async delivery of changes through a preallocated ring buffer. An alternative to
+ * {@link AbstractObservable#addAsyncChangeListener(ChangeListener, java.util.concurrent.Executor)}
+ * for high rates of changes.
+ * <br>
+ * Add the ring as a change listener to one or more observables. Each change claims the next slot of the ring, and
+ * the observable, old value, and new value are written into the slot in place. Each consumer has its own thread
+ * which reads all events in order, processing every event available at once as a batch. Publishing and consuming
+ * do not allocate. When the ring is full, publishers wait for the slowest consumer to free a slot.
+ * <br>
+ * Slots keep references to their last values until overwritten, so values of old events are retained for up to
+ * one full rotation of the ring.
+ *
+ * @param <T>
+ * 		Observable value type.
+ *
+ * @author Matt Coley
+ */
+public class EventRing<T> implements ChangeListener<T>, AutoCloseable {
+	private final List<Consumer> consumers = new ArrayList<>();
+	private final AtomicLong claimed = new AtomicLong();
+	private final WaitStrategy waitStrategy;
+	private final Object[] sources;
+	private final Object[] oldValues;
+	private final Object[] newValues;
+	// Rotation number each slot was last published in, so that consumers can detect slots still being written
+	private final AtomicIntegerArray published;
+	private final int mask;
+	private final int shift;
+	private volatile Sequence[] gating = new Sequence[0];
+	private volatile long cachedGate = -1;
+	private volatile boolean started;
+	private volatile boolean closed;
+
+	/**
+	 * @param capacity
+	 * 		Number of slots, must be a power of two.
+	 * @param waitStrategy
+	 * 		Strategy for consumers waiting on events, and publishers waiting on free slots.
+	 */
+	public EventRing(int capacity, WaitStrategy waitStrategy) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+		this.waitStrategy = Objects.requireNonNull(waitStrategy, "Wait strategy must not be null");
+		this.sources = new Object[capacity];
+		this.oldValues = new Object[capacity];
+		this.newValues = new Object[capacity];
+		this.published = new AtomicIntegerArray(capacity);
+		for (int i = 0; i < capacity; i++)
+			published.set(i, -1);
+		this.mask = capacity - 1;
+		this.shift = Integer.numberOfTrailingZeros(capacity);
+	}
+
+	/**
+	 * @param listener
+	 * 		Listener to receive all events of the ring on its own thread.
+	 *
+	 * @return Self.
+	 *
+	 * @throws IllegalStateException
+	 * 		When the ring has already been started.
+	 */
+	public synchronized EventRing<T> addConsumer(ChangeListener<T> listener) {
+		Objects.requireNonNull(listener, "Listener must not be null");
+		if (started)
+			throw new IllegalStateException("Consumers must be added before the ring is started");
+		consumers.add(new Consumer(listener, consumers.size()));
+		return this;
+	}
+
+	/**
+	 * Starts the consumer threads. Events published before starting are held, and once the ring is full,
+	 * publishers block until the ring is started.
+	 *
+	 * @return Self.
+	 */
+	public synchronized EventRing<T> start() {
+		if (started)
+			return this;
+		if (consumers.isEmpty())
+			throw new IllegalStateException("Ring has no consumers");
+		Sequence[] sequences = new Sequence[consumers.size()];
+		for (int i = 0; i < sequences.length; i++)
+			sequences[i] = consumers.get(i).sequence;
+		gating = sequences;
+		started = true;
+		for (Consumer consumer : consumers)
+			consumer.thread.start();
+		return this;
+	}
+
+	/**
+	 * @return Number of slots.
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @return Number of events published so far.
+	 */
+	public long getPublishedCount() {
+		return claimed.get();
+	}
+
+	/**
+	 * Stops consumers once they have processed all events published before closing.
+	 * Blocks until the consumer threads stop.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		waitStrategy.signal();
+		waitStrategy.signalFreed();
+		if (!started)
+			return;
+		for (Consumer consumer : consumers) {
+			try {
+				consumer.thread.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void changed(AbstractObservable<? extends T> observable, T oldValue, T newValue) {
+		if (closed)
+			throw new IllegalStateException("Ring has been closed");
+		long sequence = claimed.getAndIncrement();
+		long wrapPoint = sequence - mask - 1;
+		if (wrapPoint > cachedGate) {
+			// Wait for the slowest consumer to move past the slot from the previous rotation
+			long gate;
+			int attempt = 0;
+			while (wrapPoint > (gate = minimumGate()))
+				waitStrategy.idleFull(attempt++);
+			cachedGate = gate;
+		}
+		int index = (int) sequence & mask;
+		sources[index] = observable;
+		oldValues[index] = oldValue;
+		newValues[index] = newValue;
+		// Ordered write, so that the slot content is visible to consumers that observe the publication
+		published.lazySet(index, (int) (sequence >>> shift));
+		waitStrategy.signal();
+	}
+
+	private long minimumGate() {
+		Sequence[] sequences = gating;
+		if (sequences.length == 0)
+			return -1;
+		long min = Long.MAX_VALUE;
+		for (Sequence sequence : sequences)
+			min = Math.min(min, sequence.value);
+		return min;
+	}
+
+	private boolean isPublished(long sequence) {
+		return published.get((int) sequence & mask) == (int) (sequence >>> shift);
+	}
+
+	/**
+	 * Processed position of a consumer, padded against false sharing with neighbouring sequences.
+	 */
+	@SuppressWarnings("unused")
+	private static final class Sequence {
+		private long p1, p2, p3, p4, p5, p6, p7;
+		private volatile long value = -1;
+		private long p9, p10, p11, p12, p13, p14, p15;
+	}
+
+	/**
+	 * Thread delivering every event of the ring to a listener.
+	 */
+	private class Consumer implements Runnable {
+		private final Sequence sequence = new Sequence();
+		private final ChangeListener<T> listener;
+		private final Thread thread;
+
+		private Consumer(ChangeListener<T> listener, int index) {
+			this.listener = listener;
+			this.thread = new Thread(this, "event-ring-consumer-" + index);
+			this.thread.setDaemon(true);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void run() {
+			long next = sequence.value + 1;
+			int attempt = 0;
+			while (true) {
+				// Find the end of the contiguous run of published events
+				long end = next;
+				long limit = claimed.get();
+				while (end < limit && isPublished(end))
+					end++;
+				if (end == next) {
+					if (closed && next >= claimed.get())
+						return;
+					waitStrategy.idle(attempt++);
+					continue;
+				}
+				attempt = 0;
+				for (long s = next; s < end; s++) {
+					int index = (int) s & mask;
+					try {
+						listener.changed((AbstractObservable<? extends T>) sources[index],
+								(T) oldValues[index], (T) newValues[index]);
+					} catch (Throwable t) {
+						Thread current = Thread.currentThread();
+						current.getUncaughtExceptionHandler().uncaughtException(current, t);
+					}
+				}
+				// Release the whole batch of slots at once
+				sequence.value = end - 1;
+				next = end;
+				waitStrategy.signalFreed();
+			}
+		}
+	}
+}
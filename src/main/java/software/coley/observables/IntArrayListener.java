@@ -0,0 +1,23 @@
+package software.coley.observables;
+
+/**
+ * Listener notified of changes to cells of an {@link ObservableIntArray}.
+ *
+ * @author Matt Coley
+ */
+@FunctionalInterface
+public interface IntArrayListener {
+	/**
+	 * Called when a cell of the array changes.
+	 *
+	 * @param array
+	 * 		The array changed.
+	 * @param index
+	 * 		Index of the changed cell.
+	 * @param oldValue
+	 * 		The old value of the cell.
+	 * @param newValue
+	 * 		The new value of the cell.
+	 */
+	void changed(ObservableIntArray array, int index, int oldValue, int newValue);
+}
@@ -0,0 +1,207 @@
+package software.coley.observables;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * List of change listeners with constant time registration and removal.
+ * <br>
+ * Listeners are kept in an array in registration order. Removal clears the slot, leaving a tombstone which
+ * dispatch skips, and the array is compacted once tombstones make up half of it. Growth and compaction copy
+ * live registrations into a new array rather than moving them in place, so a dispatch iterates a stable
+ * {@link #slots() snapshot} of the array up to its {@link #end() end}. Dispatch checks each registration is
+ * still {@link Registration#isActive() active}, so listeners removed during a dispatch are skipped, and listeners
+ * added during a dispatch are not called by that dispatch.
+ * <br>
+ * Modifications are made while holding the lock of the owning observable. Dispatch takes no lock, and may run
+ * concurrently with modifications on other threads.
+ * <br>
+ * Observables with a single listener hold its {@link Registration} directly, and only create a list once a second
+ * listener is added.
+ *
+ * @param <T>
+ * 		Value type of the listeners.
+ *
+ * @author Matt Coley
+ */
+final class ListenerList<T> {
+	private static final int MIN_COMPACTION = 16;
+	private final Map<ChangeListener<T>, Registration<T>> registrations = new HashMap<>();
+	private final AbstractObservable<T> owner;
+	// Arrays are replaced and never shrink, so any snapshot is at least as long as any end read before it
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private volatile Registration<T>[] slots = new Registration[4];
+	private volatile int end;
+	private int tombstones;
+
+	/**
+	 * @param owner
+	 * 		Observable the listeners are registered on.
+	 */
+	ListenerList(AbstractObservable<T> owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * @param listener
+	 * 		Listener to add.
+	 *
+	 * @return Registration of the listener, or {@code null} if the listener was already registered.
+	 */
+	Registration<T> add(ChangeListener<T> listener) {
+		if (registrations.containsKey(listener))
+			return null;
+		Registration<T> registration = new Registration<>(owner, listener);
+		adopt(registration);
+		return registration;
+	}
+
+	/**
+	 * @param registration
+	 * 		Inline registration of the owner's single listener, moved into this list.
+	 */
+	void adopt(Registration<T> registration) {
+		Registration<T>[] slots = this.slots;
+		int end = this.end;
+		if (end == slots.length) {
+			// Reclaim tombstones if that frees enough room, otherwise grow
+			int capacity = tombstones * 2 >= end ? slots.length : slots.length * 2;
+			slots = copyLive(slots, end, capacity);
+			end = registrations.size();
+			tombstones = 0;
+		}
+		registration.list = this;
+		registration.index = end;
+		slots[end] = registration;
+		registrations.put(registration.listener, registration);
+		this.slots = slots;
+		this.end = end + 1;
+	}
+
+	/**
+	 * @param listener
+	 * 		Listener to look up.
+	 *
+	 * @return Registration of the listener, or {@code null} if the listener is not registered.
+	 */
+	Registration<T> get(ChangeListener<T> listener) {
+		return registrations.get(listener);
+	}
+
+	/**
+	 * @return Number of registered listeners.
+	 */
+	int size() {
+		return registrations.size();
+	}
+
+	/**
+	 * Read before {@link #slots()} when dispatching.
+	 *
+	 * @return Exclusive end index of the slots to dispatch to.
+	 */
+	int end() {
+		return end;
+	}
+
+	/**
+	 * @return Current slots. Removed registrations are left in place as {@code null} or inactive registrations.
+	 */
+	Registration<T>[] slots() {
+		return slots;
+	}
+
+	/**
+	 * Removal is done through {@link AbstractObservable#removeRegistration(Registration)},
+	 * which notifies the owner's metrics and watchdog.
+	 *
+	 * @param registration
+	 * 		Registration to remove.
+	 *
+	 * @return {@code true} when the registration was active in this list.
+	 */
+	boolean remove(Registration<T> registration) {
+		int index = registration.index;
+		if (index < 0 || registration.list != this)
+			return false;
+		registration.index = -1;
+		slots[index] = null;
+		registrations.remove(registration.listener);
+		tombstones++;
+		if (tombstones >= MIN_COMPACTION && tombstones * 2 >= end) {
+			slots = copyLive(slots, end, slots.length);
+			end = registrations.size();
+			tombstones = 0;
+		}
+		return true;
+	}
+
+	/**
+	 * @return New array of the given capacity, holding the live registrations of the given slots with updated indices.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static <T> Registration<T>[] copyLive(Registration<T>[] slots, int end, int capacity) {
+		Registration<T>[] copy = new Registration[capacity];
+		int live = 0;
+		for (int i = 0; i < end; i++) {
+			Registration<T> registration = slots[i];
+			if (registration != null) {
+				registration.index = live;
+				copy[live++] = registration;
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Slot of a registered listener. Held inline by the owner until the owner has multiple listeners.
+	 */
+	static final class Registration<T> implements ListenerSubscription {
+		private final AbstractObservable<T> owner;
+		private final ChangeListener<T> listener;
+		private volatile ListenerList<T> list;
+		private volatile int index;
+
+		/**
+		 * @param owner
+		 * 		Observable the listener is registered on.
+		 * @param listener
+		 * 		Registered listener.
+		 */
+		Registration(AbstractObservable<T> owner, ChangeListener<T> listener) {
+			this.owner = owner;
+			this.listener = listener;
+		}
+
+		/**
+		 * @return Registered listener.
+		 */
+		ChangeListener<T> getListener() {
+			return listener;
+		}
+
+		/**
+		 * @return List holding the registration, or {@code null} when held inline by the owner.
+		 */
+		ListenerList<T> getList() {
+			return list;
+		}
+
+		/**
+		 * Marks an inline registration as removed.
+		 */
+		void deactivate() {
+			index = -1;
+		}
+
+		@Override
+		public void cancel() {
+			owner.removeRegistration(this);
+		}
+
+		@Override
+		public boolean isActive() {
+			return index >= 0;
+		}
+	}
+}
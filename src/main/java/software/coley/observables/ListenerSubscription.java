@@ -0,0 +1,18 @@
+package software.coley.observables;
+
+/**
+ * Handle to a listener registered via {@link Observable#subscribe(ChangeListener)}.
+ *
+ * @author Matt Coley
+ */
+public interface ListenerSubscription {
+	/**
+	 * Removes the listener. Has no effect if the listener was already removed.
+	 */
+	void cancel();
+
+	/**
+	 * @return {@code true} while the listener is registered.
+	 */
+	boolean isActive();
+}
@@ -0,0 +1,262 @@
+package software.coley.observables;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Supervises listener invocations of observables it is {@link AbstractObservable#setListenerWatchdog(ListenerWatchdog)
+ * assigned to}.
+ * <ul>
+ * <li>Each invocation is measured against a latency budget, and offenders are reported to a {@link SlowListenerHandler}.</li>
+ * <li>Listeners exceeding the budget repeatedly can be demoted to run on an {@link Executor} instead of the
+ * thread setting the value.</li>
+ * <li>Exceptions from listeners and bound receivers are passed to an {@link ErrorHandler}, so that the remaining
+ * listeners and receivers are still notified.</li>
+ * </ul>
+ * A single watchdog can be shared between many observables. Configure it before assigning it to observables.
+ * Strikes are counted per listener of each observable, so a listener added to several observables is demoted
+ * separately for each of them.
+ *
+ * @author Matt Coley
+ */
+public class ListenerWatchdog {
+	private final Map<Key, Strikes> strikes = new ConcurrentHashMap<>();
+	private final long budgetNanos;
+	private SlowListenerHandler slowListenerHandler = (observable, listener, nanos, demoted) -> {
+	};
+	private ErrorHandler errorHandler = (observable, target, error) -> {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+	};
+	private Executor demotionExecutor;
+	private int demotionThreshold;
+
+	/**
+	 * @param budget
+	 * 		Maximum expected duration of a single listener invocation.
+	 * @param unit
+	 * 		Budget time unit.
+	 */
+	public ListenerWatchdog(long budget, TimeUnit unit) {
+		Objects.requireNonNull(unit, "Time unit must not be null");
+		if (budget < 0)
+			throw new IllegalArgumentException("Budget must not be negative: " + budget);
+		this.budgetNanos = unit.toNanos(budget);
+	}
+
+	/**
+	 * @param handler
+	 * 		Handler to notify of listeners exceeding the budget.
+	 *
+	 * @return Self.
+	 */
+	public ListenerWatchdog withSlowListenerHandler(SlowListenerHandler handler) {
+		this.slowListenerHandler = Objects.requireNonNull(handler, "Handler must not be null");
+		return this;
+	}
+
+	/**
+	 * @param handler
+	 * 		Handler to notify of exceptions thrown by listeners and bound receivers.
+	 * 		By default, exceptions are passed to the current thread's uncaught exception handler.
+	 *
+	 * @return Self.
+	 */
+	public ListenerWatchdog withErrorHandler(ErrorHandler handler) {
+		this.errorHandler = Objects.requireNonNull(handler, "Handler must not be null");
+		return this;
+	}
+
+	/**
+	 * Enables demotion of chronically slow listeners. Each invocation over budget adds a strike to the listener,
+	 * and each invocation within budget removes one. Once a listener accumulates the given number of strikes,
+	 * all further invocations are run on the given executor.
+	 *
+	 * @param threshold
+	 * 		Number of strikes before a listener is demoted.
+	 * @param executor
+	 * 		Executor to run demoted listeners on.
+	 *
+	 * @return Self.
+	 */
+	public ListenerWatchdog withDemotion(int threshold, Executor executor) {
+		Objects.requireNonNull(executor, "Executor must not be null");
+		if (threshold <= 0)
+			throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+		this.demotionThreshold = threshold;
+		this.demotionExecutor = executor;
+		return this;
+	}
+
+	/**
+	 * @return Latency budget in nanoseconds.
+	 */
+	public long getBudgetNanos() {
+		return budgetNanos;
+	}
+
+	/**
+	 * @param observable
+	 * 		Observable notifying the listener.
+	 * @param listener
+	 * 		Some listener.
+	 *
+	 * @return {@code true} when the listener has been demoted to async delivery for the given observable.
+	 */
+	public boolean isDemoted(Observable<?> observable, ChangeListener<?> listener) {
+		Strikes state = strikes.get(new Key(observable, listener));
+		return state != null && state.demoted;
+	}
+
+	/**
+	 * Clears strikes for the given listener of the given observable, restoring synchronous delivery if it was demoted.
+	 * Strikes of the same listener on other observables are kept.
+	 *
+	 * @param observable
+	 * 		Observable notifying the listener.
+	 * @param listener
+	 * 		Some listener.
+	 */
+	public void forget(Observable<?> observable, ChangeListener<?> listener) {
+		strikes.remove(new Key(observable, listener));
+	}
+
+	/**
+	 * Invokes the listener, isolating any exception it throws.
+	 *
+	 * @param observable
+	 * 		Observable that changed.
+	 * @param listener
+	 * 		Listener to invoke.
+	 * @param oldValue
+	 * 		Prior value.
+	 * @param newValue
+	 * 		New value.
+	 * @param <T>
+	 * 		Value type.
+	 *
+	 * @return Duration of the invocation in nanoseconds, or {@code -1} if the listener was run asynchronously.
+	 */
+	<T> long invoke(AbstractObservable<T> observable, ChangeListener<T> listener, T oldValue, T newValue) {
+		Key key = new Key(observable, listener);
+		Strikes state = strikes.get(key);
+		if (state != null && state.demoted) {
+			demotionExecutor.execute(() -> invokeSafely(observable, listener, oldValue, newValue));
+			return -1;
+		}
+		long start = System.nanoTime();
+		invokeSafely(observable, listener, oldValue, newValue);
+		long elapsed = System.nanoTime() - start;
+		if (elapsed > budgetNanos) {
+			boolean demoted = false;
+			if (demotionThreshold > 0) {
+				if (state == null)
+					state = strikes.computeIfAbsent(key, k -> new Strikes());
+				synchronized (state) {
+					if (!state.demoted && ++state.count >= demotionThreshold)
+						demoted = state.demoted = true;
+				}
+			}
+			slowListenerHandler.onSlowListener(observable, listener, elapsed, demoted);
+		} else if (state != null) {
+			synchronized (state) {
+				if (state.count > 0)
+					state.count--;
+			}
+		}
+		return elapsed;
+	}
+
+	/**
+	 * @param observable
+	 * 		Observable propagating its value.
+	 * @param receiver
+	 * 		Bound receiver that failed to update.
+	 * @param error
+	 * 		Failure cause.
+	 */
+	void reportError(Observable<?> observable, Object receiver, Throwable error) {
+		errorHandler.onError(observable, receiver, error);
+	}
+
+	private <T> void invokeSafely(AbstractObservable<T> observable, ChangeListener<T> listener, T oldValue, T newValue) {
+		try {
+			listener.changed(observable, oldValue, newValue);
+		} catch (Throwable t) {
+			errorHandler.onError(observable, listener, t);
+		}
+	}
+
+	/**
+	 * Listener of a specific observable. Observables are compared by identity, listeners by equality.
+	 */
+	private static final class Key {
+		private final Observable<?> observable;
+		private final ChangeListener<?> listener;
+
+		private Key(Observable<?> observable, ChangeListener<?> listener) {
+			this.observable = observable;
+			this.listener = listener;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return observable == other.observable && listener.equals(other.listener);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(observable) + listener.hashCode();
+		}
+	}
+
+	/**
+	 * Strike count of a listener.
+	 */
+	private static class Strikes {
+		private int count;
+		private volatile boolean demoted;
+	}
+
+	/**
+	 * Handler for listeners exceeding the latency budget.
+	 */
+	@FunctionalInterface
+	public interface SlowListenerHandler {
+		/**
+		 * @param observable
+		 * 		Observable that notified the listener.
+		 * @param listener
+		 * 		Listener that exceeded the budget.
+		 * @param nanos
+		 * 		Duration of the invocation.
+		 * @param demoted
+		 * 		{@code true} when this invocation caused the listener to be demoted to async delivery.
+		 */
+		void onSlowListener(Observable<?> observable, ChangeListener<?> listener, long nanos, boolean demoted);
+	}
+
+	/**
+	 * Handler for exceptions thrown while notifying listeners and bound receivers.
+	 */
+	@FunctionalInterface
+	public interface ErrorHandler {
+		/**
+		 * @param observable
+		 * 		Observable that was being updated.
+		 * @param target
+		 * 		The {@link ChangeListener} or bound {@link Observable} that failed.
+		 * @param error
+		 * 		Failure cause.
+		 */
+		void onError(Observable<?> observable, Object target, Throwable error);
+	}
+}
@@ -0,0 +1,485 @@
+package software.coley.observables;
+
+import software.coley.observables.util.NumberUtil;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Chain of numeric operations on an {@link ObservableNumber}, evaluated as a single function.
+ * <br>
+ * Chaining {@link ObservableNumber#mapAdd(Number)} and similar methods creates an intermediate observable per
+ * operation, and every change of the source is propagated through each of them in turn. An expression instead
+ * records the operations, and {@link #toObservable()} creates a single observable bound to the source which
+ * evaluates the whole chain on primitive values. Intermediate results are only observable if
+ * {@link #toObservable()} is called on the expression of that stage.
+ * <br>
+ * Operations follow the same type promotion as {@link NumberUtil}, so the result of an expression matches the
+ * result of the equivalent chain of {@code map} calls. Expressions are immutable, and can be shared and extended
+ * in multiple directions.
+ *
+ * @param <N>
+ * 		Source number type.
+ *
+ * @author Matt Coley
+ * @see ObservableNumber#expression()
+ */
+public class NumberExpression<N extends Number> {
+	private static final int INT = 0;
+	private static final int LONG = 1;
+	private static final int FLOAT = 2;
+	private static final int DOUBLE = 3;
+	private static final int ADD = 0;
+	private static final int SUB = 1;
+	private static final int MUL = 2;
+	private static final int DIV = 3;
+	private static final int REM = 4;
+	private static final int CMP = 5;
+	private static final int AND = 6;
+	private static final int OR = 7;
+	private static final int XOR = 8;
+	private static final int SHL = 9;
+	private static final int SHR = 10;
+	private static final int USHR = 11;
+	private static final int NEG = 12;
+	private final ObservableNumber<N> source;
+	private final int[] opcodes;
+	private final int[] intOperands;
+	private final long[] longOperands;
+	private final float[] floatOperands;
+	private final double[] doubleOperands;
+	/**
+	 * Type each operation is computed in, indexed by the type of the source value.
+	 */
+	private final int[][] operationTypes;
+
+	/**
+	 * @param source
+	 * 		Observable to compute values from.
+	 */
+	NumberExpression(ObservableNumber<N> source) {
+		this.source = Objects.requireNonNull(source, "Source must not be null");
+		this.opcodes = new int[0];
+		this.intOperands = new int[0];
+		this.longOperands = new long[0];
+		this.floatOperands = new float[0];
+		this.doubleOperands = new double[0];
+		this.operationTypes = new int[4][0];
+	}
+
+	private NumberExpression(NumberExpression<N> parent, int opcode, Number operand) {
+		int index = parent.opcodes.length;
+		int length = index + 1;
+		this.source = parent.source;
+		this.opcodes = Arrays.copyOf(parent.opcodes, length);
+		this.intOperands = Arrays.copyOf(parent.intOperands, length);
+		this.longOperands = Arrays.copyOf(parent.longOperands, length);
+		this.floatOperands = Arrays.copyOf(parent.floatOperands, length);
+		this.doubleOperands = Arrays.copyOf(parent.doubleOperands, length);
+		this.operationTypes = new int[4][];
+		opcodes[index] = opcode;
+		int operandType = INT;
+		if (operand != null) {
+			operandType = typeOf(operand);
+			intOperands[index] = operand.intValue();
+			longOperands[index] = operand.longValue();
+			floatOperands[index] = operand.floatValue();
+			doubleOperands[index] = operand.doubleValue();
+		}
+		for (int inputType = INT; inputType <= DOUBLE; inputType++) {
+			int[] types = Arrays.copyOf(parent.operationTypes[inputType], length);
+			int valueType = index == 0 ? inputType : resultType(opcodes[index - 1], types[index - 1]);
+			types[index] = operationType(opcode, valueType, operandType);
+			operationTypes[inputType] = types;
+		}
+	}
+
+	/**
+	 * @return Observable the expression is computed from.
+	 */
+	public ObservableNumber<N> getSource() {
+		return source;
+	}
+
+	/**
+	 * @return Number of operations in the expression.
+	 */
+	public int size() {
+		return opcodes.length;
+	}
+
+	/**
+	 * @param value
+	 * 		Value to add.
+	 *
+	 * @return Expression with an addition appended.
+	 */
+	public NumberExpression<N> add(Number value) {
+		return append(ADD, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to subtract.
+	 *
+	 * @return Expression with a subtraction appended.
+	 */
+	public NumberExpression<N> subtract(Number value) {
+		return append(SUB, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to multiply by.
+	 *
+	 * @return Expression with a multiplication appended.
+	 */
+	public NumberExpression<N> multiply(Number value) {
+		return append(MUL, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to divide by.
+	 *
+	 * @return Expression with a division appended.
+	 */
+	public NumberExpression<N> divide(Number value) {
+		return append(DIV, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to get the remainder by.
+	 *
+	 * @return Expression with a remainder appended.
+	 */
+	public NumberExpression<N> remainder(Number value) {
+		return append(REM, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to compare to.
+	 *
+	 * @return Expression with a comparison appended, yielding an {@code int}.
+	 */
+	public NumberExpression<N> compare(Number value) {
+		return append(CMP, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to bitwise and with.
+	 *
+	 * @return Expression with a bitwise and appended.
+	 */
+	public NumberExpression<N> and(Number value) {
+		return append(AND, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to bitwise or with.
+	 *
+	 * @return Expression with a bitwise or appended.
+	 */
+	public NumberExpression<N> or(Number value) {
+		return append(OR, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to bitwise xor with.
+	 *
+	 * @return Expression with a bitwise xor appended.
+	 */
+	public NumberExpression<N> xor(Number value) {
+		return append(XOR, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to shift by.
+	 *
+	 * @return Expression with a left shift appended.
+	 */
+	public NumberExpression<N> shiftLeft(Number value) {
+		return append(SHL, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to shift by.
+	 *
+	 * @return Expression with a right shift appended.
+	 */
+	public NumberExpression<N> shiftRight(Number value) {
+		return append(SHR, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to shift by.
+	 *
+	 * @return Expression with an unsigned right shift appended.
+	 */
+	public NumberExpression<N> shiftRightUnsigned(Number value) {
+		return append(USHR, value);
+	}
+
+	/**
+	 * @return Expression with a negation appended.
+	 */
+	public NumberExpression<N> negate() {
+		return append(NEG, null);
+	}
+
+	/**
+	 * @return Observable number bound to the source, with the value of this expression.
+	 */
+	public ObservableNumber<? extends Number> toObservable() {
+		Function<N, Number> valueMapper = this::evaluate;
+		Number value = evaluate(source.getValue());
+		ObservableNumber<? extends Number> observable = new NumberUtil.Result(value, value.getClass()).toObservable(valueMapper);
+		observable.bindTo(source);
+		return observable;
+	}
+
+	/**
+	 * @param value
+	 * 		Input value.
+	 *
+	 * @return Result of applying all operations of the expression to the input.
+	 */
+	public Number evaluate(N value) {
+		Objects.requireNonNull(value, "Numeric values cannot be null");
+		int[] opcodes = this.opcodes;
+		int count = opcodes.length;
+		if (count == 0)
+			return value;
+		int type = typeOf(value);
+		int[] types = operationTypes[type];
+		long l = 0;
+		double d = 0;
+		switch (type) {
+			case INT:
+				l = value.intValue();
+				break;
+			case LONG:
+				l = value.longValue();
+				break;
+			case FLOAT:
+				d = value.floatValue();
+				break;
+			default:
+				d = value.doubleValue();
+				break;
+		}
+		for (int i = 0; i < count; i++) {
+			int opcode = opcodes[i];
+			int operationType = types[i];
+
+			// Convert the current value to the type the operation is computed in
+			if (operationType != type) {
+				if (operationType == INT)
+					l = type == LONG ? (int) l : (int) d;
+				else if (operationType == LONG)
+					l = type == INT ? l : (long) d;
+				else if (type == INT || type == LONG)
+					d = operationType == FLOAT ? (float) l : (double) l;
+				else
+					d = operationType == FLOAT ? (float) d : d;
+			}
+			switch (operationType) {
+				case INT:
+					l = applyInt(opcode, (int) l, intOperands[i]);
+					break;
+				case LONG:
+					l = applyLong(opcode, l, longOperands[i]);
+					break;
+				case FLOAT:
+					if (opcode == CMP)
+						l = Float.compare((float) d, floatOperands[i]);
+					else
+						d = applyFloat(opcode, (float) d, floatOperands[i]);
+					break;
+				default:
+					if (opcode == CMP)
+						l = Double.compare(d, doubleOperands[i]);
+					else
+						d = applyDouble(opcode, d, doubleOperands[i]);
+					break;
+			}
+			type = resultType(opcode, operationType);
+		}
+		switch (type) {
+			case INT:
+				return (int) l;
+			case LONG:
+				return l;
+			case FLOAT:
+				return (float) d;
+			default:
+				return d;
+		}
+	}
+
+	private NumberExpression<N> append(int opcode, Number operand) {
+		if (opcode != NEG)
+			Objects.requireNonNull(operand, "Operand must not be null");
+		return new NumberExpression<>(this, opcode, operand);
+	}
+
+	private static int applyInt(int opcode, int a, int b) {
+		switch (opcode) {
+			case ADD:
+				return a + b;
+			case SUB:
+				return a - b;
+			case MUL:
+				return a * b;
+			case DIV:
+				return a / b;
+			case REM:
+				return a % b;
+			case CMP:
+				return Integer.compare(a, b);
+			case AND:
+				return a & b;
+			case OR:
+				return a | b;
+			case XOR:
+				return a ^ b;
+			case SHL:
+				return a << b;
+			case SHR:
+				return a >> b;
+			case USHR:
+				return a >>> b;
+			default:
+				return -a;
+		}
+	}
+
+	private static long applyLong(int opcode, long a, long b) {
+		switch (opcode) {
+			case ADD:
+				return a + b;
+			case SUB:
+				return a - b;
+			case MUL:
+				return a * b;
+			case DIV:
+				return a / b;
+			case REM:
+				return a % b;
+			case CMP:
+				return Long.compare(a, b);
+			case AND:
+				return a & b;
+			case OR:
+				return a | b;
+			case XOR:
+				return a ^ b;
+			case SHL:
+				return a << b;
+			case SHR:
+				return a >> b;
+			case USHR:
+				return a >>> b;
+			default:
+				return -a;
+		}
+	}
+
+	private static float applyFloat(int opcode, float a, float b) {
+		switch (opcode) {
+			case ADD:
+				return a + b;
+			case SUB:
+				return a - b;
+			case MUL:
+				return a * b;
+			case DIV:
+				return a / b;
+			case REM:
+				return a % b;
+			default:
+				return -a;
+		}
+	}
+
+	private static double applyDouble(int opcode, double a, double b) {
+		switch (opcode) {
+			case ADD:
+				return a + b;
+			case SUB:
+				return a - b;
+			case MUL:
+				return a * b;
+			case DIV:
+				return a / b;
+			case REM:
+				return a % b;
+			default:
+				return -a;
+		}
+	}
+
+	/**
+	 * @param value
+	 * 		Some number.
+	 *
+	 * @return Type the number is treated as by {@link NumberUtil}.
+	 */
+	private static int typeOf(Number value) {
+		if (value instanceof Double)
+			return DOUBLE;
+		if (value instanceof Float)
+			return FLOAT;
+		if (value instanceof Long)
+			return LONG;
+		return INT;
+	}
+
+	/**
+	 * @param opcode
+	 * 		Operation.
+	 * @param valueType
+	 * 		Type of the current value.
+	 * @param operandType
+	 * 		Type of the operand.
+	 *
+	 * @return Type the operation is computed in.
+	 */
+	private static int operationType(int opcode, int valueType, int operandType) {
+		switch (opcode) {
+			case AND:
+			case OR:
+			case XOR:
+				return valueType == LONG || operandType == LONG ? LONG : INT;
+			case SHL:
+			case SHR:
+			case USHR:
+				return valueType == LONG ? LONG : INT;
+			case NEG:
+				return valueType;
+			default:
+				return Math.max(valueType, operandType);
+		}
+	}
+
+	/**
+	 * @param opcode
+	 * 		Operation.
+	 * @param operationType
+	 * 		Type the operation is computed in.
+	 *
+	 * @return Type of the operation result.
+	 */
+	private static int resultType(int opcode, int operationType) {
+		return opcode == CMP ? INT : operationType;
+	}
+}
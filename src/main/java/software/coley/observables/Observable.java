@@ -1,5 +1,9 @@
 package software.coley.observables;
 
+import software.coley.observables.flow.ObservablePublisher;
+import software.coley.observables.flow.OverflowStrategy;
+import software.coley.observables.util.FormatTemplate;
+
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -35,6 +39,36 @@ default boolean hasValue() {
 	 */
 	void addChangeListener(ChangeListener<T> listener);
 
+	/**
+	 * Adds a listener, returning a handle to remove it with. Implementations may override this for removal without
+	 * searching the registered listeners, which the default implementation of {@link ListenerSubscription#cancel()} does
+	 * through {@link #removeChangeListener(ChangeListener)}.
+	 *
+	 * @param listener
+	 * 		Listener to add to receive value changes.
+	 *
+	 * @return Handle to remove the listener with.
+	 */
+	default ListenerSubscription subscribe(ChangeListener<T> listener) {
+		addChangeListener(listener);
+		return new ListenerSubscription() {
+			private boolean active = true;
+
+			@Override
+			public void cancel() {
+				if (active) {
+					active = false;
+					removeChangeListener(listener);
+				}
+			}
+
+			@Override
+			public boolean isActive() {
+				return active;
+			}
+		};
+	}
+
 	/**
 	 * @param listener
 	 * 		Lister to add to receive value changes.
@@ -64,6 +98,30 @@ default boolean hasValue() {
 	 */
 	<S extends Observable<?>> S bindTo(Observable<?> observable);
 
+	/**
+	 * Bind this instance to the given observable, with values of the observable mapped and assigned to this
+	 * instance on the given executor rather than on the thread changing the observable. The current value of
+	 * the observable is mapped and assigned right away, also on the executor.
+	 * <br>
+	 * Changes are coalesced: only the latest value of the observable is mapped, and results made stale by a
+	 * newer value arriving during mapping are discarded.
+	 *
+	 * @param observable
+	 * 		Other observable to bind to.
+	 * @param executor
+	 * 		Executor to map and assign values on.
+	 * @param <S>
+	 * 		Self type.
+	 *
+	 * @return Self.
+	 *
+	 * @throws UnsupportedOperationException
+	 * 		When the implementation does not support asynchronous bindings.
+	 */
+	default <S extends Observable<?>> S bindTo(Observable<?> observable, Executor executor) {
+		throw new UnsupportedOperationException("Asynchronous bindings are not supported by " + getClass().getName());
+	}
+
 	/**
 	 * @param observable
 	 * 		Other observable to unbind from.
@@ -85,6 +143,18 @@ default boolean hasValue() {
 	 */
 	Function<Object, T> getBoundValueMapper();
 
+	/**
+	 * @param strategy
+	 * 		Strategy for values arriving when a subscriber has no demand.
+	 * @param capacity
+	 * 		Maximum number of undelivered values held per subscriber.
+	 *
+	 * @return Publisher of changes to this observable, honoring subscriber demand.
+	 */
+	default ObservablePublisher<T> toPublisher(OverflowStrategy strategy, int capacity) {
+		return new ObservablePublisher<>(this, strategy, capacity);
+	}
+
 	/**
 	 * @param valueMapper
 	 * 		Mapping function to use.
@@ -111,6 +181,39 @@ default <R> ObservableObject<R> mapObject(Function<T, R> valueMapper) {
 		return observable;
 	}
 
+	/**
+	 * @param valueMapper
+	 * 		Mapping function to use, run on the executor.
+	 * @param executor
+	 * 		Executor to map values on.
+	 * @param <R>
+	 * 		Type to map to.
+	 *
+	 * @return Observable object of type, with values mapped from this observable on the executor.
+	 * The value is {@code null} until the current value of this observable has been mapped.
+	 *
+	 * @see #bindTo(Observable, Executor)
+	 */
+	default <R> ObservableObject<R> mapObjectAsync(Function<T, R> valueMapper, Executor executor) {
+		ObservableObject<R> observable = new ObservableObject<>(null, valueMapper);
+		observable.bindTo(this, executor);
+		return observable;
+	}
+
+	/**
+	 * Unlike {@link #mapObject(Function)} to an observable, only the currently selected inner observable is listened to.
+	 *
+	 * @param selector
+	 * 		Function mapping values of this observable to the inner observable to follow.
+	 * @param <R>
+	 * 		Inner observable value type.
+	 *
+	 * @return Observable with the value of the inner observable selected by the current value of this observable.
+	 */
+	default <R> SwitchObservable<T, R> switchMap(Function<? super T, ? extends Observable<? extends R>> selector) {
+		return new SwitchObservable<>(this, selector);
+	}
+
 	/**
 	 * @return Observable {@code String}, with mapped value from this observable.
 	 */
@@ -125,7 +228,17 @@ default ObservableString mapString() {
 	 * @return Observable {@code String}, with mapped value from this observable.
 	 */
 	default ObservableString mapFormattedString(String format) {
-		return mapString(v -> String.format(format, getValue()));
+		return mapFormattedString(FormatTemplate.compile(format));
+	}
+
+	/**
+	 * @param template
+	 * 		Precompiled format template.
+	 *
+	 * @return Observable {@code String}, with mapped value from this observable.
+	 */
+	default ObservableString mapFormattedString(FormatTemplate template) {
+		return mapString(template::format);
 	}
 
 	/**
@@ -15,6 +15,7 @@ public class ObservableBoolean extends AbstractObservable<Boolean> {
 	 */
 	public ObservableBoolean(boolean value) {
 		super(value);
+		setEquivalence(Equivalence.equality());
 	}
 
 	/**
@@ -27,6 +28,7 @@ public ObservableBoolean(boolean value) {
 	 */
 	public <I> ObservableBoolean(boolean value, Function<I, Boolean> boundValueMapper) {
 		super(value, boundValueMapper);
+		setEquivalence(Equivalence.equality());
 	}
 
 	@Override
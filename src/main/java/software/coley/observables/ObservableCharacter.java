@@ -15,6 +15,7 @@ public class ObservableCharacter extends AbstractObservable<Character> {
 	 */
 	public ObservableCharacter(char value) {
 		super(value);
+		setEquivalence(Equivalence.equality());
 	}
 
 	@Override
@@ -32,5 +33,6 @@ protected void validateNewValue(Character newValue) {
 	 */
 	public <I> ObservableCharacter(char value, Function<I, Character> boundValueMapper) {
 		super(value, boundValueMapper);
+		setEquivalence(Equivalence.equality());
 	}
 }
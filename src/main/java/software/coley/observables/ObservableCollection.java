@@ -3,12 +3,18 @@
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
  * Observable for generic collections.
+ * <br>
+ * Each modification copies the current collection, modifies the copy, and sets the copy as the new value.
+ * The copy is only assigned if no other thread changed the value in the meantime, otherwise the modification is
+ * applied again to a copy of the newer value, so concurrent modifications are never lost. Listeners are notified
+ * without holding any lock.
  *
  * @param <T>
  * 		Collection value type.
@@ -18,6 +24,7 @@
  * @author Matt Coley
  */
 public class ObservableCollection<T, C extends Collection<T>> extends ObservableObject<C> implements Collection<T> {
+	static final Predicate<Object> ALWAYS = result -> true;
 	protected final Supplier<C> collectionConstructor;
 
 	/**
@@ -76,22 +83,7 @@ public Iterator<T> iterator() {
 	@Override
 	public boolean removeIf(Predicate<? super T> filter) {
 		Objects.requireNonNull(filter);
-		boolean removed = false;
-		final Iterator<T> each = iterator();
-		while (each.hasNext()) {
-			if (filter.test(each.next())) {
-				each.remove();
-				removed = true;
-			}
-		}
-
-		// Trigger update in listener by resetting value
-		if (removed) {
-			C copy = collectionConstructor.get();
-			copy.addAll(getValue());
-			setValue(copy);
-		}
-		return removed;
+		return modify(copy -> copy.removeIf(filter), removed -> removed);
 	}
 
 	@Override
@@ -111,56 +103,70 @@ public boolean containsAll(Collection<?> c) {
 
 	@Override
 	public boolean add(T t) {
-		C collection = getValue();
-		C newCollection = collectionConstructor.get();
-		newCollection.addAll(collection);
-		boolean result = newCollection.add(t);
-		setValue(newCollection);
-		return result;
+		return modify(copy -> copy.add(t), ALWAYS);
 	}
 
 	@Override
 	public boolean remove(Object o) {
-		C collection = getValue();
-		C newCollection = collectionConstructor.get();
-		newCollection.addAll(collection);
-		boolean result = newCollection.remove(o);
-		setValue(newCollection);
-		return result;
+		return modify(copy -> copy.remove(o), ALWAYS);
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends T> c) {
-		C collection = getValue();
-		C newCollection = collectionConstructor.get();
-		newCollection.addAll(collection);
-		boolean result = newCollection.addAll(c);
-		setValue(newCollection);
-		return result;
+		return modify(copy -> copy.addAll(c), ALWAYS);
 	}
 
 	@Override
 	public boolean removeAll(Collection<?> c) {
-		C collection = getValue();
-		C newCollection = collectionConstructor.get();
-		newCollection.addAll(collection);
-		boolean result = newCollection.removeAll(c);
-		setValue(newCollection);
-		return result;
+		return modify(copy -> copy.removeAll(c), ALWAYS);
 	}
 
 	@Override
 	public boolean retainAll(Collection<?> c) {
-		C collection = getValue();
-		C newCollection = collectionConstructor.get();
-		newCollection.addAll(collection);
-		boolean result = newCollection.retainAll(c);
-		setValue(newCollection);
-		return result;
+		return modify(copy -> copy.retainAll(c), ALWAYS);
 	}
 
 	@Override
 	public void clear() {
 		setValue(collectionConstructor.get());
 	}
+
+	/**
+	 * Applies several modifications to one copy of the collection, and assigns the copy once,
+	 * so listeners are notified of all modifications together.
+	 *
+	 * @param modification
+	 * 		Modification of the copy. Runs again on a fresh copy if another thread changes the value first.
+	 */
+	public void update(Consumer<? super C> modification) {
+		Objects.requireNonNull(modification, "Modification must not be null");
+		modify(copy -> {
+			modification.accept(copy);
+			return null;
+		}, ALWAYS);
+	}
+
+	/**
+	 * Applies a modification to a copy of the current collection, and assigns the copy.
+	 *
+	 * @param modification
+	 * 		Modification of the copy, returning its result.
+	 * 		Runs again on a fresh copy if another thread changes the value first.
+	 * @param changed
+	 * 		Check of the result of the modification, {@code false} when the copy is unchanged and need not be assigned.
+	 * @param <R>
+	 * 		Result type.
+	 *
+	 * @return Result of the modification of the assigned copy.
+	 */
+	protected <R> R modify(Function<? super C, R> modification, Predicate<? super R> changed) {
+		while (true) {
+			C current = peekValue();
+			C copy = collectionConstructor.get();
+			copy.addAll(current);
+			R result = modification.apply(copy);
+			if (!changed.test(result) || compareAndSetValue(current, copy))
+				return result;
+		}
+	}
 }
@@ -0,0 +1,92 @@
+package software.coley.observables;
+
+import java.util.Arrays;
+
+/**
+ * Observable array of {@code double} values.
+ *
+ * @author Matt Coley
+ */
+public class ObservableDoubleArray extends AbstractObservableArray<DoubleArrayListener> {
+	private final double[] values;
+
+	/**
+	 * @param length
+	 * 		Number of cells, initially {@code 0}.
+	 */
+	public ObservableDoubleArray(int length) {
+		this(new double[length]);
+	}
+
+	/**
+	 * @param values
+	 * 		Initial values. The array is copied.
+	 */
+	public ObservableDoubleArray(double[] values) {
+		this.values = values.clone();
+	}
+
+	@Override
+	public int length() {
+		return values.length;
+	}
+
+	/**
+	 * @param index
+	 * 		Index of a cell.
+	 *
+	 * @return Value of the cell.
+	 */
+	public double get(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Assigning the current value of a cell is ignored, and does not notify listeners.
+	 * Values are compared by their bits, so {@code NaN} is the same as {@code NaN}, but {@code -0.0} differs from {@code 0.0}.
+	 *
+	 * @param index
+	 * 		Index of a cell.
+	 * @param value
+	 * 		New value of the cell.
+	 */
+	public void set(int index, double value) {
+		double oldValue = values[index];
+		if (Double.doubleToLongBits(oldValue) == Double.doubleToLongBits(value))
+			return;
+		values[index] = value;
+		if (hasListeners())
+			notifyListeners(index, oldValue, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to assign to every cell.
+	 */
+	public void fill(double value) {
+		for (int i = 0; i < values.length; i++)
+			set(i, value);
+	}
+
+	/**
+	 * @return Copy of the values.
+	 */
+	public double[] toArray() {
+		return values.clone();
+	}
+
+	private void notifyListeners(int index, double oldValue, double newValue) {
+		Object[] listeners = getListeners();
+		for (Object listener : listeners)
+			((DoubleArrayListener) listener).changed(this, index, oldValue, newValue);
+		Object[] indexListeners = getIndexListeners(index);
+		if (indexListeners != null)
+			for (Object listener : indexListeners)
+				((DoubleArrayListener) listener).changed(this, index, oldValue, newValue);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(values);
+	}
+}
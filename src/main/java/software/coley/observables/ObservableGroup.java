@@ -0,0 +1,178 @@
+package software.coley.observables;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Group of observables which can be read together as one consistent snapshot.
+ * <br>
+ * Writers change the members inside {@link #update(Runnable)}, which holds the write lock of the group for the
+ * duration of the action. Readers take no lock: they read all members optimistically, and retry if an update
+ * started or completed during the read. Only after repeated retries does a reader take the read lock, which delays
+ * writers for the duration of that one read. A snapshot never mixes values from before and after an update.
+ * <br>
+ * The updating thread may read the group and nest further updates within its action. Its reads see the values
+ * assigned so far, and nested updates run as part of the outer one.
+ * <br>
+ * Listeners of changed members are notified after the update completes and the new values are readable,
+ * as if the action were run in a {@link Observables#batch(Runnable) batch}.
+ * Members must only be changed within {@link #update(Runnable)}, otherwise snapshots may be torn.
+ *
+ * @author Matt Coley
+ */
+public class ObservableGroup {
+	private static final int OPTIMISTIC_ATTEMPTS = 64;
+	private final StampedLock lock = new StampedLock();
+	private final Observable<?>[] members;
+	// Only ever compared with the current thread, which always sees its own writes
+	private Thread writer;
+
+	/**
+	 * @param members
+	 * 		Observables of the group.
+	 */
+	public ObservableGroup(Observable<?>... members) {
+		for (Observable<?> member : members)
+			Objects.requireNonNull(member, "Member must not be null");
+		this.members = members.clone();
+	}
+
+	/**
+	 * @return Number of members.
+	 */
+	public int size() {
+		return members.length;
+	}
+
+	/**
+	 * Runs an action updating members of the group. Updates of different threads are serialized.
+	 * An update nested in the action of another runs directly, as part of the outer update.
+	 *
+	 * @param action
+	 * 		Action updating members.
+	 */
+	public void update(Runnable action) {
+		Objects.requireNonNull(action, "Action must not be null");
+		if (writer == Thread.currentThread()) {
+			action.run();
+			return;
+		}
+		Observables.batch(() -> {
+			long stamp = lock.writeLock();
+			writer = Thread.currentThread();
+			try {
+				action.run();
+			} finally {
+				writer = null;
+				lock.unlockWrite(stamp);
+			}
+		});
+	}
+
+	/**
+	 * @return Consistent snapshot of the values of all members.
+	 */
+	public Snapshot snapshot() {
+		Object[] values = new Object[members.length];
+		return new Snapshot(values, read(values));
+	}
+
+	/**
+	 * Reads the values of all members without allocating.
+	 *
+	 * @param values
+	 * 		Array to fill with the values of the members, in the order given to the constructor.
+	 *
+	 * @return Stamp of the read. Equal stamps of reads mean no update completed between them.
+	 * {@code 0} when read by the thread running an {@link #update(Runnable) update}, as the update is incomplete.
+	 */
+	public long read(Object[] values) {
+		if (values.length < members.length)
+			throw new IllegalArgumentException("Array too small for " + members.length + " members");
+		Observable<?>[] members = this.members;
+		if (writer == Thread.currentThread()) {
+			// Waiting on the lock would never return, as the lock is held by this thread
+			for (int i = 0; i < members.length; i++)
+				values[i] = members[i].getValue();
+			return 0;
+		}
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) {
+				// Update in progress
+				Thread.yield();
+				continue;
+			}
+			for (int i = 0; i < members.length; i++)
+				values[i] = members[i].getValue();
+			if (lock.validate(stamp))
+				return stamp;
+		}
+		// Heavy write contention, wait for the current update instead of spinning
+		long stamp = lock.readLock();
+		try {
+			for (int i = 0; i < members.length; i++)
+				values[i] = members[i].getValue();
+		} catch (RuntimeException | Error ex) {
+			lock.unlockRead(stamp);
+			throw ex;
+		}
+		// Releases the read lock, yielding the same stamp an optimistic read would have
+		return lock.tryConvertToOptimisticRead(stamp);
+	}
+
+	/**
+	 * Values of the members of a group at one point in time.
+	 */
+	public final class Snapshot {
+		private final Object[] values;
+		private final long stamp;
+
+		private Snapshot(Object[] values, long stamp) {
+			this.values = values;
+			this.stamp = stamp;
+		}
+
+		/**
+		 * @param index
+		 * 		Index of a member, in the order given to the group's constructor.
+		 *
+		 * @return Value of the member.
+		 */
+		public Object get(int index) {
+			return values[index];
+		}
+
+		/**
+		 * @param member
+		 * 		Member of the group.
+		 * @param <V>
+		 * 		Value type.
+		 *
+		 * @return Value of the member.
+		 *
+		 * @throws IllegalArgumentException
+		 * 		When the observable is not a member of the group.
+		 */
+		@SuppressWarnings("unchecked")
+		public <V> V get(Observable<V> member) {
+			for (int i = 0; i < members.length; i++)
+				if (members[i] == member)
+					return (V) values[i];
+			throw new IllegalArgumentException("Observable is not a member of the group");
+		}
+
+		/**
+		 * @return Stamp of the read. Equal stamps of snapshots mean no update completed between them.
+		 */
+		public long getStamp() {
+			return stamp;
+		}
+
+		@Override
+		public String toString() {
+			return Arrays.toString(values);
+		}
+	}
+}
@@ -51,12 +51,7 @@ public <I> ObservableList(L value, Function<I, L> boundValueMapper, Supplier<L>
 
 	@Override
 	public boolean addAll(int index, Collection<? extends T> c) {
-		L list = getValue();
-		L newList = collectionConstructor.get();
-		newList.addAll(list);
-		boolean result = newList.addAll(c);
-		setValue(newList);
-		return result;
+		return modify(copy -> copy.addAll(index, c), ALWAYS);
 	}
 
 	@Override
@@ -66,31 +61,20 @@ public T get(int index) {
 
 	@Override
 	public T set(int index, T element) {
-		L list = getValue();
-		L newList = collectionConstructor.get();
-		newList.addAll(list);
-		T result = newList.set(index, element);
-		setValue(newList);
-		return result;
+		return modify(copy -> copy.set(index, element), ALWAYS);
 	}
 
 	@Override
 	public void add(int index, T element) {
-		L list = getValue();
-		L newList = collectionConstructor.get();
-		newList.addAll(list);
-		newList.add(index, element);
-		setValue(newList);
+		modify(copy -> {
+			copy.add(index, element);
+			return null;
+		}, ALWAYS);
 	}
 
 	@Override
 	public T remove(int index) {
-		L list = getValue();
-		L newList = collectionConstructor.get();
-		newList.addAll(list);
-		T result = newList.remove(index);
-		setValue(newList);
-		return result;
+		return modify(copy -> copy.remove(index), ALWAYS);
 	}
 
 	@Override
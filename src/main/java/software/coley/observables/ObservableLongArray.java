@@ -0,0 +1,91 @@
+package software.coley.observables;
+
+import java.util.Arrays;
+
+/**
+ * Observable array of {@code long} values.
+ *
+ * @author Matt Coley
+ */
+public class ObservableLongArray extends AbstractObservableArray<LongArrayListener> {
+	private final long[] values;
+
+	/**
+	 * @param length
+	 * 		Number of cells, initially {@code 0}.
+	 */
+	public ObservableLongArray(int length) {
+		this(new long[length]);
+	}
+
+	/**
+	 * @param values
+	 * 		Initial values. The array is copied.
+	 */
+	public ObservableLongArray(long[] values) {
+		this.values = values.clone();
+	}
+
+	@Override
+	public int length() {
+		return values.length;
+	}
+
+	/**
+	 * @param index
+	 * 		Index of a cell.
+	 *
+	 * @return Value of the cell.
+	 */
+	public long get(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Assigning the current value of a cell is ignored, and does not notify listeners.
+	 *
+	 * @param index
+	 * 		Index of a cell.
+	 * @param value
+	 * 		New value of the cell.
+	 */
+	public void set(int index, long value) {
+		long oldValue = values[index];
+		if (oldValue == value)
+			return;
+		values[index] = value;
+		if (hasListeners())
+			notifyListeners(index, oldValue, value);
+	}
+
+	/**
+	 * @param value
+	 * 		Value to assign to every cell.
+	 */
+	public void fill(long value) {
+		for (int i = 0; i < values.length; i++)
+			set(i, value);
+	}
+
+	/**
+	 * @return Copy of the values.
+	 */
+	public long[] toArray() {
+		return values.clone();
+	}
+
+	private void notifyListeners(int index, long oldValue, long newValue) {
+		Object[] listeners = getListeners();
+		for (Object listener : listeners)
+			((LongArrayListener) listener).changed(this, index, oldValue, newValue);
+		Object[] indexListeners = getIndexListeners(index);
+		if (indexListeners != null)
+			for (Object listener : indexListeners)
+				((LongArrayListener) listener).changed(this, index, oldValue, newValue);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(values);
+	}
+}
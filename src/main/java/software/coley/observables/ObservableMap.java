@@ -2,17 +2,27 @@
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
  * Observable for generic maps.
+ * <br>
+ * Each modification copies the current map, modifies the copy, and sets the copy as the new value.
+ * The copy is only assigned if no other thread changed the value in the meantime, otherwise the modification is
+ * applied again to a copy of the newer value, so concurrent modifications are never lost. Listeners are notified
+ * without holding any lock. Functions given to compound operations such as {@link #compute(Object, BiFunction)}
+ * may therefore be called more than once.
  *
  * @author Matt Coley
  */
 public class ObservableMap<K, V, M extends Map<K, V>> extends ObservableObject<M> implements Map<K, V> {
-	private final Supplier<M> mapConstructor;
+	protected final Supplier<M> mapConstructor;
 
 	/**
 	 * @param mapConstructor
@@ -74,31 +84,17 @@ public V get(Object key) {
 
 	@Override
 	public V put(K key, V value) {
-		M map = getValue();
-		M newMap = mapConstructor.get();
-		newMap.putAll(map);
-		V replaced = newMap.put(key, value);
-		setValue(newMap);
-		return replaced;
+		return modify(copy -> copy.put(key, value), ObservableCollection.ALWAYS);
 	}
 
 	@Override
 	public V remove(Object key) {
-		M map = getValue();
-		M newMap = mapConstructor.get();
-		newMap.putAll(map);
-		V removed = newMap.remove(key);
-		setValue(newMap);
-		return removed;
+		return modify(copy -> copy.remove(key), ObservableCollection.ALWAYS);
 	}
 
 	@Override
 	public void putAll(Map<? extends K, ? extends V> m) {
-		M map = getValue();
-		M newMap = mapConstructor.get();
-		newMap.putAll(map);
-		newMap.putAll(m);
-		setValue(newMap);
+		update(copy -> copy.putAll(m));
 	}
 
 	@Override
@@ -106,6 +102,111 @@ public void clear() {
 		setValue(mapConstructor.get());
 	}
 
+	@Override
+	public V putIfAbsent(K key, V value) {
+		return modifyEntry(key, copy -> copy.putIfAbsent(key, value));
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		return modifyEntry(key, copy -> copy.remove(key, value));
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		return modifyEntry(key, copy -> copy.replace(key, oldValue, newValue));
+	}
+
+	@Override
+	public V replace(K key, V value) {
+		return modifyEntry(key, copy -> copy.replace(key, value));
+	}
+
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		Objects.requireNonNull(mappingFunction);
+		return modifyEntry(key, copy -> copy.computeIfAbsent(key, mappingFunction));
+	}
+
+	@Override
+	public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		return modifyEntry(key, copy -> copy.computeIfPresent(key, remappingFunction));
+	}
+
+	@Override
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		return modifyEntry(key, copy -> copy.compute(key, remappingFunction));
+	}
+
+	@Override
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		return modifyEntry(key, copy -> copy.merge(key, value, remappingFunction));
+	}
+
+	@Override
+	public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+		Objects.requireNonNull(function);
+		update(copy -> copy.replaceAll(function));
+	}
+
+	/**
+	 * Applies several modifications to one copy of the map, and assigns the copy once,
+	 * so listeners are notified of all modifications together.
+	 *
+	 * @param modification
+	 * 		Modification of the copy. Runs again on a fresh copy if another thread changes the value first.
+	 */
+	public void update(Consumer<? super M> modification) {
+		Objects.requireNonNull(modification, "Modification must not be null");
+		modify(copy -> {
+			modification.accept(copy);
+			return null;
+		}, ObservableCollection.ALWAYS);
+	}
+
+	/**
+	 * Applies a modification to a copy of the current map, and assigns the copy.
+	 *
+	 * @param modification
+	 * 		Modification of the copy, returning its result.
+	 * 		Runs again on a fresh copy if another thread changes the value first.
+	 * @param changed
+	 * 		Check of the result of the modification, {@code false} when the copy is unchanged and need not be assigned.
+	 * @param <R>
+	 * 		Result type.
+	 *
+	 * @return Result of the modification of the assigned copy.
+	 */
+	protected <R> R modify(Function<? super M, R> modification, Predicate<? super R> changed) {
+		while (true) {
+			M current = peekValue();
+			M copy = mapConstructor.get();
+			copy.putAll(current);
+			R result = modification.apply(copy);
+			if (!changed.test(result) || compareAndSetValue(current, copy))
+				return result;
+		}
+	}
+
+	/**
+	 * Applies a modification of a single entry to a copy of the current map,
+	 * and assigns the copy only if the entry was changed.
+	 */
+	private <R> R modifyEntry(Object key, Function<? super M, R> modification) {
+		while (true) {
+			M current = peekValue();
+			M copy = mapConstructor.get();
+			copy.putAll(current);
+			R result = modification.apply(copy);
+			boolean changed = current.containsKey(key) != copy.containsKey(key) || current.get(key) != copy.get(key);
+			if (!changed || compareAndSetValue(current, copy))
+				return result;
+		}
+	}
+
 	@Override
 	public Set<K> keySet() {
 		return getValue().keySet();
@@ -21,6 +21,7 @@
 	 */
 	public ObservableNumber(N value) {
 		super(value);
+		setEquivalence(Equivalence.numeric());
 	}
 
 	/**
@@ -34,6 +35,7 @@ public ObservableNumber(N value) {
 	public <I> ObservableNumber(N value, Function<I, N> boundValueMapper) {
 		super(value, boundValueMapper);
 		Objects.requireNonNull(value, "Numeric values cannot be null");
+		setEquivalence(Equivalence.numeric());
 	}
 
 	@Override
@@ -243,6 +245,13 @@ private ObservableNumber<? extends Number> mapFunction(N value, BiFunction<Numbe
 		return observable;
 	}
 
+	/**
+	 * @return Expression of operations on this observable, which can be mapped to a single observable.
+	 */
+	public NumberExpression<N> expression() {
+		return new NumberExpression<>(this);
+	}
+
 	/**
 	 * @return Observable number, with mapped negated value from this observable.
 	 */
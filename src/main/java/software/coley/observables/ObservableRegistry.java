@@ -0,0 +1,338 @@
+package software.coley.observables;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of observables under hierarchical keys, where levels of a key are separated by {@code '.'}
+ * such as {@code "server.http.port"}.
+ * <ul>
+ * <li>Lookups never block, and can run concurrently with registration and removal.</li>
+ * <li>Keys are kept sorted, so all observables under a common parent key can be queried with
+ * {@link #getChildren(String)} without scanning the whole registry.</li>
+ * <li>{@link #snapshot()} captures the values of all observables, and {@link #restore(Snapshot)} assigns them back.
+ * Values assigned by {@link #setValue(String, Object)} and {@link #update(Runnable)} never interleave with
+ * snapshots and restores, so a snapshot never contains half of the values assigned by such an update.</li>
+ * <li>Listeners and bound observables are notified of updates and restores once they complete, as in a
+ * {@link Observables#batch(Runnable) batch}. Listeners therefore run without holding any lock of the registry,
+ * and may themselves update, snapshot or restore it. Bound and computed observables derived from the assigned
+ * values are only updated then too, so a snapshot taken in between may hold their values from before the update.</li>
+ * <li>Concurrent updates do not contend on a shared lock. Snapshots and restores wait for running updates,
+ * and hold off new ones while they run.</li>
+ * </ul>
+ *
+ * @author Matt Coley
+ */
+public class ObservableRegistry {
+	private static final char SEPARATOR = '.';
+	private final ConcurrentSkipListMap<String, Observable<?>> observables = new ConcurrentSkipListMap<>();
+	// Updates hold the gate shared so that they can run concurrently, while snapshots and restores are exclusive.
+	private final UpdateGate gate = new UpdateGate();
+
+	/**
+	 * @param key
+	 * 		Key to register under.
+	 * @param observable
+	 * 		Observable to register.
+	 * @param <O>
+	 * 		Observable type.
+	 *
+	 * @return The registered observable.
+	 *
+	 * @throws IllegalStateException
+	 * 		When an observable is already registered under the key.
+	 */
+	public <O extends Observable<?>> O register(String key, O observable) {
+		checkKey(key);
+		Objects.requireNonNull(observable, "Observable must not be null");
+		Observable<?> existing = observables.putIfAbsent(key, observable);
+		if (existing != null)
+			throw new IllegalStateException("Observable already registered under key: " + key);
+		return observable;
+	}
+
+	/**
+	 * @param key
+	 * 		Key to look up, or register under.
+	 * @param factory
+	 * 		Factory to create the observable if none is registered under the key.
+	 * @param <O>
+	 * 		Observable type.
+	 *
+	 * @return Observable registered under the key. If multiple threads race to register the key,
+	 * all of them receive the same instance.
+	 */
+	@SuppressWarnings("unchecked")
+	public <O extends Observable<?>> O getOrRegister(String key, Supplier<O> factory) {
+		checkKey(key);
+		Objects.requireNonNull(factory, "Factory must not be null");
+		Observable<?> existing = observables.get(key);
+		if (existing != null)
+			return (O) existing;
+		return (O) observables.computeIfAbsent(key, k -> Objects.requireNonNull(factory.get(), "Factory must not yield null"));
+	}
+
+	/**
+	 * @param key
+	 * 		Key to look up.
+	 * @param <O>
+	 * 		Observable type.
+	 *
+	 * @return Observable registered under the key, or {@code null} if none is registered.
+	 */
+	@SuppressWarnings("unchecked")
+	public <O extends Observable<?>> O get(String key) {
+		return (O) observables.get(key);
+	}
+
+	/**
+	 * @param key
+	 * 		Key to look up.
+	 * @param type
+	 * 		Expected observable type.
+	 * @param <O>
+	 * 		Observable type.
+	 *
+	 * @return Observable registered under the key, or {@code null} if none is registered.
+	 *
+	 * @throws ClassCastException
+	 * 		When the registered observable is not of the expected type.
+	 */
+	public <O extends Observable<?>> O get(String key, Class<O> type) {
+		return type.cast(observables.get(key));
+	}
+
+	/**
+	 * @param key
+	 * 		Key to remove.
+	 *
+	 * @return Observable that was registered under the key, or {@code null} if none was registered.
+	 */
+	public Observable<?> remove(String key) {
+		return observables.remove(key);
+	}
+
+	/**
+	 * @param key
+	 * 		Key to check.
+	 *
+	 * @return {@code true} when an observable is registered under the key.
+	 */
+	public boolean contains(String key) {
+		return observables.containsKey(key);
+	}
+
+	/**
+	 * @return Number of registered observables.
+	 */
+	public int size() {
+		return observables.size();
+	}
+
+	/**
+	 * @return Live sorted view of all registered observables.
+	 */
+	public NavigableMap<String, Observable<?>> getAll() {
+		return Collections.unmodifiableNavigableMap(observables);
+	}
+
+	/**
+	 * @param parentKey
+	 * 		Parent key, such as {@code "server"} for {@code "server.http.port"}.
+	 *
+	 * @return Live sorted view of all observables under the parent key, at any depth.
+	 * The parent key itself is not included.
+	 */
+	public NavigableMap<String, Observable<?>> getChildren(String parentKey) {
+		checkKey(parentKey);
+		// All keys with the prefix "parent." sort between "parent." and "parent/", as '/' follows '.'
+		String from = parentKey + SEPARATOR;
+		String to = parentKey + (char) (SEPARATOR + 1);
+		return Collections.unmodifiableNavigableMap(observables.subMap(from, true, to, false));
+	}
+
+	/**
+	 * Removes the parent key and all keys under it.
+	 *
+	 * @param parentKey
+	 * 		Parent key.
+	 *
+	 * @return Number of removed observables.
+	 */
+	public int removeAll(String parentKey) {
+		checkKey(parentKey);
+		int removed = observables.remove(parentKey) != null ? 1 : 0;
+		for (String key : getChildren(parentKey).keySet())
+			if (observables.remove(key) != null)
+				removed++;
+		return removed;
+	}
+
+	/**
+	 * @param key
+	 * 		Key of the observable to update.
+	 * @param value
+	 * 		New value.
+	 * @param <T>
+	 * 		Value type.
+	 *
+	 * @throws IllegalArgumentException
+	 * 		When no observable is registered under the key.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void setValue(String key, T value) {
+		Observable<T> observable = (Observable<T>) observables.get(key);
+		if (observable == null)
+			throw new IllegalArgumentException("No observable registered under key: " + key);
+		batchShared(() -> observable.setValue(value));
+	}
+
+	/**
+	 * Runs an update of one or more registered observables. The update is not visible to snapshots
+	 * until it completes in its entirety. Updates can run concurrently with each other.
+	 * Listeners of the updated observables are notified once the update completes.
+	 *
+	 * @param action
+	 * 		Action updating observables.
+	 */
+	public void update(Runnable action) {
+		Objects.requireNonNull(action, "Action must not be null");
+		batchShared(action);
+	}
+
+	/**
+	 * @return Values of all registered observables, captured while no {@link #update(Runnable) updates} are running.
+	 *
+	 * @throws IllegalStateException
+	 * 		When called within an update.
+	 */
+	public Snapshot snapshot() {
+		gate.enterExclusive();
+		try {
+			Map<String, Object> values = new LinkedHashMap<>();
+			for (Map.Entry<String, Observable<?>> entry : observables.entrySet())
+				values.put(entry.getKey(), copy(entry.getValue(), entry.getValue().getValue()));
+			return new Snapshot(values);
+		} finally {
+			gate.exitExclusive();
+		}
+	}
+
+	/**
+	 * Assigns the values of a snapshot to the observables currently registered under the same keys.
+	 * Keys no longer registered are ignored. Observables which cannot be assigned directly,
+	 * such as bound or computed observables, are skipped as their values follow from their sources.
+	 *
+	 * @param snapshot
+	 * 		Snapshot to restore.
+	 *
+	 * @throws IllegalStateException
+	 * 		When called within an update.
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void restore(Snapshot snapshot) {
+		Objects.requireNonNull(snapshot, "Snapshot must not be null");
+		Observables.batch(() -> {
+			gate.enterExclusive();
+			try {
+				for (Map.Entry<String, Object> entry : snapshot.values.entrySet()) {
+					Observable observable = observables.get(entry.getKey());
+					if (observable == null)
+						continue;
+					try {
+						observable.setValue(copy(observable, entry.getValue()));
+					} catch (BoundValueSetException ignored) {
+						// Value is derived from another observable
+					}
+				}
+			} finally {
+				gate.exitExclusive();
+			}
+		});
+	}
+
+	/**
+	 * Runs an action holding the gate shared, in a batch so that notifications are sent once it is released.
+	 * Listeners snapshotting or restoring the registry would otherwise wait for their own update to complete.
+	 *
+	 * @param action
+	 * 		Action assigning values.
+	 */
+	private void batchShared(Runnable action) {
+		Observables.batch(() -> {
+			gate.enterShared();
+			try {
+				action.run();
+			} finally {
+				gate.exitShared();
+			}
+		});
+	}
+
+	/**
+	 * Collection observables may modify their current value in place, so their values are copied
+	 * to keep snapshots unaffected by later modifications.
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static Object copy(Observable<?> observable, Object value) {
+		if (value == null)
+			return null;
+		if (observable instanceof ObservableCollection) {
+			Collection copy = (Collection) ((ObservableCollection) observable).collectionConstructor.get();
+			copy.addAll((Collection) value);
+			return copy;
+		} else if (observable instanceof ObservableMap) {
+			Map copy = (Map) ((ObservableMap) observable).mapConstructor.get();
+			copy.putAll((Map) value);
+			return copy;
+		}
+		return value;
+	}
+
+	private static void checkKey(String key) {
+		Objects.requireNonNull(key, "Key must not be null");
+		if (key.isEmpty())
+			throw new IllegalArgumentException("Key must not be empty");
+	}
+
+	/**
+	 * Values of registered observables at a point in time.
+	 */
+	public static class Snapshot {
+		private final Map<String, Object> values;
+
+		private Snapshot(Map<String, Object> values) {
+			this.values = values;
+		}
+
+		/**
+		 * @param key
+		 * 		Key of an observable.
+		 *
+		 * @return Captured value of the observable, or {@code null} if it was not registered.
+		 */
+		public Object get(String key) {
+			return values.get(key);
+		}
+
+		/**
+		 * @return Captured values by key, in key order.
+		 */
+		public Map<String, Object> getValues() {
+			return Collections.unmodifiableMap(values);
+		}
+
+		/**
+		 * @return Number of captured values.
+		 */
+		public int size() {
+			return values.size();
+		}
+	}
+}
@@ -10,12 +10,15 @@
  * @author Matt Coley
  */
 public class ObservableString extends ObservableObject<String> {
+	private static final ThreadLocal<NumberUtil.ParsedNumber> PARSED = ThreadLocal.withInitial(NumberUtil.ParsedNumber::new);
+
 	/**
 	 * @param value
 	 * 		Initial value.
 	 */
 	public ObservableString(String value) {
 		super(value);
+		setEquivalence(Equivalence.equality());
 	}
 
 	/**
@@ -28,15 +31,19 @@ public ObservableString(String value) {
 	 */
 	public <I> ObservableString(String value, Function<I, String> boundValueMapper) {
 		super(value, boundValueMapper);
+		setEquivalence(Equivalence.equality());
 	}
 
 	/**
+	 * Text is parsed without intermediate allocations, and parsed values equal to the current number
+	 * do not propagate further.
+	 *
 	 * @return Number mapped from the current text of this value.
 	 *
-	 * @see NumberUtil#parse(String)
+	 * @see NumberUtil#parse(CharSequence, int, int, NumberUtil.ParsedNumber)
 	 */
 	public ObservableNumber<Number> mapNumber() {
-		Function<String, Number> valueMapper = text -> NumberUtil.parse(text).getValue();
+		Function<String, Number> valueMapper = text -> NumberUtil.parse(text, PARSED.get()).toNumber();
 		ObservableNumber<Number> observable = new ObservableNumber<>(valueMapper.apply(getValue()), valueMapper);
 		observable.bindTo(this);
 		return observable;
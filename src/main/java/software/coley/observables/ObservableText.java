@@ -0,0 +1,196 @@
+package software.coley.observables;
+
+import software.coley.observables.util.Rope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Observable for editable text, backed by a {@link Rope}.
+ * <br>
+ * Unlike {@link ObservableString}, text can be edited in place with {@link #append(CharSequence)},
+ * {@link #insert(int, CharSequence)} and {@link #delete(int, int)} in {@code O(log n)} time.
+ * Each edit yields a new immutable {@link Rope} sharing untouched content with the prior value, so regular
+ * {@link ChangeListener change listeners} still receive old and new values without any copying.
+ * {@link TextEditListener Edit listeners} additionally receive the edited range. Edits within a {@link Batch} are
+ * reported one by one once the batch completes.
+ *
+ * @author Matt Coley
+ */
+public class ObservableText extends AbstractObservable<Rope> {
+	private final List<TextEditListener> editListeners = new ArrayList<>();
+	// Edits not yet reported, each starting from the value the previous one produced
+	private final List<Edit> pendingEdits = new ArrayList<>();
+
+	/**
+	 * New empty text.
+	 */
+	public ObservableText() {
+		this(Rope.empty());
+	}
+
+	/**
+	 * @param value
+	 * 		Initial value.
+	 */
+	public ObservableText(CharSequence value) {
+		super(Rope.of(value));
+	}
+
+	/**
+	 * @param value
+	 * 		Initial value.
+	 * @param boundValueMapper
+	 * 		Mapper used to map values for bindings.
+	 * @param <I>
+	 * 		Input mapping type.
+	 */
+	public <I> ObservableText(CharSequence value, Function<I, Rope> boundValueMapper) {
+		super(Rope.of(value), boundValueMapper);
+	}
+
+	@Override
+	protected void validateNewValue(Rope newValue) {
+		Objects.requireNonNull(newValue, "Text values cannot be null");
+	}
+
+	/**
+	 * @param listener
+	 * 		Listener to add to receive edits.
+	 */
+	public void addEditListener(TextEditListener listener) {
+		Objects.requireNonNull(listener, "Listener must not be null");
+		if (!editListeners.contains(listener))
+			editListeners.add(listener);
+	}
+
+	/**
+	 * @param listener
+	 * 		Listener to remove from receiving edits.
+	 *
+	 * @return {@code true} on removal.
+	 * {@code false} when no listener existed for this observable.
+	 */
+	public boolean removeEditListener(TextEditListener listener) {
+		return editListeners.remove(listener);
+	}
+
+	/**
+	 * @return Length of the current text.
+	 */
+	public int length() {
+		return getValue().length();
+	}
+
+	/**
+	 * Replace the entire text.
+	 *
+	 * @param text
+	 * 		New text.
+	 */
+	public void setText(CharSequence text) {
+		setValue(Rope.of(text));
+	}
+
+	/**
+	 * @param text
+	 * 		Text to append.
+	 */
+	public void append(CharSequence text) {
+		Rope value = getValue();
+		edit(value.append(text), value.length(), 0, text);
+	}
+
+	/**
+	 * @param offset
+	 * 		Position to insert at.
+	 * @param text
+	 * 		Text to insert.
+	 */
+	public void insert(int offset, CharSequence text) {
+		edit(getValue().insert(offset, text), offset, 0, text);
+	}
+
+	/**
+	 * @param start
+	 * 		Start offset, inclusive.
+	 * @param end
+	 * 		End offset, exclusive.
+	 */
+	public void delete(int start, int end) {
+		edit(getValue().delete(start, end), start, end - start, "");
+	}
+
+	/**
+	 * @param start
+	 * 		Start offset, inclusive.
+	 * @param end
+	 * 		End offset, exclusive.
+	 * @param text
+	 * 		Text to insert in place of the removed range.
+	 */
+	public void replace(int start, int end, CharSequence text) {
+		edit(getValue().replace(start, end, text), start, end - start, text);
+	}
+
+	/**
+	 * Assigns the edited value, recording the edited range for edit listeners.
+	 */
+	private void edit(Rope newValue, int offset, int removed, CharSequence inserted) {
+		Rope oldValue = getValue();
+		if (newValue == oldValue)
+			return;
+		if (!editListeners.isEmpty()) {
+			// Edits recorded against a value which was since replaced can no longer be reported as a chain
+			if (!pendingEdits.isEmpty() && pendingEdits.get(pendingEdits.size() - 1).newValue != oldValue)
+				pendingEdits.clear();
+			pendingEdits.add(new Edit(oldValue, newValue, offset, removed, inserted));
+		}
+		setValue(newValue);
+	}
+
+	/**
+	 * Notifies edit listeners. Changes which are not a chain of recorded edits are reported as a replacement
+	 * of the entire text.
+	 */
+	@Override
+	void beforeNotify(Rope oldValue, Rope newValue) {
+		if (editListeners.isEmpty()) {
+			pendingEdits.clear();
+			return;
+		}
+		int count = pendingEdits.size();
+		boolean chained = count > 0 && pendingEdits.get(0).oldValue == oldValue
+				&& pendingEdits.get(count - 1).newValue == newValue;
+		if (chained) {
+			Edit[] edits = pendingEdits.toArray(new Edit[0]);
+			pendingEdits.clear();
+			for (Edit edit : edits)
+				editListeners.forEach(l -> l.edited(this, edit.offset, edit.removed, edit.inserted));
+		} else {
+			pendingEdits.clear();
+			editListeners.forEach(l -> l.edited(this, 0, oldValue.length(), newValue));
+		}
+	}
+
+	/**
+	 * Edit of a range of text, from one value to the next.
+	 */
+	private static final class Edit {
+		private final Rope oldValue;
+		private final Rope newValue;
+		private final int offset;
+		private final int removed;
+		private final CharSequence inserted;
+
+		private Edit(Rope oldValue, Rope newValue, int offset, int removed, CharSequence inserted) {
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+			this.offset = offset;
+			this.removed = removed;
+			this.inserted = inserted;
+		}
+	}
+}
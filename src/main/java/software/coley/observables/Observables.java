@@ -0,0 +1,71 @@
+package software.coley.observables;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Factory methods for observables derived from other observables, and batching of updates.
+ *
+ * @author Matt Coley
+ */
+public final class Observables {
+	private Observables() {
+	}
+
+	/**
+	 * @param supplier
+	 * 		Computation of the value. Observables read during the computation become its dependencies.
+	 * @param <T>
+	 * 		Computed value type.
+	 *
+	 * @return Observable recomputed whenever an observable read by its latest computation changes.
+	 *
+	 * @see ComputedObservable
+	 */
+	public static <T> ComputedObservable<T> computed(Supplier<T> supplier) {
+		return new ComputedObservable<>(supplier);
+	}
+
+	/**
+	 * @param outer
+	 * 		Observable holding the current inner observable.
+	 * @param <T>
+	 * 		Inner observable value type.
+	 *
+	 * @return Observable with the value of the current inner observable.
+	 *
+	 * @see Observable#switchMap(Function)
+	 */
+	public static <T> SwitchObservable<?, T> flatten(Observable<? extends Observable<? extends T>> outer) {
+		return new SwitchObservable<>(outer, inner -> inner);
+	}
+
+	/**
+	 * @param members
+	 * 		Observables to read together.
+	 *
+	 * @return Group allowing consistent snapshots of the members to be read while they are updated.
+	 *
+	 * @see ObservableGroup
+	 */
+	public static ObservableGroup group(Observable<?>... members) {
+		return new ObservableGroup(members);
+	}
+
+	/**
+	 * Runs an action updating observables, deferring notifications until it completes.
+	 * <br>
+	 * Values are assigned immediately, but listeners and bound observables of each changed observable are
+	 * notified only once after the action, with the value before the action and the final value.
+	 * Observables set back to their original value do not notify at all. Batches only apply to updates made on
+	 * the calling thread, and batches started within a batch are part of the outer batch.
+	 *
+	 * @param action
+	 * 		Action updating observables.
+	 */
+	public static void batch(Runnable action) {
+		Objects.requireNonNull(action, "Action must not be null");
+		Batch.run(action);
+	}
+}
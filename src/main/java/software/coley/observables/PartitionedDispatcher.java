@@ -0,0 +1,278 @@
+package software.coley.observables;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Executor for async listeners which runs events of the same observable in order, and events of different
+ * observables in parallel.
+ * <br>
+ * Each observable has a mailbox of pending events, and each mailbox is assigned to one of a fixed number of lanes
+ * by hashing the observable. Each lane has a single thread, which runs the mailboxes assigned to it. A lane with no
+ * work of its own steals whole mailboxes from busy lanes. Since a mailbox is only ever run by one thread at a time,
+ * events of an observable are never reordered, even when its mailbox moves between lanes.
+ * <br>
+ * Pass the dispatcher to {@link AbstractObservable#addAsyncChangeListener(ChangeListener, Executor)} to have the
+ * events of that observable dispatched through its mailbox. Tasks passed to {@link #execute(Runnable)} directly
+ * share a single mailbox, and so run in submission order.
+ *
+ * @author Matt Coley
+ */
+public class PartitionedDispatcher implements Executor, AutoCloseable {
+	/**
+	 * Maximum number of events run from one mailbox before giving other mailboxes of the lane a turn.
+	 */
+	private static final int MAILBOX_BATCH = 64;
+	private final Map<Object, Mailbox> mailboxes = Collections.synchronizedMap(new WeakHashMap<>());
+	private final Mailbox defaultMailbox;
+	private final Lane[] lanes;
+	private final LongAdder steals = new LongAdder();
+	private final AtomicInteger pending = new AtomicInteger();
+	private volatile boolean shutdown;
+
+	/**
+	 * New dispatcher with a lane per available processor.
+	 */
+	public PartitionedDispatcher() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param laneCount
+	 * 		Number of lanes, each with its own thread.
+	 */
+	public PartitionedDispatcher(int laneCount) {
+		if (laneCount <= 0)
+			throw new IllegalArgumentException("Lane count must be positive: " + laneCount);
+		lanes = new Lane[laneCount];
+		for (int i = 0; i < laneCount; i++)
+			lanes[i] = new Lane(i);
+		defaultMailbox = new Mailbox(lanes[0]);
+		for (Lane lane : lanes)
+			lane.thread.start();
+	}
+
+	/**
+	 * @param key
+	 * 		Key of the events, typically an observable.
+	 *
+	 * @return Executor running all tasks of the key in submission order.
+	 */
+	public Executor executorFor(Object key) {
+		Objects.requireNonNull(key, "Key must not be null");
+		return mailboxes.computeIfAbsent(key, k -> new Mailbox(lanes[laneIndex(k)]));
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		defaultMailbox.execute(command);
+	}
+
+	/**
+	 * @return Number of lanes.
+	 */
+	public int getLaneCount() {
+		return lanes.length;
+	}
+
+	/**
+	 * @return Number of times an idle lane took a mailbox from another lane.
+	 */
+	public long getStealCount() {
+		return steals.sum();
+	}
+
+	/**
+	 * Stops accepting new events. Events already submitted are still run.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		for (Lane lane : lanes)
+			LockSupport.unpark(lane.thread);
+	}
+
+	/**
+	 * @param timeout
+	 * 		Maximum time to wait.
+	 * @param unit
+	 * 		Time unit of the timeout.
+	 *
+	 * @return {@code true} when all lanes have stopped, {@code false} if the timeout elapsed first.
+	 *
+	 * @throws InterruptedException
+	 * 		When interrupted while waiting.
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (Lane lane : lanes) {
+			long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remaining <= 0 && lane.thread.isAlive())
+				return false;
+			lane.thread.join(Math.max(1, remaining));
+			if (lane.thread.isAlive())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * {@link #shutdown() Shuts down} the dispatcher, and waits for submitted events to be run.
+	 */
+	@Override
+	public void close() {
+		shutdown();
+		try {
+			awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private int laneIndex(Object key) {
+		int hash = System.identityHashCode(key);
+		hash ^= hash >>> 16;
+		return (hash & Integer.MAX_VALUE) % lanes.length;
+	}
+
+	/**
+	 * @param lane
+	 * 		Lane a mailbox was scheduled on.
+	 */
+	private void signal(Lane lane) {
+		LockSupport.unpark(lane.thread);
+		// If the lane is busy, wake an idle lane to steal work from it
+		if (!lane.idle) {
+			for (Lane other : lanes) {
+				if (other.idle) {
+					LockSupport.unpark(other.thread);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pending events of a single key, run in order by at most one lane at a time.
+	 */
+	private class Mailbox implements Executor, Runnable {
+		private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private final Lane home;
+
+		private Mailbox(Lane home) {
+			this.home = home;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			Objects.requireNonNull(command, "Command must not be null");
+			// Count before checking for shutdown, so lanes do not stop while this event is being added
+			pending.incrementAndGet();
+			if (shutdown) {
+				pending.decrementAndGet();
+				throw new RejectedExecutionException("Dispatcher has been shut down");
+			}
+			events.add(command);
+			schedule();
+		}
+
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				home.mailboxes.addLast(this);
+				signal(home);
+			}
+		}
+
+		@Override
+		public void run() {
+			for (int i = 0; i < MAILBOX_BATCH; i++) {
+				Runnable event = events.poll();
+				if (event == null)
+					break;
+				try {
+					event.run();
+				} catch (Throwable t) {
+					Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+				} finally {
+					if (pending.decrementAndGet() == 0 && shutdown)
+						for (Lane lane : lanes)
+							LockSupport.unpark(lane.thread);
+				}
+			}
+			scheduled.set(false);
+			// Events added while running, or beyond the batch limit, need another turn
+			if (!events.isEmpty())
+				schedule();
+		}
+	}
+
+	/**
+	 * Single thread running scheduled mailboxes.
+	 */
+	private class Lane implements Runnable {
+		private final ConcurrentLinkedDeque<Mailbox> mailboxes = new ConcurrentLinkedDeque<>();
+		private final Thread thread;
+		private volatile boolean idle;
+
+		private Lane(int index) {
+			thread = new Thread(this, "observable-dispatch-" + index);
+			thread.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Mailbox mailbox = mailboxes.pollFirst();
+				if (mailbox == null)
+					mailbox = steal();
+				if (mailbox != null) {
+					mailbox.run();
+					continue;
+				}
+				if (shutdown && pending.get() == 0)
+					return;
+				idle = true;
+				// Check again after flagging as idle, so that work scheduled concurrently is not missed
+				if (mailboxes.isEmpty() && !hasStealableWork() && !(shutdown && pending.get() == 0))
+					LockSupport.park(this);
+				idle = false;
+			}
+		}
+
+		/**
+		 * @return Mailbox taken from the back of another lane's queue, or {@code null} when no lane has queued work.
+		 */
+		private Mailbox steal() {
+			for (Lane other : lanes) {
+				if (other == this)
+					continue;
+				Mailbox mailbox = other.mailboxes.pollLast();
+				if (mailbox != null) {
+					steals.increment();
+					return mailbox;
+				}
+			}
+			return null;
+		}
+
+		private boolean hasStealableWork() {
+			for (Lane other : lanes)
+				if (other != this && !other.mailboxes.isEmpty())
+					return true;
+			return false;
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package software.coley.observables;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Iterative propagation of values to {@link Observable#getBoundReceivers() bound receivers}.
+ * <br>
+ * Pending receivers are held in an explicit stack rather than on the call stack, so chains of bindings of any
+ * depth can be propagated. Receivers are visited in the same depth-first order as a recursive walk would visit
+ * them. Each thread has its own stack, reused across propagations. Propagations started by listeners while
+ * another propagation is active on the same thread use the portion of the stack above the active one.
+ * <br>
+ * Observables with a {@link AbstractObservable#getPropagationPool() propagation pool} and enough receivers have their
+ * receivers partitioned across the pool instead of pushed. Each pool thread walks the subtrees of its receivers with
+ * its own stack, and the propagating thread waits for all of them before continuing.
+ *
+ * @author Matt Coley
+ */
+final class Propagation {
+	private static final ThreadLocal<Propagation> CURRENT = ThreadLocal.withInitial(Propagation::new);
+	private static final int INITIAL_CAPACITY = 16;
+	@SuppressWarnings("rawtypes")
+	private Observable[] receivers = new Observable[INITIAL_CAPACITY];
+	private Object[] values = new Object[INITIAL_CAPACITY];
+	private int[] depths = new int[INITIAL_CAPACITY];
+	// Each pending receiver records the nearest binding in its ancestry with a watchdog. If the receiver fails,
+	// the failure is reported as a failure of that binding, and the rest of the bound subtree is skipped.
+	private ListenerWatchdog[] guardWatchdogs = new ListenerWatchdog[INITIAL_CAPACITY];
+	@SuppressWarnings("rawtypes")
+	private Observable<?>[] guardSources = new Observable[INITIAL_CAPACITY];
+	@SuppressWarnings("rawtypes")
+	private Observable<?>[] guardTargets = new Observable[INITIAL_CAPACITY];
+	private int[] guardIndices = new int[INITIAL_CAPACITY];
+	private int size;
+
+	private Propagation() {
+	}
+
+	/**
+	 * @param source
+	 * 		Observable that was updated.
+	 * @param value
+	 * 		New value of the source.
+	 * @param depth
+	 * 		Number of bindings between the observable that was explicitly set and the receivers of the source.
+	 */
+	static void propagate(AbstractObservable<?> source, Object value, int depth) {
+		CURRENT.get().run(source, value, depth);
+	}
+
+	private void run(AbstractObservable<?> source, Object value, int depth) {
+		int base = size;
+		try {
+			push(source, value, depth, null, null, null, base);
+			drain(base);
+		} finally {
+			release(base);
+		}
+	}
+
+	/**
+	 * Propagates to a single receiver and its subtree, as part of a parallel fan-out.
+	 * Failures reported to a watchdog only skip the rest of the subtree of the receiver.
+	 */
+	@SuppressWarnings("rawtypes")
+	private void runReceiver(Observable receiver, AbstractObservable<?> parent, Object value, int depth,
+							 ListenerWatchdog watchdog, ListenerWatchdog guardWatchdog,
+							 Observable<?> guardSource, Observable<?> guardTarget) {
+		int base = size;
+		try {
+			ensureCapacity(size + 1);
+			set(size, receiver, parent, value, depth, watchdog, guardWatchdog, guardSource, guardTarget, base);
+			size++;
+			drain(base);
+		} finally {
+			release(base);
+		}
+	}
+
+	/**
+	 * Visits pending receivers until the stack is back down to the given base.
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private void drain(int base) {
+		while (size > base) {
+			int index = --size;
+			Observable receiver = receivers[index];
+			Object input = values[index];
+			int receiverDepth = depths[index];
+			ListenerWatchdog guardWatchdog = guardWatchdogs[index];
+			Observable<?> guardSource = guardSources[index];
+			Observable<?> guardTarget = guardTargets[index];
+			int guardIndex = guardIndices[index];
+			clear(index, index + 1);
+			try {
+				if (!(receiver instanceof AbstractObservable))
+					throw new UnsupportedOperationException("Receiver does not implement internal set/map operations");
+				AbstractObservable ao = (AbstractObservable) receiver;
+				Object mapped = ao.map(input);
+				if (ao.assign(mapped, receiverDepth) && ao.boundReceivers() != null)
+					push(ao, mapped, receiverDepth + 1, guardWatchdog, guardSource, guardTarget, guardIndex);
+			} catch (Throwable t) {
+				if (guardWatchdog == null)
+					throw t;
+				int top = size;
+				size = guardIndex;
+				clear(guardIndex, top);
+				guardWatchdog.reportError(guardSource, guardTarget, t);
+			}
+		}
+	}
+
+	/**
+	 * Releases the portion of the stack above the given base, left behind when a propagation fails.
+	 */
+	private void release(int base) {
+		if (size > base) {
+			clear(base, size);
+			size = base;
+		}
+	}
+
+	/**
+	 * Pushes the receivers of an observable, in reverse so that they are visited in iteration order.
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private void push(AbstractObservable<?> parent, Object value, int depth,
+					  ListenerWatchdog guardWatchdog, Observable<?> guardSource, Observable<?> guardTarget, int guardIndex) {
+		Object bound = parent.boundReceivers();
+		if (bound == null)
+			return;
+		ListenerWatchdog watchdog = parent.getListenerWatchdog();
+		if (bound instanceof Observable) {
+			ensureCapacity(size + 1);
+			set(size, (Observable) bound, parent, value, depth, watchdog, guardWatchdog, guardSource, guardTarget, guardIndex);
+			size++;
+			return;
+		}
+		Set<Observable> set = (Set<Observable>) bound;
+		int count = set.size();
+		ForkJoinPool pool = parent.getPropagationPool();
+		if (pool != null && count >= parent.getParallelThreshold()) {
+			// Several leaves per thread, so threads finishing early can steal from slower ones
+			int leafSize = Math.max(1, count / (pool.getParallelism() * 4));
+			FanOut fanOut = new FanOut(set.toArray(new Observable[0]), parent, value, depth,
+					watchdog, guardWatchdog, guardSource, guardTarget, 0, count, leafSize);
+			if (ForkJoinTask.getPool() == pool)
+				fanOut.invoke();
+			else
+				pool.invoke(fanOut);
+			return;
+		}
+		ensureCapacity(size + count);
+		int index = size + count;
+		for (Observable receiver : set)
+			set(--index, receiver, parent, value, depth, watchdog, guardWatchdog, guardSource, guardTarget, guardIndex);
+		size += count;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private void set(int i, Observable receiver, AbstractObservable<?> parent, Object value, int depth, ListenerWatchdog watchdog,
+					 ListenerWatchdog guardWatchdog, Observable<?> guardSource, Observable<?> guardTarget, int guardIndex) {
+		receivers[i] = receiver;
+		values[i] = value;
+		depths[i] = depth;
+		if (watchdog != null && receiver instanceof AbstractObservable) {
+			guardWatchdogs[i] = watchdog;
+			guardSources[i] = parent;
+			guardTargets[i] = receiver;
+			guardIndices[i] = i;
+		} else {
+			guardWatchdogs[i] = guardWatchdog;
+			guardSources[i] = guardSource;
+			guardTargets[i] = guardTarget;
+			guardIndices[i] = guardIndex;
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > receivers.length) {
+			int newCapacity = Math.max(capacity, receivers.length * 2);
+			receivers = Arrays.copyOf(receivers, newCapacity);
+			values = Arrays.copyOf(values, newCapacity);
+			depths = Arrays.copyOf(depths, newCapacity);
+			guardWatchdogs = Arrays.copyOf(guardWatchdogs, newCapacity);
+			guardSources = Arrays.copyOf(guardSources, newCapacity);
+			guardTargets = Arrays.copyOf(guardTargets, newCapacity);
+			guardIndices = Arrays.copyOf(guardIndices, newCapacity);
+		}
+	}
+
+	/**
+	 * Releases references held by the given range of the stack.
+	 */
+	private void clear(int from, int to) {
+		Arrays.fill(receivers, from, to, null);
+		Arrays.fill(values, from, to, null);
+		Arrays.fill(guardWatchdogs, from, to, null);
+		Arrays.fill(guardSources, from, to, null);
+		Arrays.fill(guardTargets, from, to, null);
+	}
+
+	/**
+	 * Updates a range of the receivers of one observable, splitting the range across the pool.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final class FanOut extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Observable[] receivers;
+		private final AbstractObservable<?> parent;
+		private final Object value;
+		private final int depth;
+		private final ListenerWatchdog watchdog;
+		private final ListenerWatchdog guardWatchdog;
+		private final Observable<?> guardSource;
+		private final Observable<?> guardTarget;
+		private final int from;
+		private final int to;
+		private final int leafSize;
+
+		private FanOut(Observable[] receivers, AbstractObservable<?> parent, Object value, int depth,
+					   ListenerWatchdog watchdog, ListenerWatchdog guardWatchdog,
+					   Observable<?> guardSource, Observable<?> guardTarget, int from, int to, int leafSize) {
+			this.receivers = receivers;
+			this.parent = parent;
+			this.value = value;
+			this.depth = depth;
+			this.watchdog = watchdog;
+			this.guardWatchdog = guardWatchdog;
+			this.guardSource = guardSource;
+			this.guardTarget = guardTarget;
+			this.from = from;
+			this.to = to;
+			this.leafSize = leafSize;
+		}
+
+		@Override
+		protected void compute() {
+			// Every receiver is updated even when others fail, and the first failure is rethrown once all are done
+			Throwable failure = null;
+			if (to - from > leafSize) {
+				int mid = (from + to) >>> 1;
+				FanOut right = split(mid, to);
+				right.fork();
+				try {
+					split(from, mid).compute();
+				} catch (Throwable t) {
+					failure = t;
+				}
+				try {
+					right.join();
+				} catch (Throwable t) {
+					failure = merge(failure, t);
+				}
+			} else {
+				Propagation propagation = CURRENT.get();
+				for (int i = from; i < to; i++) {
+					try {
+						propagation.runReceiver(receivers[i], parent, value, depth,
+								watchdog, guardWatchdog, guardSource, guardTarget);
+					} catch (Throwable t) {
+						failure = merge(failure, t);
+					}
+				}
+			}
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+			if (failure instanceof Error)
+				throw (Error) failure;
+			if (failure != null)
+				throw new UndeclaredThrowableException(failure);
+		}
+
+		private static Throwable merge(Throwable failure, Throwable t) {
+			if (failure == null)
+				return t;
+			failure.addSuppressed(t);
+			return failure;
+		}
+
+		private FanOut split(int from, int to) {
+			return new FanOut(receivers, parent, value, depth, watchdog, guardWatchdog, guardSource, guardTarget,
+					from, to, leafSize);
+		}
+	}
+}
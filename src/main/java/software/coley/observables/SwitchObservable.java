@@ -0,0 +1,111 @@
+package software.coley.observables;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Observable following the value of whichever inner observable is currently selected by an outer observable.
+ * <br>
+ * Only the selected inner observable is listened to. When the selection changes, the listener is removed from
+ * the previous inner observable, so previously selected sources do not keep propagating updates to this observable.
+ *
+ * @param <S>
+ * 		Outer observable value type.
+ * @param <T>
+ * 		Inner observable value type.
+ *
+ * @author Matt Coley
+ * @see Observable#switchMap(Function)
+ * @see Observables#flatten(Observable)
+ */
+public class SwitchObservable<S, T> extends AbstractObservable<T> {
+	private final ChangeListener<S> outerListener = (observable, oldValue, newValue) -> select(newValue);
+	private final ChangeListener<T> innerListener = this::innerChanged;
+	private final Observable<S> outer;
+	private final Function<? super S, ? extends Observable<? extends T>> selector;
+	private Observable<? extends T> current;
+	private boolean disposed;
+
+	/**
+	 * @param outer
+	 * 		Observable holding the current selection.
+	 * @param selector
+	 * 		Function mapping the selection to the inner observable to follow.
+	 * 		May return {@code null}, in which case the value becomes {@code null}.
+	 */
+	public SwitchObservable(Observable<S> outer, Function<? super S, ? extends Observable<? extends T>> selector) {
+		super(null);
+		this.outer = Objects.requireNonNull(outer, "Outer observable must not be null");
+		this.selector = Objects.requireNonNull(selector, "Selector must not be null");
+		outer.addChangeListener(outerListener);
+		select(outer.getValue());
+	}
+
+	@Override
+	protected void validateNewValue(T newValue) {
+		throw new BoundValueSetException(this);
+	}
+
+	@Override
+	public <O extends Observable<?>> O bindTo(Observable<?> observable) {
+		throw new UnsupportedOperationException("Switching observables cannot be bound to other observables");
+	}
+
+	@Override
+	public <O extends Observable<?>> O bindTo(Observable<?> observable, Executor executor) {
+		throw new UnsupportedOperationException("Switching observables cannot be bound to other observables");
+	}
+
+	/**
+	 * @return Currently followed inner observable, or {@code null} when nothing is selected.
+	 */
+	public Observable<? extends T> getCurrent() {
+		return current;
+	}
+
+	/**
+	 * Stops listening to the outer and current inner observable. The value will no longer be updated.
+	 */
+	public void dispose() {
+		disposed = true;
+		outer.removeChangeListener(outerListener);
+		detach();
+		current = null;
+	}
+
+	/**
+	 * @param selection
+	 * 		New outer value.
+	 */
+	private void select(S selection) {
+		if (disposed)
+			return;
+		Observable<? extends T> next = selector.apply(selection);
+		if (next != current) {
+			detach();
+			current = next;
+			if (next != null)
+				attach(next);
+		}
+		set(next == null ? null : next.getValue(), 0);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void attach(Observable<? extends T> inner) {
+		((Observable) inner).addChangeListener(innerListener);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void detach() {
+		Observable<? extends T> inner = current;
+		if (inner != null)
+			((Observable) inner).removeChangeListener(innerListener);
+	}
+
+	private void innerChanged(AbstractObservable<? extends T> observable, T oldValue, T newValue) {
+		// Ignore late notifications from an inner observable that has since been switched away from
+		if (observable == current)
+			set(newValue, 0);
+	}
+}
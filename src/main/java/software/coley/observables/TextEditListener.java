@@ -0,0 +1,24 @@
+package software.coley.observables;
+
+/**
+ * Listener notified of edits to an {@link ObservableText}.
+ *
+ * @author Matt Coley
+ */
+@FunctionalInterface
+public interface TextEditListener {
+	/**
+	 * Called when a range of text is replaced. Insertions have a removed length of {@code 0},
+	 * and deletions have empty inserted text.
+	 *
+	 * @param text
+	 * 		The {@code ObservableText} edited.
+	 * @param offset
+	 * 		Start offset of the edit.
+	 * @param removedLength
+	 * 		Number of characters removed at the offset.
+	 * @param insertedText
+	 * 		Text inserted at the offset.
+	 */
+	void edited(ObservableText text, int offset, int removedLength, CharSequence insertedText);
+}
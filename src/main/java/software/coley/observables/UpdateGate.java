@@ -0,0 +1,97 @@
+package software.coley.observables;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock letting any number of shared holders run concurrently, while exclusive holders run alone.
+ * <br>
+ * Unlike the read lock of a {@link java.util.concurrent.locks.ReentrantReadWriteLock}, shared holders do not update
+ * one common word. Each thread counts its shared holds in a stripe of its own, padded to a cache line, so threads
+ * entering and leaving concurrently do not contend. Exclusive holders raise a flag and wait for all stripes to drain,
+ * which makes them comparatively expensive.
+ *
+ * @author Matt Coley
+ * @see ObservableRegistry
+ */
+final class UpdateGate {
+	// Longs per cache line, so that each stripe sits on its own line
+	private static final int PADDING = 8;
+	private final ReentrantLock exclusiveLock = new ReentrantLock();
+	private final AtomicLongArray stripes;
+	private final int mask;
+	// Shared hold depth of the thread, and the stripe it counts its holds in
+	private final ThreadLocal<int[]> local;
+	private volatile boolean exclusive;
+
+	UpdateGate() {
+		int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+		stripes = new AtomicLongArray(count * PADDING);
+		mask = count - 1;
+		int[] next = new int[1];
+		local = ThreadLocal.withInitial(() -> {
+			synchronized (next) {
+				return new int[]{0, (next[0]++ & mask) * PADDING};
+			}
+		});
+	}
+
+	/**
+	 * Takes a shared hold, waiting while an exclusive holder runs. Holds are reentrant.
+	 */
+	void enterShared() {
+		int[] state = local.get();
+		if (state[0]++ > 0)
+			return;
+		int stripe = state[1];
+		while (true) {
+			stripes.incrementAndGet(stripe);
+			// The exclusive holder itself may take shared holds, having nothing to wait for
+			if (!exclusive || exclusiveLock.isHeldByCurrentThread())
+				return;
+			// Back off, so the exclusive holder sees the stripes drain
+			stripes.decrementAndGet(stripe);
+			exclusiveLock.lock();
+			exclusiveLock.unlock();
+		}
+	}
+
+	/**
+	 * Releases a shared hold.
+	 */
+	void exitShared() {
+		int[] state = local.get();
+		if (--state[0] == 0)
+			stripes.decrementAndGet(state[1]);
+	}
+
+	/**
+	 * Takes the exclusive hold, waiting for all shared holds to be released.
+	 *
+	 * @throws IllegalStateException
+	 * 		When the current thread has a shared hold, which it would wait for forever.
+	 */
+	void enterExclusive() {
+		if (local.get()[0] > 0)
+			throw new IllegalStateException("Cannot take exclusive hold within a shared hold");
+		exclusiveLock.lock();
+		exclusive = true;
+		while (hasSharedHolds())
+			Thread.yield();
+	}
+
+	/**
+	 * Releases the exclusive hold.
+	 */
+	void exitExclusive() {
+		exclusive = false;
+		exclusiveLock.unlock();
+	}
+
+	private boolean hasSharedHolds() {
+		for (int i = 0; i < stripes.length(); i += PADDING)
+			if (stripes.get(i) != 0)
+				return true;
+		return false;
+	}
+}
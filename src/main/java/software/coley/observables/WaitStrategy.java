@@ -0,0 +1,154 @@
+package software.coley.observables;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategy for threads of an {@link EventRing} waiting for events to be published, or for slots to be freed.
+ * Strategies trade CPU usage while idle for latency once work arrives.
+ *
+ * @author Matt Coley
+ */
+public interface WaitStrategy {
+	/**
+	 * Called repeatedly while a consumer has no events to process.
+	 *
+	 * @param attempt
+	 * 		Number of consecutive calls so far while waiting, starting at {@code 0}.
+	 */
+	void idle(int attempt);
+
+	/**
+	 * Called repeatedly while a publisher waits for consumers to free a slot.
+	 * Waits like {@link #idle(int)} by default.
+	 *
+	 * @param attempt
+	 * 		Number of consecutive calls so far while waiting, starting at {@code 0}.
+	 */
+	default void idleFull(int attempt) {
+		idle(attempt);
+	}
+
+	/**
+	 * Called after events are published, to wake consumers which may be blocked in {@link #idle(int)}.
+	 */
+	default void signal() {
+		// no-op by default
+	}
+
+	/**
+	 * Called after consumers free slots, to wake publishers which may be blocked in {@link #idleFull(int)}.
+	 */
+	default void signalFreed() {
+		// no-op by default
+	}
+
+	/**
+	 * @return Strategy which never gives up the CPU. Lowest latency, but occupies a core per waiting thread.
+	 */
+	static WaitStrategy busySpin() {
+		return attempt -> {
+		};
+	}
+
+	/**
+	 * @return Strategy which spins briefly, then yields to other threads.
+	 */
+	static WaitStrategy yielding() {
+		return attempt -> {
+			if (attempt > 100)
+				Thread.yield();
+		};
+	}
+
+	/**
+	 * @param maxSleepNanos
+	 * 		Longest sleep between checks.
+	 *
+	 * @return Strategy which spins, then yields, then sleeps with increasing durations up to the given maximum.
+	 */
+	static WaitStrategy sleeping(long maxSleepNanos) {
+		if (maxSleepNanos <= 0)
+			throw new IllegalArgumentException("Sleep duration must be positive: " + maxSleepNanos);
+		return attempt -> {
+			if (attempt < 100)
+				return;
+			if (attempt < 200)
+				Thread.yield();
+			else
+				LockSupport.parkNanos(Math.min(maxSleepNanos, 1L << Math.min(attempt - 200, 30)));
+		};
+	}
+
+	/**
+	 * @return Strategy which blocks until signalled. Least CPU usage while idle, at the cost of signalling
+	 * on every publish and higher wake-up latency. Only suitable where every change is signalled.
+	 */
+	static WaitStrategy blocking() {
+		return new BlockingWaitStrategy();
+	}
+
+	/**
+	 * Strategy blocking on monitors, notified by publishers and consumers.
+	 * Idle consumers and idle publishers wait on separate monitors, so that each signal only wakes threads
+	 * able to act on it.
+	 * <br>
+	 * The first call of a wait returns right away, recording the signals so far. The caller then checks its
+	 * condition once more, and later calls block until a signal arrives after that recording. A signal sent between
+	 * the caller's check and the wait is therefore never missed, and waits need no timeout.
+	 */
+	final class BlockingWaitStrategy implements WaitStrategy {
+		private final Condition published = new Condition();
+		private final Condition freed = new Condition();
+
+		private BlockingWaitStrategy() {
+		}
+
+		@Override
+		public void idle(int attempt) {
+			published.await(attempt);
+		}
+
+		@Override
+		public void idleFull(int attempt) {
+			freed.await(attempt);
+		}
+
+		@Override
+		public void signal() {
+			published.signal();
+		}
+
+		@Override
+		public void signalFreed() {
+			freed.signal();
+		}
+
+		/**
+		 * Monitor threads wait on until signalled.
+		 */
+		private static final class Condition {
+			// Number of signals each thread saw when it last recorded them
+			private final ThreadLocal<long[]> seen = ThreadLocal.withInitial(() -> new long[1]);
+			private long signals;
+
+			private synchronized void await(int attempt) {
+				long[] seen = this.seen.get();
+				if (attempt > 0) {
+					try {
+						while (signals == seen[0])
+							wait();
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				// Signals from here on are not yet acted on by the caller's next check
+				seen[0] = signals;
+			}
+
+			private synchronized void signal() {
+				signals++;
+				notifyAll();
+			}
+		}
+	}
+}
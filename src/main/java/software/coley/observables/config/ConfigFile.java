@@ -0,0 +1,440 @@
+package software.coley.observables.config;
+
+import software.coley.observables.Observable;
+import software.coley.observables.ObservableBoolean;
+import software.coley.observables.ObservableInteger;
+import software.coley.observables.ObservableMap;
+import software.coley.observables.ObservableRegistry;
+import software.coley.observables.ObservableString;
+import software.coley.observables.Observables;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Properties file exposed as observables in an {@link ObservableRegistry}, keyed by property name.
+ * <br>
+ * Properties can be declared with a type and default value via {@link #bool(String, boolean)},
+ * {@link #integer(String, int)}, {@link #string(String, String)} and {@link #map(String)}. Undeclared properties
+ * are registered as {@link ObservableString} values when first loaded, so properties must be declared before
+ * the first load.
+ * <br>
+ * {@link #reload()} only parses the lines of the file which are not identical to a line of the previous load,
+ * compares the result to the previously loaded text of each property, and only converts and assigns the
+ * properties that changed. All assignments of a reload are made in a single
+ * {@link Observables#batch(Runnable) batch}, so listeners observe the reload as a whole. {@link #watch()} reloads
+ * automatically when the file is modified.
+ *
+ * @author Matt Coley
+ */
+public class ConfigFile implements AutoCloseable {
+	private static final String[] NO_ENTRY = new String[0];
+	private final Map<String, Property<?>> declared = new HashMap<>();
+	private final Map<String, MapProperty> declaredMaps = new HashMap<>();
+	private final Path path;
+	private final ObservableRegistry registry;
+	private Map<String, String> loaded = Collections.emptyMap();
+	// Key and value of each logical line of the last load, or NO_ENTRY for blank and comment lines
+	private Map<String, String[]> parsedLines = Collections.emptyMap();
+	private Consumer<Exception> errorHandler = error -> {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+	};
+	private WatchService watchService;
+	private Thread watchThread;
+
+	/**
+	 * @param path
+	 * 		Path to properties file.
+	 */
+	public ConfigFile(Path path) {
+		this(path, new ObservableRegistry());
+	}
+
+	/**
+	 * @param path
+	 * 		Path to properties file.
+	 * @param registry
+	 * 		Registry to register property observables in.
+	 */
+	public ConfigFile(Path path, ObservableRegistry registry) {
+		this.path = Objects.requireNonNull(path, "Path must not be null").toAbsolutePath();
+		this.registry = Objects.requireNonNull(registry, "Registry must not be null");
+	}
+
+	/**
+	 * @param handler
+	 * 		Handler for failures to reload the file while {@link #watch() watching}, and for property values
+	 * 		which cannot be converted to their declared type. By default, failures are passed to the current
+	 * 		thread's uncaught exception handler.
+	 *
+	 * @return Self.
+	 */
+	public ConfigFile withErrorHandler(Consumer<Exception> handler) {
+		this.errorHandler = Objects.requireNonNull(handler, "Handler must not be null");
+		return this;
+	}
+
+	/**
+	 * @return Registry holding the property observables.
+	 */
+	public ObservableRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * @param key
+	 * 		Property name.
+	 * @param defaultValue
+	 * 		Value when the property is absent.
+	 *
+	 * @return Observable of the property.
+	 */
+	public synchronized ObservableBoolean bool(String key, boolean defaultValue) {
+		return declare(key, new ObservableBoolean(defaultValue), defaultValue, ConfigFile::parseBoolean);
+	}
+
+	/**
+	 * @param key
+	 * 		Property name.
+	 * @param defaultValue
+	 * 		Value when the property is absent.
+	 *
+	 * @return Observable of the property.
+	 */
+	public synchronized ObservableInteger integer(String key, int defaultValue) {
+		return declare(key, new ObservableInteger(defaultValue), defaultValue, text -> Integer.parseInt(text.trim()));
+	}
+
+	/**
+	 * @param key
+	 * 		Property name.
+	 * @param defaultValue
+	 * 		Value when the property is absent.
+	 *
+	 * @return Observable of the property.
+	 */
+	public synchronized ObservableString string(String key, String defaultValue) {
+		return declare(key, new ObservableString(defaultValue), defaultValue, Function.identity());
+	}
+
+	/**
+	 * @param prefix
+	 * 		Parent key of the properties to include, such as {@code "headers"} for {@code "headers.accept"}.
+	 *
+	 * @return Observable map of all properties under the parent key, keyed by their name relative to the parent.
+	 */
+	public synchronized ObservableMap<String, String, Map<String, String>> map(String prefix) {
+		MapProperty existing = declaredMaps.get(prefix);
+		if (existing != null)
+			return existing.observable;
+		MapProperty property = new MapProperty(prefix);
+		registry.register(prefix, property.observable);
+		declaredMaps.put(prefix, property);
+		property.observable.setValue(property.collect(loaded));
+		return property.observable;
+	}
+
+	/**
+	 * Reads the file, and updates the observables of properties whose text changed since the last load.
+	 * A missing file is treated as empty.
+	 *
+	 * @return Number of properties that were added, changed, or removed.
+	 *
+	 * @throws IOException
+	 * 		When the file cannot be read.
+	 */
+	public synchronized int reload() throws IOException {
+		Map<String, String> current = read();
+		Map<String, String> previous = loaded;
+		Set<String> changed = new LinkedHashSet<>();
+		for (Map.Entry<String, String> entry : current.entrySet())
+			if (!entry.getValue().equals(previous.get(entry.getKey())))
+				changed.add(entry.getKey());
+		for (String key : previous.keySet())
+			if (!current.containsKey(key))
+				changed.add(key);
+		loaded = current;
+		if (changed.isEmpty())
+			return 0;
+		registry.update(() -> apply(changed, current));
+		return changed.size();
+	}
+
+	/**
+	 * Loads the file, and reloads it whenever it is modified until {@link #close() closed}.
+	 *
+	 * @throws IOException
+	 * 		When the file cannot be read, or its directory cannot be watched.
+	 */
+	public synchronized void watch() throws IOException {
+		if (watchService != null)
+			return;
+		reload();
+		Path directory = path.getParent();
+		Path fileName = path.getFileName();
+		WatchService service = directory.getFileSystem().newWatchService();
+		directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		watchService = service;
+		watchThread = new Thread(() -> watchLoop(service, fileName), "ConfigFile-" + fileName);
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	/**
+	 * Stops {@link #watch() watching} the file.
+	 */
+	@Override
+	public synchronized void close() {
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException ignored) {
+				// Closing a watch service does not fail in practice
+			}
+			watchService = null;
+			watchThread = null;
+		}
+	}
+
+	private void watchLoop(WatchService service, Path fileName) {
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				boolean relevant = false;
+				for (WatchEvent<?> event : key.pollEvents())
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context()))
+						relevant = true;
+				if (relevant) {
+					try {
+						reload();
+					} catch (IOException | RuntimeException ex) {
+						errorHandler.accept(ex);
+					}
+				}
+				if (!key.reset())
+					return;
+			}
+		} catch (InterruptedException | ClosedWatchServiceException ignored) {
+			// Closed, stop watching
+		}
+	}
+
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private void apply(Set<String> changed, Map<String, String> current) {
+		for (String key : changed) {
+			String text = current.get(key);
+			Property property = declared.get(key);
+			if (property != null) {
+				property.apply(text);
+			} else {
+				Observable<String> observable = registry.get(key);
+				if (observable == null && text != null)
+					registry.register(key, new ObservableString(text));
+				else if (observable instanceof ObservableString)
+					observable.setValue(text);
+			}
+		}
+		for (MapProperty property : declaredMaps.values()) {
+			for (String key : changed) {
+				if (property.contains(key)) {
+					property.observable.setValue(property.collect(current));
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the file, parsing only logical lines not present in the previous load.
+	 *
+	 * @return Property values by name.
+	 */
+	private Map<String, String> read() throws IOException {
+		String text;
+		try {
+			text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+		} catch (NoSuchFileException ex) {
+			parsedLines = Collections.emptyMap();
+			return Collections.emptyMap();
+		}
+		Map<String, String[]> previous = parsedLines;
+		Map<String, String[]> parsed = new HashMap<>();
+		Map<String, String> values = new HashMap<>();
+		for (String line : logicalLines(text)) {
+			String[] entry = parsed.get(line);
+			if (entry == null) {
+				entry = previous.get(line);
+				if (entry == null)
+					entry = parseLine(line);
+				parsed.put(line, entry);
+			}
+			// Later lines override earlier ones, as with Properties
+			if (entry != NO_ENTRY)
+				values.put(entry[0], entry[1]);
+		}
+		parsedLines = parsed;
+		return values;
+	}
+
+	/**
+	 * @param text
+	 * 		Text of a properties file.
+	 *
+	 * @return Logical lines, with continued lines joined to the line they continue. Blank lines are skipped.
+	 */
+	private static List<String> logicalLines(String text) {
+		List<String> lines = new ArrayList<>();
+		StringBuilder logical = new StringBuilder();
+		int start = 0;
+		int length = text.length();
+		while (start < length) {
+			int end = start;
+			while (end < length && text.charAt(end) != '\n' && text.charAt(end) != '\r')
+				end++;
+			String line = text.substring(start, end);
+			// Skip the terminator, treating \r\n as one
+			start = end < length && text.charAt(end) == '\r' && end + 1 < length && text.charAt(end + 1) == '\n' ?
+					end + 2 : end + 1;
+			if (logical.length() == 0) {
+				String trimmed = line.trim();
+				if (trimmed.isEmpty())
+					continue;
+				// Comments never continue onto the next line
+				if (trimmed.charAt(0) == '#' || trimmed.charAt(0) == '!') {
+					lines.add(line);
+					continue;
+				}
+			} else {
+				logical.append('\n');
+			}
+			logical.append(line);
+			int backslashes = 0;
+			for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--)
+				backslashes++;
+			if (backslashes % 2 == 0) {
+				lines.add(logical.toString());
+				logical.setLength(0);
+			}
+		}
+		if (logical.length() > 0)
+			lines.add(logical.toString());
+		return lines;
+	}
+
+	/**
+	 * @param line
+	 * 		Logical line of a properties file.
+	 *
+	 * @return Key and value of the line, or {@link #NO_ENTRY} when it holds none.
+	 */
+	private static String[] parseLine(String line) throws IOException {
+		Properties properties = new Properties();
+		properties.load(new StringReader(line));
+		for (String name : properties.stringPropertyNames())
+			return new String[]{name, properties.getProperty(name)};
+		return NO_ENTRY;
+	}
+
+	private <T, O extends Observable<T>> O declare(String key, O observable, T defaultValue, Function<String, T> parser) {
+		if (declared.containsKey(key))
+			throw new IllegalStateException("Property already declared: " + key);
+		registry.register(key, observable);
+		Property<T> property = new Property<>(observable, defaultValue, parser);
+		declared.put(key, property);
+		String text = loaded.get(key);
+		if (text != null)
+			property.apply(text);
+		return observable;
+	}
+
+	private static boolean parseBoolean(String text) {
+		String trimmed = text.trim();
+		if (trimmed.equalsIgnoreCase("true"))
+			return true;
+		if (trimmed.equalsIgnoreCase("false"))
+			return false;
+		throw new IllegalArgumentException("Not a boolean: " + text);
+	}
+
+	/**
+	 * Declared property with a typed observable.
+	 */
+	private class Property<T> {
+		private final Observable<T> observable;
+		private final T defaultValue;
+		private final Function<String, T> parser;
+
+		private Property(Observable<T> observable, T defaultValue, Function<String, T> parser) {
+			this.observable = observable;
+			this.defaultValue = defaultValue;
+			this.parser = parser;
+		}
+
+		/**
+		 * @param text
+		 * 		New property text, or {@code null} when the property was removed.
+		 */
+		private void apply(String text) {
+			if (text == null) {
+				observable.setValue(defaultValue);
+				return;
+			}
+			T value;
+			try {
+				value = parser.apply(text);
+			} catch (RuntimeException ex) {
+				// Keep the current value, the file may be fixed by the next edit
+				errorHandler.accept(ex);
+				return;
+			}
+			observable.setValue(value);
+		}
+	}
+
+	/**
+	 * Declared map of all properties under a common parent key.
+	 */
+	private static class MapProperty {
+		private final ObservableMap<String, String, Map<String, String>> observable = new ObservableMap<>(TreeMap::new);
+		private final String prefix;
+
+		private MapProperty(String prefix) {
+			this.prefix = prefix + '.';
+		}
+
+		private boolean contains(String key) {
+			return key.startsWith(prefix);
+		}
+
+		private Map<String, String> collect(Map<String, String> values) {
+			Map<String, String> map = new TreeMap<>();
+			for (Map.Entry<String, String> entry : values.entrySet())
+				if (contains(entry.getKey()))
+					map.put(entry.getKey().substring(prefix.length()), entry.getValue());
+			return map;
+		}
+	}
+}
@@ -0,0 +1,312 @@
+package software.coley.observables.flow;
+
+import software.coley.observables.ChangeListener;
+import software.coley.observables.Observable;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of value changes from an {@link Observable}.
+ * <br>
+ * Each subscriber has its own bounded buffer, so a stalled subscriber can never hold more than the configured
+ * capacity worth of values. Values are only delivered as the subscriber {@link Subscription#request(long) requests}
+ * them, and what happens to values arriving when there is no demand is decided by the {@link OverflowStrategy}.
+ * <br>
+ * Subscribers only receive changes that occur after subscribing. {@code null} values are never published.
+ *
+ * @param <T>
+ * 		Observable value type.
+ *
+ * @author Matt Coley
+ */
+public class ObservablePublisher<T> implements Publisher<T>, AutoCloseable {
+	private final List<ObservableSubscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final ChangeListener<T> listener = (observable, oldValue, newValue) -> publish(newValue);
+	private final Observable<T> observable;
+	private final OverflowStrategy strategy;
+	private final int capacity;
+	private final Executor executor;
+	private boolean attached;
+	private volatile boolean closed;
+
+	/**
+	 * New publisher which delivers values on the thread that updates the observable,
+	 * or the thread requesting more values.
+	 *
+	 * @param observable
+	 * 		Observable to publish changes of.
+	 * @param strategy
+	 * 		Strategy for values arriving when a subscriber has no demand.
+	 * @param capacity
+	 * 		Maximum number of undelivered values held per subscriber.
+	 */
+	public ObservablePublisher(Observable<T> observable, OverflowStrategy strategy, int capacity) {
+		this(observable, strategy, capacity, Runnable::run);
+	}
+
+	/**
+	 * @param observable
+	 * 		Observable to publish changes of.
+	 * @param strategy
+	 * 		Strategy for values arriving when a subscriber has no demand.
+	 * @param capacity
+	 * 		Maximum number of undelivered values held per subscriber.
+	 * @param executor
+	 * 		Executor to deliver values to subscribers on.
+	 */
+	public ObservablePublisher(Observable<T> observable, OverflowStrategy strategy, int capacity, Executor executor) {
+		Objects.requireNonNull(observable, "Observable must not be null");
+		Objects.requireNonNull(strategy, "Overflow strategy must not be null");
+		Objects.requireNonNull(executor, "Executor must not be null");
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		this.observable = observable;
+		this.strategy = strategy;
+		this.capacity = strategy == OverflowStrategy.LATEST ? 1 : capacity;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		Objects.requireNonNull(subscriber, "Subscriber must not be null");
+		ObservableSubscription subscription = new ObservableSubscription(subscriber);
+		// Shares the lock of close, so a subscription is either completed by close or added after it
+		synchronized (this) {
+			if (closed) {
+				subscription.done = true;
+			} else {
+				subscriptions.add(subscription);
+				if (!attached) {
+					observable.addChangeListener(listener);
+					attached = true;
+				}
+			}
+		}
+		subscriber.onSubscribe(subscription);
+		// Deliveries requested before the subscriber was told of its subscription are held until now
+		subscription.release();
+	}
+
+	/**
+	 * Completes all current subscribers once their buffered values have been delivered,
+	 * and stops listening to the observable. Later subscribers are completed immediately.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			detach();
+		}
+		// No subscriptions are added once closed, so this sees all of them
+		for (ObservableSubscription subscription : subscriptions) {
+			subscription.done = true;
+			subscription.drain();
+		}
+	}
+
+	/**
+	 * @return Number of active subscribers.
+	 */
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * @param value
+	 * 		Value to offer to all subscribers.
+	 */
+	private void publish(T value) {
+		if (value == null)
+			return;
+		for (ObservableSubscription subscription : subscriptions)
+			subscription.offer(value);
+	}
+
+	/**
+	 * @param subscription
+	 * 		Subscription to remove. Once no subscriptions remain the observable is no longer listened to.
+	 */
+	private void remove(ObservableSubscription subscription) {
+		subscriptions.remove(subscription);
+		if (subscriptions.isEmpty())
+			detach();
+	}
+
+	/**
+	 * Remove the listener from the observable.
+	 */
+	private synchronized void detach() {
+		if (attached && (closed || subscriptions.isEmpty())) {
+			observable.removeChangeListener(listener);
+			attached = false;
+		}
+	}
+
+	/**
+	 * Per-subscriber buffer and demand tracking.
+	 * All calls to the subscriber are serialized through {@link #drain()}.
+	 */
+	private class ObservableSubscription implements Subscription {
+		private final AtomicLong requested = new AtomicLong();
+		// Starts held, so that nothing is delivered before the subscriber receives its subscription
+		private final AtomicInteger wip = new AtomicInteger(1);
+		private final Subscriber<? super T> subscriber;
+		private final Object[] buffer = new Object[capacity];
+		private final Runnable drainLoop = this::drainLoop;
+		private int head;
+		private int count;
+		private volatile boolean cancelled;
+		private volatile boolean done;
+		private volatile Throwable error;
+
+		private ObservableSubscription(Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				error = new IllegalArgumentException("Non-positive request amount: " + n);
+			} else {
+				long current, next;
+				do {
+					current = requested.get();
+					if (current == Long.MAX_VALUE)
+						break;
+					next = current + n;
+					if (next < 0)
+						next = Long.MAX_VALUE;
+				} while (!requested.compareAndSet(current, next));
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			if (!cancelled) {
+				cancelled = true;
+				remove(this);
+				drain();
+			}
+		}
+
+		/**
+		 * @param value
+		 * 		Value to buffer, according to the overflow strategy.
+		 */
+		private void offer(T value) {
+			synchronized (this) {
+				int length = buffer.length;
+				if (count == length) {
+					if (strategy == OverflowStrategy.DROP)
+						return;
+					// LATEST and BUFFER both evict the oldest value
+					buffer[head] = null;
+					head = (head + 1) % length;
+					count--;
+				}
+				buffer[(head + count) % length] = value;
+				count++;
+			}
+			drain();
+		}
+
+		/**
+		 * @return Oldest buffered value, or {@code null} when there are no buffered values.
+		 */
+		@SuppressWarnings("unchecked")
+		private synchronized T poll() {
+			if (count == 0)
+				return null;
+			T value = (T) buffer[head];
+			buffer[head] = null;
+			head = (head + 1) % buffer.length;
+			count--;
+			return value;
+		}
+
+		private synchronized boolean isEmpty() {
+			return count == 0;
+		}
+
+		private synchronized void clear() {
+			for (int i = 0; i < buffer.length; i++)
+				buffer[i] = null;
+			head = 0;
+			count = 0;
+		}
+
+		/**
+		 * Schedule delivery, unless a delivery loop is already active. In that case the active loop
+		 * will pick up the new state before it exits.
+		 */
+		private void drain() {
+			if (wip.getAndIncrement() == 0)
+				executor.execute(drainLoop);
+		}
+
+		/**
+		 * Run the delivery loop held since creation, picking up everything that arrived in the meantime.
+		 */
+		private void release() {
+			executor.execute(drainLoop);
+		}
+
+		private void drainLoop() {
+			int missed = 1;
+			while (true) {
+				if (cancelled) {
+					clear();
+					return;
+				}
+				Throwable failure = error;
+				if (failure != null) {
+					terminate();
+					subscriber.onError(failure);
+					return;
+				}
+				long demand = requested.get();
+				long emitted = 0;
+				while (emitted != demand) {
+					T value = poll();
+					if (value == null)
+						break;
+					try {
+						subscriber.onNext(value);
+					} catch (Throwable t) {
+						// Subscribers should not throw, but if they do we treat it as a terminal failure
+						terminate();
+						subscriber.onError(t);
+						return;
+					}
+					if (cancelled) {
+						clear();
+						return;
+					}
+					emitted++;
+				}
+				if (done && isEmpty()) {
+					terminate();
+					subscriber.onComplete();
+					return;
+				}
+				if (emitted != 0 && demand != Long.MAX_VALUE)
+					requested.addAndGet(-emitted);
+				missed = wip.addAndGet(-missed);
+				if (missed == 0)
+					break;
+			}
+		}
+
+		private void terminate() {
+			cancelled = true;
+			clear();
+			remove(this);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package software.coley.observables.flow;
+
+/**
+ * Strategies for handling values published while a subscriber has no outstanding demand.
+ *
+ * @author Matt Coley
+ */
+public enum OverflowStrategy {
+	/**
+	 * Values arriving while the buffer is full are discarded.
+	 * The buffer retains the oldest undelivered values.
+	 */
+	DROP,
+	/**
+	 * Only the most recent undelivered value is retained.
+	 * Buffer capacity is ignored, as it is always {@code 1}.
+	 */
+	LATEST,
+	/**
+	 * Values are buffered up to the buffer capacity.
+	 * When full, the oldest undelivered value is evicted to make room for the new one.
+	 */
+	BUFFER
+}
@@ -0,0 +1,23 @@
+package software.coley.observables.flow;
+
+/**
+ * Provider of a potentially unbounded number of sequenced elements, publishing them according to the demand
+ * received from its {@link Subscriber subscribers}.
+ * <br>
+ * Mirrors {@code org.reactivestreams.Publisher} and {@code java.util.concurrent.Flow.Publisher} method for method,
+ * so adapting to either is a matter of delegation.
+ *
+ * @param <T>
+ * 		Published element type.
+ *
+ * @author Matt Coley
+ */
+public interface Publisher<T> {
+	/**
+	 * Request the publisher to start streaming data to the given subscriber.
+	 *
+	 * @param subscriber
+	 * 		Subscriber to receive elements.
+	 */
+	void subscribe(Subscriber<? super T> subscriber);
+}
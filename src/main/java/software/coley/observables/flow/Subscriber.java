@@ -0,0 +1,41 @@
+package software.coley.observables.flow;
+
+/**
+ * Receiver of elements from a {@link Publisher}.
+ * <br>
+ * Mirrors {@code org.reactivestreams.Subscriber} and {@code java.util.concurrent.Flow.Subscriber} method for method.
+ *
+ * @param <T>
+ * 		Received element type.
+ *
+ * @author Matt Coley
+ */
+public interface Subscriber<T> {
+	/**
+	 * Invoked once after {@link Publisher#subscribe(Subscriber)}. No elements will be received until
+	 * {@link Subscription#request(long)} is called.
+	 *
+	 * @param subscription
+	 * 		Subscription used to request elements and to cancel.
+	 */
+	void onSubscribe(Subscription subscription);
+
+	/**
+	 * @param item
+	 * 		Next element, sent in response to demand from {@link Subscription#request(long)}.
+	 */
+	void onNext(T item);
+
+	/**
+	 * Terminal failure state. No further events are sent.
+	 *
+	 * @param throwable
+	 * 		Failure cause.
+	 */
+	void onError(Throwable throwable);
+
+	/**
+	 * Terminal success state. No further events are sent.
+	 */
+	void onComplete();
+}
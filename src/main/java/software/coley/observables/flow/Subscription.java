@@ -0,0 +1,22 @@
+package software.coley.observables.flow;
+
+/**
+ * One-to-one link between a {@link Publisher} and a {@link Subscriber}.
+ * <br>
+ * Mirrors {@code org.reactivestreams.Subscription} and {@code java.util.concurrent.Flow.Subscription} method for method.
+ *
+ * @author Matt Coley
+ */
+public interface Subscription {
+	/**
+	 * @param n
+	 * 		Number of additional elements the subscriber is ready to receive.
+	 * 		Must be positive. {@link Long#MAX_VALUE} is treated as unbounded demand.
+	 */
+	void request(long n);
+
+	/**
+	 * Stop receiving elements. Buffered elements are discarded.
+	 */
+	void cancel();
+}
@@ -0,0 +1,117 @@
+package software.coley.observables.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations, bucketed by powers of two.
+ * Bucket {@code i} holds values in the range {@code [2^(i-1), 2^i)}, with bucket {@code 0} holding only {@code 0}.
+ *
+ * @author Matt Coley
+ */
+public class LatencyHistogram {
+	private static final int BUCKETS = 64;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param nanos
+	 * 		Duration to record.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		buckets.incrementAndGet(bucket(nanos));
+		count.increment();
+		total.add(nanos);
+		long currentMax;
+		while (nanos > (currentMax = max.get()))
+			if (max.compareAndSet(currentMax, nanos))
+				break;
+	}
+
+	/**
+	 * @return Number of recorded durations.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return Sum of all recorded durations.
+	 */
+	public long getTotal() {
+		return total.sum();
+	}
+
+	/**
+	 * @return Largest recorded duration.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return Average recorded duration, or {@code 0} when nothing was recorded.
+	 */
+	public double getMean() {
+		long n = getCount();
+		return n == 0 ? 0 : getTotal() / (double) n;
+	}
+
+	/**
+	 * @param percentile
+	 * 		Percentile in the range {@code [0, 100]}.
+	 *
+	 * @return Upper bound of the bucket containing the given percentile, capped at {@link #getMax()}.
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentile must be in range [0, 100]: " + percentile);
+		long n = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			n += snapshot[i] = buckets.get(i);
+		if (n == 0)
+			return 0;
+		long target = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= target)
+				return Math.min(upperBound(i), getMax());
+		}
+		return getMax();
+	}
+
+	/**
+	 * Clear all recorded durations.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			buckets.set(i, 0);
+		count.reset();
+		total.reset();
+		max.set(0);
+	}
+
+	private static int bucket(long nanos) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	private static long upperBound(int bucket) {
+		return bucket == 0 ? 0 : bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() +
+				", mean=" + (long) getMean() +
+				", p50=" + getPercentile(50) +
+				", p99=" + getPercentile(99) +
+				", max=" + getMax();
+	}
+}
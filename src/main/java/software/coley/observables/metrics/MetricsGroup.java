@@ -0,0 +1,187 @@
+package software.coley.observables.metrics;
+
+import software.coley.observables.ChangeListener;
+import software.coley.observables.Observable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics implementation aggregating counters for all observables assigned to it.
+ * Assign one group per observable for per-observable counters, or share a group between observables
+ * to get per-group counters.
+ *
+ * @author Matt Coley
+ * @see MetricsRegistry
+ */
+public class MetricsGroup implements ObservableMetrics {
+	private final Map<ChangeListener<?>, LatencyHistogram> listenerLatencies;
+	private final LatencyHistogram listenerLatency = new LatencyHistogram();
+	private final LongAdder sets = new LongAdder();
+	private final LongAdder suppressedSets = new LongAdder();
+	private final LongAdder listenersAdded = new LongAdder();
+	private final LongAdder listenersRemoved = new LongAdder();
+	private final LongAdder listenerInvocations = new LongAdder();
+	private final LongAdder propagations = new LongAdder();
+	private final AtomicInteger maxPropagationDepth = new AtomicInteger();
+	private final String name;
+
+	/**
+	 * @param name
+	 * 		Group name.
+	 */
+	public MetricsGroup(String name) {
+		this(name, false);
+	}
+
+	/**
+	 * @param name
+	 * 		Group name.
+	 * @param trackListeners
+	 * 		Flag to record latency for each listener individually, in addition to the group total.
+	 * 		This allows identifying specific slow listeners, at the cost of a map lookup per invocation.
+	 */
+	public MetricsGroup(String name, boolean trackListeners) {
+		this.name = name;
+		this.listenerLatencies = trackListeners ? new ConcurrentHashMap<>() : null;
+	}
+
+	@Override
+	public void onSet(Observable<?> observable) {
+		sets.increment();
+	}
+
+	@Override
+	public void onSuppressedSet(Observable<?> observable) {
+		suppressedSets.increment();
+	}
+
+	@Override
+	public void onListenerAdded(Observable<?> observable, ChangeListener<?> listener) {
+		listenersAdded.increment();
+	}
+
+	@Override
+	public void onListenerRemoved(Observable<?> observable, ChangeListener<?> listener) {
+		listenersRemoved.increment();
+		if (listenerLatencies != null)
+			listenerLatencies.remove(listener);
+	}
+
+	@Override
+	public void onListenerInvoked(Observable<?> observable, ChangeListener<?> listener, long nanos) {
+		listenerInvocations.increment();
+		listenerLatency.record(nanos);
+		if (listenerLatencies != null)
+			listenerLatencies.computeIfAbsent(listener, l -> new LatencyHistogram()).record(nanos);
+	}
+
+	@Override
+	public void onPropagation(Observable<?> observable, int depth) {
+		propagations.increment();
+		int currentMax;
+		while (depth > (currentMax = maxPropagationDepth.get()))
+			if (maxPropagationDepth.compareAndSet(currentMax, depth))
+				break;
+	}
+
+	/**
+	 * @return Group name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return Number of sets that changed the value and notified listeners.
+	 */
+	public long getSets() {
+		return sets.sum();
+	}
+
+	/**
+	 * @return Number of sets where the value was considered unchanged.
+	 */
+	public long getSuppressedSets() {
+		return suppressedSets.sum();
+	}
+
+	/**
+	 * @return Number of listeners added.
+	 */
+	public long getListenersAdded() {
+		return listenersAdded.sum();
+	}
+
+	/**
+	 * @return Number of listeners removed.
+	 */
+	public long getListenersRemoved() {
+		return listenersRemoved.sum();
+	}
+
+	/**
+	 * @return Number of listener invocations.
+	 */
+	public long getListenerInvocations() {
+		return listenerInvocations.sum();
+	}
+
+	/**
+	 * @return Number of values received through bindings.
+	 */
+	public long getPropagations() {
+		return propagations.sum();
+	}
+
+	/**
+	 * @return Deepest binding depth observed.
+	 */
+	public int getMaxPropagationDepth() {
+		return maxPropagationDepth.get();
+	}
+
+	/**
+	 * @return Latency of all listener invocations.
+	 */
+	public LatencyHistogram getListenerLatency() {
+		return listenerLatency;
+	}
+
+	/**
+	 * @return Latency of each individual listener, until it is removed from an observable of the group.
+	 * Empty when the group was not created with listener tracking enabled.
+	 */
+	public Map<ChangeListener<?>, LatencyHistogram> getListenerLatencies() {
+		return listenerLatencies == null ? Collections.emptyMap() : Collections.unmodifiableMap(listenerLatencies);
+	}
+
+	/**
+	 * Clear all counters.
+	 */
+	public void reset() {
+		sets.reset();
+		suppressedSets.reset();
+		listenersAdded.reset();
+		listenersRemoved.reset();
+		listenerInvocations.reset();
+		propagations.reset();
+		maxPropagationDepth.set(0);
+		listenerLatency.reset();
+		if (listenerLatencies != null)
+			listenerLatencies.clear();
+	}
+
+	@Override
+	public String toString() {
+		return name + "[sets=" + getSets() +
+				", suppressed=" + getSuppressedSets() +
+				", invocations=" + getListenerInvocations() +
+				", propagations=" + getPropagations() +
+				", maxDepth=" + getMaxPropagationDepth() +
+				", latency={" + listenerLatency + "}]";
+	}
+}
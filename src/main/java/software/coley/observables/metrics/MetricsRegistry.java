@@ -0,0 +1,92 @@
+package software.coley.observables.metrics;
+
+import software.coley.observables.AbstractObservable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Collection of named {@link MetricsGroup metric groups}.
+ *
+ * @author Matt Coley
+ */
+public class MetricsRegistry {
+	private final Map<String, MetricsGroup> groups = new ConcurrentHashMap<>();
+	private final boolean trackListeners;
+
+	/**
+	 * New registry without per-listener latency tracking.
+	 */
+	public MetricsRegistry() {
+		this(false);
+	}
+
+	/**
+	 * @param trackListeners
+	 * 		Flag passed to {@link MetricsGroup#MetricsGroup(String, boolean)} for created groups.
+	 */
+	public MetricsRegistry(boolean trackListeners) {
+		this.trackListeners = trackListeners;
+	}
+
+	/**
+	 * @param name
+	 * 		Group name.
+	 *
+	 * @return Existing group of the given name, or a newly created one.
+	 */
+	public MetricsGroup group(String name) {
+		Objects.requireNonNull(name, "Group name must not be null");
+		return groups.computeIfAbsent(name, n -> new MetricsGroup(n, trackListeners));
+	}
+
+	/**
+	 * @param name
+	 * 		Group name.
+	 * @param observable
+	 * 		Observable to record metrics of into the group.
+	 * @param <O>
+	 * 		Observable type.
+	 *
+	 * @return Same observable.
+	 */
+	public <O extends AbstractObservable<?>> O attach(String name, O observable) {
+		observable.setMetrics(group(name));
+		return observable;
+	}
+
+	/**
+	 * @return All groups.
+	 */
+	public Collection<MetricsGroup> getGroups() {
+		return Collections.unmodifiableCollection(groups.values());
+	}
+
+	/**
+	 * @param count
+	 * 		Maximum number of groups to yield.
+	 * @param metric
+	 * 		Metric to sort by, such as {@link MetricsGroup#getSets()}.
+	 *
+	 * @return Groups with the highest values of the given metric, in descending order.
+	 */
+	public List<MetricsGroup> getTop(int count, ToLongFunction<MetricsGroup> metric) {
+		List<MetricsGroup> list = new ArrayList<>(groups.values());
+		list.sort(Comparator.comparingLong(metric).reversed());
+		return list.size() > count ? list.subList(0, count) : list;
+	}
+
+	/**
+	 * Reset counters in all groups.
+	 */
+	public void reset() {
+		groups.values().forEach(MetricsGroup::reset);
+	}
+}
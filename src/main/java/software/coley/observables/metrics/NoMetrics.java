@@ -0,0 +1,13 @@
+package software.coley.observables.metrics;
+
+/**
+ * Default no-op metrics implementation. Identity checks against the single instance are used to skip instrumentation.
+ *
+ * @author Matt Coley
+ */
+final class NoMetrics implements ObservableMetrics {
+	static final NoMetrics INSTANCE = new NoMetrics();
+
+	private NoMetrics() {
+	}
+}
@@ -0,0 +1,90 @@
+package software.coley.observables.metrics;
+
+import software.coley.observables.AbstractObservable;
+import software.coley.observables.ChangeListener;
+import software.coley.observables.Observable;
+
+/**
+ * Instrumentation hooks invoked by {@link AbstractObservable} as values are set, listeners are registered,
+ * and values propagate through bindings.
+ * <br>
+ * All methods are no-ops by default. Observables use {@link #none()} unless configured otherwise, in which case
+ * no timing or bookkeeping is performed at all.
+ *
+ * @author Matt Coley
+ * @see MetricsGroup
+ * @see MetricsRegistry
+ */
+public interface ObservableMetrics {
+	/**
+	 * @return Shared no-op instance.
+	 */
+	static ObservableMetrics none() {
+		return NoMetrics.INSTANCE;
+	}
+
+	/**
+	 * Called when a new value is assigned and listeners are about to be notified.
+	 *
+	 * @param observable
+	 * 		Observable that was updated.
+	 */
+	default void onSet(Observable<?> observable) {
+		// no-op by default
+	}
+
+	/**
+	 * Called when a value is assigned, but is considered unchanged so no listeners are notified.
+	 *
+	 * @param observable
+	 * 		Observable that was updated.
+	 */
+	default void onSuppressedSet(Observable<?> observable) {
+		// no-op by default
+	}
+
+	/**
+	 * @param observable
+	 * 		Observable a listener was added to.
+	 * @param listener
+	 * 		Listener added.
+	 */
+	default void onListenerAdded(Observable<?> observable, ChangeListener<?> listener) {
+		// no-op by default
+	}
+
+	/**
+	 * @param observable
+	 * 		Observable a listener was removed from.
+	 * @param listener
+	 * 		Listener removed.
+	 */
+	default void onListenerRemoved(Observable<?> observable, ChangeListener<?> listener) {
+		// no-op by default
+	}
+
+	/**
+	 * @param observable
+	 * 		Observable that notified the listener.
+	 * @param listener
+	 * 		Listener invoked.
+	 * @param nanos
+	 * 		Time in nanoseconds the listener took to complete.
+	 */
+	default void onListenerInvoked(Observable<?> observable, ChangeListener<?> listener, long nanos) {
+		// no-op by default
+	}
+
+	/**
+	 * Called when a bound observable receives a value from the observable it is bound to.
+	 *
+	 * @param observable
+	 * 		Bound observable receiving a value.
+	 * @param depth
+	 * 		Number of bindings between the observable that was explicitly set and this observable.
+	 * 		Direct receivers have a depth of {@code 1}.
+	 */
+	default void onPropagation(Observable<?> observable, int depth) {
+		// no-op by default
+	}
+}
@@ -0,0 +1,253 @@
+package software.coley.observables.sync;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wire format shared by {@link ReplicationPrimary} and {@link ReplicationReplica}.
+ * <br>
+ * The primary sends frames of the form {@code [int length][byte type][long sequence][varint count][records]},
+ * where the length covers everything after itself. Snapshot records are {@code [varint id][string key][value]},
+ * assigning the id used for the key by later delta records. Delta records are {@code [varint id][byte op][payload]}.
+ * Replicas send single byte requests back to the primary.
+ * <br>
+ * Values are tagged, with integers as zig-zag varints, strings as a varint byte length followed by UTF-8 bytes,
+ * and lists, sets and maps encoded element by element.
+ *
+ * @author Matt Coley
+ */
+final class Protocol {
+	static final byte FRAME_SNAPSHOT = 1;
+	static final byte FRAME_DELTA = 2;
+	static final byte REQUEST_RESYNC = 1;
+	static final byte OP_SET = 1;
+	static final byte OP_LIST_SPLICE = 2;
+	static final byte OP_MAP_DELTA = 3;
+	static final byte OP_SET_DELTA = 4;
+	private static final byte NULL = 0;
+	private static final byte BOOLEAN = 1;
+	private static final byte BYTE = 2;
+	private static final byte SHORT = 3;
+	private static final byte CHARACTER = 4;
+	private static final byte INTEGER = 5;
+	private static final byte LONG = 6;
+	private static final byte FLOAT = 7;
+	private static final byte DOUBLE = 8;
+	private static final byte STRING = 9;
+	private static final byte LIST = 10;
+	private static final byte SET = 11;
+	private static final byte MAP = 12;
+	/**
+	 * Size of the frame header after the length prefix: type and sequence.
+	 */
+	static final int HEADER_SIZE = 1 + 8;
+
+	private Protocol() {
+	}
+
+	/**
+	 * @param out
+	 * 		Output to write to.
+	 * @param value
+	 * 		Value to write.
+	 *
+	 * @throws IOException
+	 * 		When writing fails.
+	 * @throws IllegalArgumentException
+	 * 		When the value is not of a supported type.
+	 */
+	static void writeValue(DataOutput out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) value);
+		} else if (value instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort((Short) value);
+		} else if (value instanceof Character) {
+			out.writeByte(CHARACTER);
+			out.writeChar((Character) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			writeVarLong(out, zigZag((Integer) value));
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			writeVarLong(out, zigZag((Long) value));
+		} else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof List) {
+			out.writeByte(LIST);
+			writeElements(out, (List<?>) value);
+		} else if (value instanceof Set) {
+			out.writeByte(SET);
+			writeElements(out, (Set<?>) value);
+		} else if (value instanceof Map) {
+			out.writeByte(MAP);
+			Map<?, ?> map = (Map<?, ?>) value;
+			writeVarInt(out, map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writeValue(out, entry.getKey());
+				writeValue(out, entry.getValue());
+			}
+		} else {
+			throw new IllegalArgumentException("Unsupported value type: " + value.getClass().getName());
+		}
+	}
+
+	/**
+	 * @param in
+	 * 		Input to read from.
+	 *
+	 * @return Value read. Lists, sets and maps are read as mutable collections.
+	 *
+	 * @throws IOException
+	 * 		When reading fails, or the input is malformed.
+	 */
+	static Object readValue(DataInput in) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+			case NULL:
+				return null;
+			case BOOLEAN:
+				return in.readBoolean();
+			case BYTE:
+				return in.readByte();
+			case SHORT:
+				return in.readShort();
+			case CHARACTER:
+				return in.readChar();
+			case INTEGER:
+				return (int) unZigZag(readVarLong(in));
+			case LONG:
+				return unZigZag(readVarLong(in));
+			case FLOAT:
+				return in.readFloat();
+			case DOUBLE:
+				return in.readDouble();
+			case STRING:
+				return readString(in);
+			case LIST:
+				return readElements(in, new ArrayList<>());
+			case SET:
+				return readElements(in, new LinkedHashSet<>());
+			case MAP: {
+				int size = readVarInt(in);
+				Map<Object, Object> map = new LinkedHashMap<>();
+				for (int i = 0; i < size; i++)
+					map.put(readValue(in), readValue(in));
+				return map;
+			}
+			default:
+				throw new IOException("Unknown value tag: " + tag);
+		}
+	}
+
+	/**
+	 * @param value
+	 * 		Value to check.
+	 *
+	 * @return {@code true} when the value, and all elements of it, can be written by {@link #writeValue(DataOutput, Object)}.
+	 */
+	static boolean isSupported(Object value) {
+		if (value == null || value instanceof Boolean || value instanceof Byte || value instanceof Short
+				|| value instanceof Character || value instanceof Integer || value instanceof Long
+				|| value instanceof Float || value instanceof Double || value instanceof String)
+			return true;
+		if (value instanceof List || value instanceof Set) {
+			for (Object element : (Collection<?>) value)
+				if (!isSupported(element))
+					return false;
+			return true;
+		}
+		if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+				if (!isSupported(entry.getKey()) || !isSupported(entry.getValue()))
+					return false;
+			return true;
+		}
+		return false;
+	}
+
+	static void writeString(DataOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		int length = readVarInt(in);
+		if (length < 0)
+			throw new IOException("Malformed string length: " + length);
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static void writeElements(DataOutput out, Collection<?> values) throws IOException {
+		writeVarInt(out, values.size());
+		for (Object value : values)
+			writeValue(out, value);
+	}
+
+	static <C extends Collection<Object>> C readElements(DataInput in, C values) throws IOException {
+		int size = readVarInt(in);
+		for (int i = 0; i < size; i++)
+			values.add(readValue(in));
+		return values;
+	}
+
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	static int readVarInt(DataInput in) throws IOException {
+		return (int) readVarLong(in);
+	}
+
+	private static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,515 @@
+package software.coley.observables.sync;
+
+import software.coley.observables.ChangeListener;
+import software.coley.observables.Observable;
+import software.coley.observables.ObservableRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Replicates the observables of a registry to {@link ReplicationReplica replicas} connecting over sockets.
+ * <br>
+ * The observables registered when the primary is created are replicated, under their registry keys. Each replica
+ * first receives a snapshot of all values. Changes are then sent as deltas: assignments of simple values send the
+ * new value, while lists send the changed range, and maps and sets send their removed and added entries. Each frame
+ * has a sequence number.
+ * <br>
+ * Writing threads only mark the changed observable, in constant time. A flush thread diffs the current value of each
+ * marked observable against the last value it replicated, which takes time linear in the size of a changed collection,
+ * but is paid once per frame rather than once per change, and never on the writing thread. Changes made while the
+ * previous frame was being encoded are batched into the next frame, so a burst of changes is sent as few frames, and
+ * repeated changes of one observable between frames are sent as one.
+ * <br>
+ * Each replica has a bounded queue of frames. When a replica falls too far behind and its queue is full, its queued
+ * frames are replaced by a new snapshot.
+ * <br>
+ * Supported values are {@code null}, boxed primitives, strings, and lists, sets and maps of those. Values which cannot
+ * be encoded are reported to the {@link #withErrorHandler(Consumer) error handler} and not replicated, replicas keep
+ * the last value which could be. Changes never fail on the writing thread.
+ *
+ * @author Matt Coley
+ * @see ReplicationReplica
+ */
+public class ReplicationPrimary implements AutoCloseable {
+	private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+	private final List<Connection> connections = new CopyOnWriteArrayList<>();
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private final DataOutputStream pendingOut = new DataOutputStream(pending);
+	private final ServerSocket server;
+	private final int queueCapacity;
+	private final String[] keys;
+	private final Observable<?>[] observables;
+	private final ChangeListener<?>[] listeners;
+	// Observables changed since they were last encoded, guarded by this
+	private final boolean[] dirty;
+	private final int[] dirtyIds;
+	private int dirtyCount;
+	// Guards the shadow values, pending deltas, sequence and queued frames, so snapshots line up with deltas
+	private final Object frameLock = new Object();
+	// Last value replicated for each observable, deltas are computed against these
+	private final Object[] shadow;
+	private final Thread acceptThread;
+	private final Thread flushThread;
+	private Consumer<Exception> errorHandler = error -> {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+	};
+	private int pendingCount;
+	private long sequence;
+	private volatile boolean closed;
+
+	/**
+	 * @param registry
+	 * 		Registry of the observables to replicate.
+	 * @param server
+	 * 		Socket to accept replicas on.
+	 */
+	public ReplicationPrimary(ObservableRegistry registry, ServerSocket server) {
+		this(registry, server, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param registry
+	 * 		Registry of the observables to replicate.
+	 * @param server
+	 * 		Socket to accept replicas on.
+	 * @param queueCapacity
+	 * 		Maximum number of frames queued for a replica before they are replaced by a snapshot.
+	 *
+	 * @throws IllegalArgumentException
+	 * 		When the value of an observable of the registry cannot be encoded.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public ReplicationPrimary(ObservableRegistry registry, ServerSocket server, int queueCapacity) {
+		Objects.requireNonNull(registry, "Registry must not be null");
+		this.server = Objects.requireNonNull(server, "Server socket must not be null");
+		if (queueCapacity <= 0)
+			throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+		this.queueCapacity = queueCapacity;
+		Map<String, Observable<?>> all = registry.getAll();
+		keys = all.keySet().toArray(new String[0]);
+		observables = all.values().toArray(new Observable[0]);
+		listeners = new ChangeListener[keys.length];
+		shadow = new Object[keys.length];
+		dirty = new boolean[keys.length];
+		dirtyIds = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			if (!Protocol.isSupported(observables[i].getValue()))
+				throw new IllegalArgumentException("Value of '" + keys[i] + "' cannot be replicated: "
+						+ observables[i].getValue());
+		}
+		for (int i = 0; i < keys.length; i++) {
+			int id = i;
+			shadow[i] = observables[i].getValue();
+			ChangeListener listener = (observable, oldValue, newValue) -> record(id);
+			listeners[i] = listener;
+			((Observable) observables[i]).addChangeListener(listener);
+		}
+		acceptThread = new Thread(this::accept, "replication-accept");
+		acceptThread.setDaemon(true);
+		flushThread = new Thread(this::flush, "replication-flush");
+		flushThread.setDaemon(true);
+		acceptThread.start();
+		flushThread.start();
+	}
+
+	/**
+	 * @param errorHandler
+	 * 		Handler of values which cannot be encoded, and failures to accept replicas.
+	 * 		By default, failures are passed to the uncaught exception handler of the primary's threads.
+	 *
+	 * @return Self.
+	 */
+	public ReplicationPrimary withErrorHandler(Consumer<Exception> errorHandler) {
+		this.errorHandler = Objects.requireNonNull(errorHandler, "Error handler must not be null");
+		return this;
+	}
+
+	/**
+	 * @return Sequence number of the latest frame.
+	 */
+	public long getSequence() {
+		synchronized (frameLock) {
+			return sequence;
+		}
+	}
+
+	/**
+	 * @return Number of connected replicas.
+	 */
+	public int getReplicaCount() {
+		return connections.size();
+	}
+
+	/**
+	 * Stops replicating, and disconnects all replicas.
+	 */
+	@Override
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void close() {
+		closed = true;
+		for (int i = 0; i < observables.length; i++)
+			((Observable) observables[i]).removeChangeListener(listeners[i]);
+		try {
+			server.close();
+		} catch (IOException ignored) {
+			// Closing anyways
+		}
+		flushThread.interrupt();
+		for (Connection connection : connections)
+			connection.close();
+	}
+
+	/**
+	 * Marks an observable as changed, for the flush thread to encode.
+	 * Runs on the thread changing the observable, so it does no more than that.
+	 */
+	private synchronized void record(int id) {
+		if (closed || dirty[id])
+			return;
+		dirty[id] = true;
+		dirtyIds[dirtyCount++] = id;
+		if (dirtyCount == 1)
+			notifyAll();
+	}
+
+	/**
+	 * Encodes the current value of an observable as a delta against the last value replicated.
+	 *
+	 * @return Failure to encode the value, or {@code null} when it was encoded or unchanged.
+	 */
+	private Exception encode(int id) {
+		Object value = observables[id].getValue();
+		int size = pending.size();
+		boolean written = false;
+		try {
+			written = encodeDelta(id, shadow[id], value);
+		} catch (IOException | RuntimeException ex) {
+			// The shadow keeps the last value which could be encoded, replicas stay consistent with it
+			return new IllegalArgumentException("Value of '" + keys[id] + "' cannot be replicated", ex);
+		} finally {
+			if (!written)
+				truncatePending(size);
+		}
+		shadow[id] = value;
+		if (written)
+			pendingCount++;
+		return null;
+	}
+
+	/**
+	 * @return {@code false} when the values are the same and nothing needs to be sent.
+	 */
+	private boolean encodeDelta(int id, Object previous, Object value) throws IOException {
+		DataOutputStream out = pendingOut;
+		Protocol.writeVarInt(out, id);
+		if (previous instanceof List && value instanceof List) {
+			List<?> from = (List<?>) previous;
+			List<?> to = (List<?>) value;
+			int prefix = 0;
+			int max = Math.min(from.size(), to.size());
+			while (prefix < max && Objects.equals(from.get(prefix), to.get(prefix)))
+				prefix++;
+			int suffix = 0;
+			while (suffix < max - prefix && Objects.equals(from.get(from.size() - 1 - suffix), to.get(to.size() - 1 - suffix)))
+				suffix++;
+			int removed = from.size() - prefix - suffix;
+			int inserted = to.size() - prefix - suffix;
+			if (removed == 0 && inserted == 0)
+				return false;
+			out.writeByte(Protocol.OP_LIST_SPLICE);
+			Protocol.writeVarInt(out, prefix);
+			Protocol.writeVarInt(out, removed);
+			Protocol.writeElements(out, to.subList(prefix, prefix + inserted));
+		} else if (previous instanceof Map && value instanceof Map) {
+			Map<?, ?> from = (Map<?, ?>) previous;
+			Map<?, ?> to = (Map<?, ?>) value;
+			List<Object> removed = new ArrayList<>();
+			for (Object key : from.keySet())
+				if (!to.containsKey(key))
+					removed.add(key);
+			List<Map.Entry<?, ?>> put = new ArrayList<>();
+			for (Map.Entry<?, ?> entry : to.entrySet())
+				if (!from.containsKey(entry.getKey()) || !Objects.equals(from.get(entry.getKey()), entry.getValue()))
+					put.add(entry);
+			if (removed.isEmpty() && put.isEmpty())
+				return false;
+			out.writeByte(Protocol.OP_MAP_DELTA);
+			Protocol.writeElements(out, removed);
+			Protocol.writeVarInt(out, put.size());
+			for (Map.Entry<?, ?> entry : put) {
+				Protocol.writeValue(out, entry.getKey());
+				Protocol.writeValue(out, entry.getValue());
+			}
+		} else if (previous instanceof Set && value instanceof Set) {
+			Set<?> from = (Set<?>) previous;
+			Set<?> to = (Set<?>) value;
+			Collection<Object> removed = new HashSet<>(from);
+			removed.removeAll(to);
+			Collection<Object> added = new HashSet<>(to);
+			added.removeAll(from);
+			if (removed.isEmpty() && added.isEmpty())
+				return false;
+			out.writeByte(Protocol.OP_SET_DELTA);
+			Protocol.writeElements(out, removed);
+			Protocol.writeElements(out, added);
+		} else {
+			out.writeByte(Protocol.OP_SET);
+			Protocol.writeValue(out, value);
+		}
+		return true;
+	}
+
+	private void truncatePending(int size) {
+		// Drop a partially written record, by rewriting the records before it
+		byte[] bytes = pending.toByteArray();
+		pending.reset();
+		pending.write(bytes, 0, size);
+	}
+
+	/**
+	 * Encodes the observables changed since the last frame, and sends their deltas as a frame.
+	 */
+	private void flush() {
+		int[] ids = new int[keys.length];
+		while (!closed) {
+			int count;
+			synchronized (this) {
+				try {
+					while (dirtyCount == 0 && !closed)
+						wait();
+				} catch (InterruptedException ex) {
+					return;
+				}
+				if (closed)
+					return;
+				// Cleared before the values are read, so a change made while encoding marks its observable again
+				count = dirtyCount;
+				System.arraycopy(dirtyIds, 0, ids, 0, count);
+				for (int i = 0; i < count; i++)
+					dirty[ids[i]] = false;
+				dirtyCount = 0;
+			}
+			Exception failure = null;
+			synchronized (frameLock) {
+				for (int i = 0; i < count; i++) {
+					Exception idFailure = encode(ids[i]);
+					if (failure == null)
+						failure = idFailure;
+				}
+				if (pendingCount > 0)
+					broadcast(cutFrame());
+				if (failure != null) {
+					// Start replicas again from the shadow values, which leave out the change that failed
+					byte[] snapshot = encodeSnapshot();
+					for (Connection connection : connections)
+						connection.resync(snapshot);
+				}
+			}
+			if (failure != null)
+				errorHandler.accept(failure);
+		}
+	}
+
+	/**
+	 * Queues a frame for every replica. Replicas too far behind to queue it are resynced instead.
+	 */
+	private void broadcast(byte[] frame) {
+		byte[] snapshot = null;
+		for (Connection connection : connections) {
+			if (!connection.offer(frame)) {
+				if (snapshot == null)
+					snapshot = encodeSnapshot();
+				connection.resync(snapshot);
+			}
+		}
+	}
+
+	/**
+	 * @return Frame of all pending deltas, with the next sequence number.
+	 */
+	private byte[] cutFrame() {
+		byte[] frame = frame(Protocol.FRAME_DELTA, ++sequence, pendingCount, pending);
+		pending.reset();
+		pendingCount = 0;
+		return frame;
+	}
+
+	/**
+	 * @return Snapshot frame of the shadow values, at the current sequence number.
+	 */
+	private byte[] encodeSnapshot() {
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(records);
+		try {
+			for (int i = 0; i < keys.length; i++) {
+				Protocol.writeVarInt(out, i);
+				Protocol.writeString(out, keys[i]);
+				Protocol.writeValue(out, shadow[i]);
+			}
+		} catch (IOException ex) {
+			// Not possible when writing to memory, and shadow values are only kept once encoded
+			throw new IllegalStateException(ex);
+		}
+		return frame(Protocol.FRAME_SNAPSHOT, sequence, keys.length, records);
+	}
+
+	private static byte[] frame(byte type, long sequence, int count, ByteArrayOutputStream records) {
+		try {
+			ByteArrayOutputStream frame = new ByteArrayOutputStream(records.size() + 32);
+			DataOutputStream out = new DataOutputStream(frame);
+			out.writeInt(0);
+			out.writeByte(type);
+			out.writeLong(sequence);
+			Protocol.writeVarInt(out, count);
+			records.writeTo(out);
+			byte[] bytes = frame.toByteArray();
+			int length = bytes.length - 4;
+			bytes[0] = (byte) (length >>> 24);
+			bytes[1] = (byte) (length >>> 16);
+			bytes[2] = (byte) (length >>> 8);
+			bytes[3] = (byte) length;
+			return bytes;
+		} catch (IOException ex) {
+			// Not possible when writing to memory
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private void accept() {
+		while (!closed) {
+			Socket socket;
+			try {
+				socket = server.accept();
+			} catch (IOException ex) {
+				if (closed)
+					return;
+				errorHandler.accept(ex);
+				continue;
+			}
+			Connection connection = null;
+			try {
+				socket.setTcpNoDelay(true);
+				connection = new Connection(socket);
+				synchronized (frameLock) {
+					// Registered along with the initial snapshot, so no delta is missed or sent ahead of it
+					connection.resync(encodeSnapshot());
+					connections.add(connection);
+				}
+				connection.start();
+			} catch (IOException | RuntimeException ex) {
+				if (connection != null)
+					connection.close();
+				else
+					closeQuietly(socket);
+				if (!closed)
+					errorHandler.accept(ex);
+			}
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException ignored) {
+			// Closing anyways
+		}
+	}
+
+	/**
+	 * Connection to a single replica, with its own queue of frames.
+	 */
+	private class Connection {
+		private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+		private final Socket socket;
+		private final Thread sender;
+		private final Thread receiver;
+
+		private Connection(Socket socket) {
+			this.socket = socket;
+			sender = new Thread(this::send, "replication-send-" + socket.getRemoteSocketAddress());
+			sender.setDaemon(true);
+			receiver = new Thread(this::receive, "replication-receive-" + socket.getRemoteSocketAddress());
+			receiver.setDaemon(true);
+		}
+
+		private void start() {
+			sender.start();
+			receiver.start();
+		}
+
+		/**
+		 * @return {@code false} when the queue is full, and the replica must be resynced.
+		 */
+		private boolean offer(byte[] frame) {
+			return queue.offer(frame);
+		}
+
+		private void resync(byte[] snapshot) {
+			// Queued frames are all covered by the snapshot
+			queue.clear();
+			queue.offer(snapshot);
+		}
+
+		private void send() {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+				List<byte[]> frames = new ArrayList<>();
+				while (!closed) {
+					frames.add(queue.take());
+					queue.drainTo(frames);
+					for (byte[] frame : frames)
+						out.write(frame);
+					out.flush();
+					frames.clear();
+				}
+			} catch (IOException | InterruptedException ex) {
+				// Replica disconnected, or primary closed
+			} finally {
+				close();
+			}
+		}
+
+		private void receive() {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+				while (!closed) {
+					int request = in.read();
+					if (request < 0)
+						break;
+					if (request == Protocol.REQUEST_RESYNC) {
+						synchronized (frameLock) {
+							resync(encodeSnapshot());
+						}
+					}
+				}
+			} catch (IOException ex) {
+				// Replica disconnected, or primary closed
+			} finally {
+				close();
+			}
+		}
+
+		private void close() {
+			connections.remove(this);
+			sender.interrupt();
+			closeQuietly(socket);
+		}
+	}
+}
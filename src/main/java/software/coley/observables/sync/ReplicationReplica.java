@@ -0,0 +1,327 @@
+package software.coley.observables.sync;
+
+import software.coley.observables.BoundValueSetException;
+import software.coley.observables.Observable;
+import software.coley.observables.ObservableBoolean;
+import software.coley.observables.ObservableByte;
+import software.coley.observables.ObservableCharacter;
+import software.coley.observables.ObservableCollection;
+import software.coley.observables.ObservableDouble;
+import software.coley.observables.ObservableFloat;
+import software.coley.observables.ObservableInteger;
+import software.coley.observables.ObservableList;
+import software.coley.observables.ObservableLong;
+import software.coley.observables.ObservableMap;
+import software.coley.observables.ObservableObject;
+import software.coley.observables.ObservableRegistry;
+import software.coley.observables.ObservableSet;
+import software.coley.observables.ObservableShort;
+import software.coley.observables.ObservableString;
+import software.coley.observables.Observables;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Applies the state replicated by a {@link ReplicationPrimary} to the observables of a local registry.
+ * <br>
+ * Observables of keys not yet in the registry are created from the type of their first value: number, boolean,
+ * character and string values create the matching observable types, and lists, sets and maps create
+ * {@link ObservableList}, {@link ObservableSet} and {@link ObservableMap} instances. Each frame is applied in a
+ * {@link Observables#batch(Runnable) batch}, so listeners are notified once per observable per frame.
+ * <br>
+ * When a frame does not directly follow the last applied frame, later frames are ignored and a new snapshot is
+ * requested from the primary.
+ *
+ * @author Matt Coley
+ * @see ReplicationPrimary
+ */
+public class ReplicationReplica implements AutoCloseable {
+	private final Map<Integer, String> keys = new HashMap<>();
+	private final ObservableRegistry registry;
+	private final Socket socket;
+	private final Thread thread;
+	private Consumer<Exception> errorHandler = error -> {
+		Thread thread = Thread.currentThread();
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+	};
+	private volatile long sequence = -1;
+	private volatile int resyncCount;
+	private boolean awaitingSnapshot = true;
+	private volatile boolean closed;
+
+	/**
+	 * @param registry
+	 * 		Registry to apply replicated values to.
+	 * @param host
+	 * 		Host of the primary.
+	 * @param port
+	 * 		Port of the primary.
+	 *
+	 * @throws IOException
+	 * 		When the primary cannot be connected to.
+	 */
+	public ReplicationReplica(ObservableRegistry registry, String host, int port) throws IOException {
+		this.registry = Objects.requireNonNull(registry, "Registry must not be null");
+		socket = new Socket(host, port);
+		socket.setTcpNoDelay(true);
+		thread = new Thread(this::receive, "replication-replica");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @param errorHandler
+	 * 		Handler of failures to read or apply frames.
+	 * 		By default, failures are passed to the uncaught exception handler of the replica thread.
+	 *
+	 * @return Self.
+	 */
+	public ReplicationReplica withErrorHandler(Consumer<Exception> errorHandler) {
+		this.errorHandler = Objects.requireNonNull(errorHandler, "Error handler must not be null");
+		return this;
+	}
+
+	/**
+	 * @return Sequence number of the last applied frame, or {@code -1} before the first snapshot is applied.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return Number of snapshots requested after gaps in the received frames.
+	 */
+	public int getResyncCount() {
+		return resyncCount;
+	}
+
+	/**
+	 * @return {@code true} while connected to the primary.
+	 */
+	public boolean isConnected() {
+		return !closed && thread.isAlive();
+	}
+
+	/**
+	 * Disconnects from the primary. Replicated observables keep their last values.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			socket.close();
+		} catch (IOException ignored) {
+			// Closing anyways
+		}
+	}
+
+	private void receive() {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+			while (!closed) {
+				byte[] frame = new byte[in.readInt()];
+				in.readFully(frame);
+				handle(new DataInputStream(new ByteArrayInputStream(frame)));
+			}
+		} catch (IOException ex) {
+			if (!closed)
+				errorHandler.accept(ex);
+		} finally {
+			close();
+		}
+	}
+
+	private void handle(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		long frameSequence = in.readLong();
+		int count = Protocol.readVarInt(in);
+		if (type == Protocol.FRAME_SNAPSHOT) {
+			applySnapshot(in, count);
+			awaitingSnapshot = false;
+			sequence = frameSequence;
+		} else if (type == Protocol.FRAME_DELTA) {
+			if (awaitingSnapshot || frameSequence <= sequence)
+				return;
+			if (frameSequence != sequence + 1) {
+				// Frames were dropped, everything until the next snapshot is unusable
+				awaitingSnapshot = true;
+				resyncCount++;
+				OutputStream out = socket.getOutputStream();
+				out.write(Protocol.REQUEST_RESYNC);
+				out.flush();
+				return;
+			}
+			applyDeltas(in, count);
+			sequence = frameSequence;
+		} else {
+			throw new IOException("Unknown frame type: " + type);
+		}
+	}
+
+	private void applySnapshot(DataInputStream in, int count) throws IOException {
+		Map<String, Object> values = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			int id = Protocol.readVarInt(in);
+			String key = Protocol.readString(in);
+			keys.put(id, key);
+			values.put(key, Protocol.readValue(in));
+		}
+		apply(() -> values.forEach((key, value) -> {
+			Observable<?> observable = registry.get(key);
+			if (observable == null)
+				registry.getOrRegister(key, () -> create(value));
+			else
+				assign(observable, value);
+		}));
+	}
+
+	private void applyDeltas(DataInputStream in, int count) throws IOException {
+		List<Runnable> updates = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String key = keys.get(Protocol.readVarInt(in));
+			if (key == null)
+				throw new IOException("Delta for unknown id");
+			byte op = in.readByte();
+			updates.add(readDelta(in, op, key));
+		}
+		apply(() -> updates.forEach(Runnable::run));
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private Runnable readDelta(DataInputStream in, byte op, String key) throws IOException {
+		switch (op) {
+			case Protocol.OP_SET: {
+				Object value = Protocol.readValue(in);
+				return () -> {
+					Observable<?> observable = registry.get(key);
+					if (observable != null)
+						assign(observable, value);
+				};
+			}
+			case Protocol.OP_LIST_SPLICE: {
+				int index = Protocol.readVarInt(in);
+				int removed = Protocol.readVarInt(in);
+				List<Object> inserted = Protocol.readElements(in, new ArrayList<>());
+				return () -> {
+					Observable observable = registry.get(key);
+					if (observable instanceof ObservableList) {
+						// One copy for the whole splice
+						((ObservableList) observable).update(copy -> {
+							List list = (List) copy;
+							list.subList(index, index + removed).clear();
+							list.addAll(index, inserted);
+						});
+					} else if (observable != null) {
+						List copy = new ArrayList((List) observable.getValue());
+						copy.subList(index, index + removed).clear();
+						copy.addAll(index, inserted);
+						assign(observable, copy);
+					}
+				};
+			}
+			case Protocol.OP_MAP_DELTA: {
+				List<Object> removed = Protocol.readElements(in, new ArrayList<>());
+				int size = Protocol.readVarInt(in);
+				Map<Object, Object> put = new LinkedHashMap<>();
+				for (int i = 0; i < size; i++)
+					put.put(Protocol.readValue(in), Protocol.readValue(in));
+				return () -> {
+					Observable observable = registry.get(key);
+					if (observable instanceof ObservableMap) {
+						((ObservableMap) observable).update(copy -> {
+							Map map = (Map) copy;
+							map.keySet().removeAll(removed);
+							map.putAll(put);
+						});
+					} else if (observable != null) {
+						Map copy = new LinkedHashMap((Map) observable.getValue());
+						copy.keySet().removeAll(removed);
+						copy.putAll(put);
+						assign(observable, copy);
+					}
+				};
+			}
+			case Protocol.OP_SET_DELTA: {
+				List<Object> removed = Protocol.readElements(in, new ArrayList<>());
+				List<Object> added = Protocol.readElements(in, new ArrayList<>());
+				return () -> {
+					Observable observable = registry.get(key);
+					if (observable instanceof ObservableCollection) {
+						((ObservableCollection) observable).update(copy -> {
+							Collection collection = (Collection) copy;
+							collection.removeAll(removed);
+							collection.addAll(added);
+						});
+					} else if (observable != null) {
+						Set copy = new LinkedHashSet((Collection) observable.getValue());
+						copy.removeAll(removed);
+						copy.addAll(added);
+						assign(observable, copy);
+					}
+				};
+			}
+			default:
+				throw new IOException("Unknown delta operation: " + op);
+		}
+	}
+
+	private void apply(Runnable action) {
+		try {
+			registry.update(action);
+		} catch (RuntimeException ex) {
+			errorHandler.accept(ex);
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static void assign(Observable observable, Object value) {
+		try {
+			observable.setValue(value);
+		} catch (BoundValueSetException ignored) {
+			// Value is derived from another observable
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Observable<?> create(Object value) {
+		if (value instanceof Integer)
+			return new ObservableInteger((Integer) value);
+		if (value instanceof Long)
+			return new ObservableLong((Long) value);
+		if (value instanceof Double)
+			return new ObservableDouble((Double) value);
+		if (value instanceof Float)
+			return new ObservableFloat((Float) value);
+		if (value instanceof Short)
+			return new ObservableShort((Short) value);
+		if (value instanceof Byte)
+			return new ObservableByte((Byte) value);
+		if (value instanceof Boolean)
+			return new ObservableBoolean((Boolean) value);
+		if (value instanceof Character)
+			return new ObservableCharacter((Character) value);
+		if (value instanceof String)
+			return new ObservableString((String) value);
+		if (value instanceof List)
+			return new ObservableList<>((List) value, ArrayList::new);
+		if (value instanceof Set)
+			return new ObservableSet<>((Set) value, LinkedHashSet::new);
+		if (value instanceof Map)
+			return new ObservableMap<>((Map) value, LinkedHashMap::new);
+		return new ObservableObject<>(value);
+	}
+}
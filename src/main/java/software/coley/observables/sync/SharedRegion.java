@@ -0,0 +1,506 @@
+package software.coley.observables.sync;
+
+import software.coley.observables.AbstractObservable;
+import software.coley.observables.BoundValueSetException;
+import software.coley.observables.ChangeListener;
+import software.coley.observables.ObservableDouble;
+import software.coley.observables.ObservableLong;
+import software.coley.observables.WaitStrategy;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fixed number of slots in a memory-mapped file, shared by every process mapping the same file.
+ * <br>
+ * Each slot holds a record of a fixed number of {@code long} words, guarded by a sequence counter. Writers make the
+ * counter odd while writing and even again once done, and readers retry until they read the same even counter before
+ * and after the words, so records are never read torn. Memory fences order the counter and the words, as mapped
+ * buffers have no ordered accessors on Java 8. Writers are serialized by a file lock on the slot, so any number of
+ * processes may write the same slot. Taking and releasing the file lock costs two system calls per write, on top of
+ * a monitor shared by all regions of the file in this JVM, so writes cost microseconds where reads cost nanoseconds.
+ * Readers take no lock. A writer which dies while writing leaves the counter odd,
+ * and readers of the slot wait until the next write repairs it.
+ * <br>
+ * Slots can be viewed as {@link ObservableLong} and {@link ObservableDouble} instances holding the first word of the
+ * slot. Setting the value of a view writes it to the file. Changes from other processes are detected by comparing
+ * sequence counters, either on calls to {@link #poll()} or by a polling thread started with
+ * {@link #startPolling(WaitStrategy)}, and are then assigned to the views.
+ * <br>
+ * All processes must map the file with the same layout, and must run on the same machine.
+ *
+ * @author Matt Coley
+ */
+public class SharedRegion implements AutoCloseable {
+	private static final int MAGIC = 0x4F425352;
+	private static final int HEADER_SIZE = 16;
+	// Monitors of files mapped by this JVM. File locks are held per JVM, so writers within it must not overlap.
+	private static final Map<Path, Object> FILE_MONITORS = new ConcurrentHashMap<>();
+	private static final MethodHandle STORE_FENCE;
+	private static final MethodHandle LOAD_FENCE;
+	private final Object pollLock = new Object();
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final Object fileMonitor;
+	private final int slotCount;
+	private final int slotWords;
+	private final int slotSize;
+	private final AbstractObservable<?>[] views;
+	// Sequence and first word of each slot as last written or polled by this region, guarded by this
+	private final long[] seen;
+	private final long[] known;
+	private Thread poller;
+	private volatile boolean closed;
+
+	static {
+		try {
+			Class<?> unsafeType = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeType.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Object unsafe = field.get(null);
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodType type = MethodType.methodType(void.class);
+			STORE_FENCE = lookup.findVirtual(unsafeType, "storeFence", type).bindTo(unsafe);
+			LOAD_FENCE = lookup.findVirtual(unsafeType, "loadFence", type).bindTo(unsafe);
+		} catch (ReflectiveOperationException ex) {
+			throw new ExceptionInInitializerError(ex);
+		}
+	}
+
+	/**
+	 * @param path
+	 * 		File to map. Created when it does not exist.
+	 * @param slotCount
+	 * 		Number of slots.
+	 * @param slotWords
+	 * 		Number of {@code long} words in the record of each slot.
+	 *
+	 * @throws IOException
+	 * 		When the file cannot be mapped, or was created with a different layout.
+	 */
+	public SharedRegion(Path path, int slotCount, int slotWords) throws IOException {
+		Objects.requireNonNull(path, "Path must not be null");
+		if (slotCount <= 0)
+			throw new IllegalArgumentException("Slot count must be positive: " + slotCount);
+		if (slotWords <= 0)
+			throw new IllegalArgumentException("Slot words must be positive: " + slotWords);
+		long size = HEADER_SIZE + (long) slotCount * (slotWords + 1) * Long.BYTES;
+		if (size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Region too large to map: " + size + " bytes");
+		this.slotCount = slotCount;
+		this.slotWords = slotWords;
+		slotSize = (slotWords + 1) * Long.BYTES;
+		views = new AbstractObservable<?>[slotCount];
+		seen = new long[slotCount];
+		known = new long[slotCount];
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			fileMonitor = FILE_MONITORS.computeIfAbsent(path.toRealPath(), p -> new Object());
+			synchronized (fileMonitor) {
+				FileLock lock = channel.lock(0, HEADER_SIZE, false);
+				try {
+					boolean created = channel.size() == 0;
+					buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+					buffer.order(ByteOrder.nativeOrder());
+					if (created) {
+						buffer.putInt(0, MAGIC);
+						buffer.putInt(4, slotCount);
+						buffer.putInt(8, slotWords);
+					} else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != slotCount || buffer.getInt(8) != slotWords) {
+						throw new IOException("File " + path + " is not a region of " + slotCount + " slots of "
+								+ slotWords + " words");
+					}
+				} finally {
+					lock.release();
+				}
+			}
+		} catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * @return Number of slots.
+	 */
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * @return Number of {@code long} words in the record of each slot.
+	 */
+	public int getSlotWords() {
+		return slotWords;
+	}
+
+	/**
+	 * @param slot
+	 * 		Slot index.
+	 *
+	 * @return Number of completed writes to the slot, by any process.
+	 */
+	public long getSequence(int slot) {
+		return stableSequence(offset(slot)) >>> 1;
+	}
+
+	/**
+	 * Reads the record of a slot, as written by a single write.
+	 *
+	 * @param slot
+	 * 		Slot index.
+	 * @param words
+	 * 		Array to fill with the words of the record. Must hold at least {@link #getSlotWords()} words.
+	 *
+	 * @return Number of completed writes to the slot as of the read.
+	 */
+	public long read(int slot, long[] words) {
+		if (words.length < slotWords)
+			throw new IllegalArgumentException("Array too small for " + slotWords + " words");
+		int offset = offset(slot);
+		while (true) {
+			long sequence = stableSequence(offset);
+			for (int i = 0; i < slotWords; i++)
+				words[i] = buffer.getLong(offset + (i + 1) * Long.BYTES);
+			if (validate(offset, sequence))
+				return sequence >>> 1;
+		}
+	}
+
+	/**
+	 * Writes the record of a slot. Views of the slot in this region are not updated until the next poll.
+	 * Each write takes a file lock on the slot, see the class documentation for its cost.
+	 *
+	 * @param slot
+	 * 		Slot index.
+	 * @param words
+	 * 		Words of the record. Must hold exactly {@link #getSlotWords()} words.
+	 *
+	 * @return Number of completed writes to the slot, including this one.
+	 *
+	 * @throws IOException
+	 * 		When the slot cannot be locked.
+	 */
+	public long write(int slot, long[] words) throws IOException {
+		if (words.length != slotWords)
+			throw new IllegalArgumentException("Expected " + slotWords + " words, got " + words.length);
+		return store(offset(slot), words) >>> 1;
+	}
+
+	/**
+	 * @param slot
+	 * 		Slot index.
+	 *
+	 * @return View of the first word of the slot as a {@code long}.
+	 *
+	 * @throws IllegalStateException
+	 * 		When the slot is already viewed as another type.
+	 */
+	public synchronized ObservableLong longValue(int slot) {
+		AbstractObservable<?> view = views[checkSlot(slot)];
+		if (view == null) {
+			ObservableLong ob = new ObservableLong(attach(slot));
+			ob.addChangeListener(new ViewWriter<>(slot, value -> value));
+			views[slot] = view = ob;
+		} else if (!(view instanceof ObservableLong)) {
+			throw new IllegalStateException("Slot " + slot + " is already viewed as " + view.getClass().getSimpleName());
+		}
+		return (ObservableLong) view;
+	}
+
+	/**
+	 * @param slot
+	 * 		Slot index.
+	 *
+	 * @return View of the first word of the slot as a {@code double}.
+	 *
+	 * @throws IllegalStateException
+	 * 		When the slot is already viewed as another type.
+	 */
+	public synchronized ObservableDouble doubleValue(int slot) {
+		AbstractObservable<?> view = views[checkSlot(slot)];
+		if (view == null) {
+			ObservableDouble ob = new ObservableDouble(Double.longBitsToDouble(attach(slot)));
+			ob.addChangeListener(new ViewWriter<>(slot, Double::doubleToRawLongBits));
+			views[slot] = view = ob;
+		} else if (!(view instanceof ObservableDouble)) {
+			throw new IllegalStateException("Slot " + slot + " is already viewed as " + view.getClass().getSimpleName());
+		}
+		return (ObservableDouble) view;
+	}
+
+	/**
+	 * Assigns the values written by other processes to the views of their slots.
+	 * Listeners of the views are notified on the calling thread.
+	 * <br>
+	 * A value set on a view while polling takes precedence: polling only replaces the value a view had when the
+	 * polled value was read, so a newer local value is neither replaced nor written back over with an older one.
+	 *
+	 * @return Number of views updated.
+	 */
+	public int poll() {
+		synchronized (pollLock) {
+			int updated = 0;
+			for (int slot = 0; slot < slotCount; slot++) {
+				int offset = offset(slot);
+				AbstractObservable<?> view;
+				long sequence;
+				long bits;
+				synchronized (this) {
+					view = views[slot];
+					if (view == null || buffer.getLong(offset) == seen[slot])
+						continue;
+				}
+				do {
+					sequence = stableSequence(offset);
+					bits = buffer.getLong(offset + Long.BYTES);
+				} while (!validate(offset, sequence));
+				long expectedBits;
+				synchronized (this) {
+					// Skip values already superseded by a write from this region
+					if (sequence <= seen[slot])
+						continue;
+					expectedBits = known[slot];
+				}
+				// A view holding anything but the last known value has a local write pending, which wins
+				Object current = view.getValue();
+				if (current == null || toBits(current) != expectedBits)
+					continue;
+				synchronized (this) {
+					if (sequence <= seen[slot] || known[slot] != expectedBits)
+						continue;
+					// Known before assigning, so that the view writer recognizes the value as already written
+					seen[slot] = sequence;
+					known[slot] = bits;
+				}
+				try {
+					// Fails when a local value is set since it was read, that value is then written after this one
+					if (!assign(view, current, bits))
+						continue;
+				} catch (BoundValueSetException ignored) {
+					// View is bound to another observable, its value is written from there
+				}
+				updated++;
+			}
+			return updated;
+		}
+	}
+
+	/**
+	 * Starts a thread polling for changes until the region is closed.
+	 *
+	 * @param waitStrategy
+	 * 		Strategy for waiting between polls which find no changes.
+	 * 		Must not be {@link WaitStrategy#blocking() blocking}, as writes by other processes cannot signal it.
+	 *
+	 * @return Self.
+	 */
+	public synchronized SharedRegion startPolling(WaitStrategy waitStrategy) {
+		Objects.requireNonNull(waitStrategy, "Wait strategy must not be null");
+		if (waitStrategy instanceof WaitStrategy.BlockingWaitStrategy)
+			throw new IllegalArgumentException("Blocking wait strategy is never signalled by other processes");
+		if (poller != null)
+			throw new IllegalStateException("Region is already polling");
+		poller = new Thread(() -> {
+			int attempt = 0;
+			while (!closed) {
+				if (poll() > 0)
+					attempt = 0;
+				else
+					waitStrategy.idle(attempt++);
+			}
+		}, "shared-region-poller");
+		poller.setDaemon(true);
+		poller.start();
+		return this;
+	}
+
+	/**
+	 * Stops polling and closes the file. The mapping itself is released once the region is garbage collected.
+	 */
+	@Override
+	public void close() {
+		Thread poller;
+		synchronized (this) {
+			closed = true;
+			poller = this.poller;
+		}
+		if (poller != null && poller != Thread.currentThread()) {
+			try {
+				poller.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			channel.close();
+		} catch (IOException ignored) {
+			// Closing anyways
+		}
+	}
+
+	/**
+	 * @return Bits of a value of a view.
+	 */
+	private static long toBits(Object value) {
+		if (value instanceof Double)
+			return Double.doubleToRawLongBits((Double) value);
+		return (Long) value;
+	}
+
+	/**
+	 * @param view
+	 * 		View to assign to.
+	 * @param expected
+	 * 		Value of the view the new value replaces.
+	 * @param bits
+	 * 		Bits of the new value.
+	 *
+	 * @return {@code true} when assigned, {@code false} when the view no longer holds the expected value.
+	 */
+	private static boolean assign(AbstractObservable<?> view, Object expected, long bits) {
+		if (view instanceof ObservableLong)
+			return ((ObservableLong) view).compareAndSetValue((Long) expected, bits);
+		return ((ObservableDouble) view).compareAndSetValue((Double) expected, Double.longBitsToDouble(bits));
+	}
+
+	/**
+	 * Records the current state of a slot as seen, before a view of it is created.
+	 *
+	 * @return First word of the slot.
+	 */
+	private long attach(int slot) {
+		int offset = offset(slot);
+		long sequence;
+		long bits;
+		do {
+			sequence = stableSequence(offset);
+			bits = buffer.getLong(offset + Long.BYTES);
+		} while (!validate(offset, sequence));
+		seen[slot] = sequence;
+		known[slot] = bits;
+		return bits;
+	}
+
+	/**
+	 * @return New sequence counter of the slot.
+	 */
+	private synchronized long store(int offset, long[] words) throws IOException {
+		if (closed)
+			throw new IllegalStateException("Region has been closed");
+		long sequence;
+		synchronized (fileMonitor) {
+			FileLock lock = channel.lock(offset, slotSize, false);
+			try {
+				// Holding the lock, an odd counter can only be left by a writer which died, continue from it as if done
+				sequence = buffer.getLong(offset) | 1;
+				buffer.putLong(offset, sequence);
+				storeFence();
+				for (int i = 0; i < words.length; i++)
+					buffer.putLong(offset + (i + 1) * Long.BYTES, words[i]);
+				storeFence();
+				buffer.putLong(offset, ++sequence);
+			} finally {
+				lock.release();
+			}
+		}
+		return sequence;
+	}
+
+	/**
+	 * @return Even sequence counter of the slot, waiting out writes in progress.
+	 */
+	private long stableSequence(int offset) {
+		while (true) {
+			long sequence = buffer.getLong(offset);
+			loadFence();
+			if ((sequence & 1) == 0)
+				return sequence;
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * @return {@code true} when no write started since the counter was read.
+	 */
+	private boolean validate(int offset, long sequence) {
+		loadFence();
+		return buffer.getLong(offset) == sequence;
+	}
+
+	/**
+	 * Keeps stores before the fence from being reordered with stores after it.
+	 */
+	private static void storeFence() {
+		try {
+			STORE_FENCE.invokeExact();
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	/**
+	 * Keeps loads before the fence from being reordered with loads after it.
+	 */
+	private static void loadFence() {
+		try {
+			LOAD_FENCE.invokeExact();
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+	}
+
+	private int offset(int slot) {
+		return HEADER_SIZE + checkSlot(slot) * slotSize;
+	}
+
+	private int checkSlot(int slot) {
+		if (slot < 0 || slot >= slotCount)
+			throw new IndexOutOfBoundsException("Slot " + slot + " out of bounds for " + slotCount + " slots");
+		return slot;
+	}
+
+	/**
+	 * Writes values set on a view to its slot.
+	 */
+	private class ViewWriter<T> implements ChangeListener<T> {
+		private final int slot;
+		private final ToLongFunction<T> toBits;
+
+		private ViewWriter(int slot, ToLongFunction<T> toBits) {
+			this.slot = slot;
+			this.toBits = toBits;
+		}
+
+		@Override
+		public void changed(AbstractObservable<? extends T> observable, T oldValue, T newValue) {
+			long bits = toBits.applyAsLong(newValue);
+			synchronized (SharedRegion.this) {
+				// Values assigned by polling are already in the file. Values replaced before being written are
+				// skipped, as the write of the value replacing them follows, and would otherwise be reverted.
+				if (closed || bits == known[slot] || observable.getValue() != newValue)
+					return;
+				try {
+					// Marked as seen, so that polling does not assign the value back to the view
+					seen[slot] = store(offset(slot), new long[]{bits});
+					known[slot] = bits;
+				} catch (IOException ex) {
+					throw new IllegalStateException("Failed to write slot " + slot, ex);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,504 @@
+package software.coley.observables.util;
+
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Precompiled {@link String#format(String, Object...)} pattern.
+ * <br>
+ * The pattern is parsed once, and rendered into a reusable {@link StringBuilder} per thread.
+ * Common conversions are rendered directly:
+ * <ul>
+ * <li>{@code %d} for {@code int}, {@code long}, {@code short} and {@code byte} values.</li>
+ * <li>{@code %x} and {@code %X} for the same integral types.</li>
+ * <li>{@code %f} for {@code float} and {@code double} values, rounding half-up as {@link java.util.Formatter} does.</li>
+ * <li>{@code %s}, {@code %%} and {@code %n}.</li>
+ * </ul>
+ * The flags {@code -}, {@code 0} and {@code +} along with width and precision are supported for these conversions.
+ * Any other conversion, flag, or argument type is delegated to {@link String#format(Locale, String, Object...)}
+ * for that single field, so output and exceptions match {@code String.format}.
+ *
+ * @author Matt Coley
+ */
+public final class FormatTemplate {
+	private static final char[] HEX_LOWER = "0123456789abcdef".toCharArray();
+	private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+	private static final int LITERAL = 0;
+	private static final int INTEGER = 1;
+	private static final int HEX = 2;
+	private static final int DECIMAL = 3;
+	private static final int STRING = 4;
+	private static final int FALLBACK = 5;
+	private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(StringBuilder::new);
+	private final ThreadLocal<char[]> digitBuffers = ThreadLocal.withInitial(() -> new char[32]);
+	private final String format;
+	private final Locale locale;
+	private final Segment[] segments;
+	private final int argumentCount;
+	private final char decimalSeparator;
+
+	private FormatTemplate(String format, Locale locale) {
+		this.format = format;
+		this.locale = locale;
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+		this.decimalSeparator = symbols.getDecimalSeparator();
+		boolean plainDigits = symbols.getZeroDigit() == '0' && symbols.getMinusSign() == '-';
+		this.segments = parse(format, plainDigits);
+		int count = 0;
+		if (segments != null)
+			for (Segment segment : segments)
+				if (segment.consumesArgument)
+					count++;
+		this.argumentCount = count;
+	}
+
+	/**
+	 * @param format
+	 * 		Format pattern, as used by {@link String#format(String, Object...)}.
+	 *
+	 * @return Compiled template, using the default {@link Locale.Category#FORMAT format locale}.
+	 */
+	public static FormatTemplate compile(String format) {
+		return compile(format, Locale.getDefault(Locale.Category.FORMAT));
+	}
+
+	/**
+	 * @param format
+	 * 		Format pattern, as used by {@link String#format(Locale, String, Object...)}.
+	 * @param locale
+	 * 		Locale to format with.
+	 *
+	 * @return Compiled template.
+	 */
+	public static FormatTemplate compile(String format, Locale locale) {
+		Objects.requireNonNull(format, "Format must not be null");
+		Objects.requireNonNull(locale, "Locale must not be null");
+		return new FormatTemplate(format, locale);
+	}
+
+	/**
+	 * @return Original format pattern.
+	 */
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * @param arg
+	 * 		Single format argument.
+	 *
+	 * @return Formatted text.
+	 */
+	public String format(Object arg) {
+		StringBuilder sb = buffers.get();
+		sb.setLength(0);
+		if (segments == null || argumentCount > 1)
+			sb.append(String.format(locale, format, arg));
+		else
+			render(sb, arg, null);
+		return sb.toString();
+	}
+
+	/**
+	 * @param args
+	 * 		Format arguments.
+	 *
+	 * @return Formatted text.
+	 */
+	public String format(Object... args) {
+		StringBuilder sb = buffers.get();
+		sb.setLength(0);
+		return formatTo(sb, args).toString();
+	}
+
+	/**
+	 * @param sb
+	 * 		Builder to append formatted text to.
+	 * @param args
+	 * 		Format arguments.
+	 *
+	 * @return Same builder.
+	 */
+	public StringBuilder formatTo(StringBuilder sb, Object... args) {
+		if (segments == null || args == null || args.length < argumentCount)
+			sb.append(String.format(locale, format, args));
+		else
+			render(sb, null, args);
+		return sb;
+	}
+
+	/**
+	 * @param sb
+	 * 		Builder to append to.
+	 * @param single
+	 * 		Single argument, used when {@code args} is {@code null}.
+	 * @param args
+	 * 		Arguments.
+	 */
+	private void render(StringBuilder sb, Object single, Object[] args) {
+		int argIndex = 0;
+		for (Segment segment : segments) {
+			Object arg = null;
+			if (segment.consumesArgument)
+				arg = args == null ? single : args[argIndex++];
+			switch (segment.kind) {
+				case LITERAL:
+					sb.append(segment.text);
+					break;
+				case INTEGER:
+					if (!appendInteger(sb, segment, arg))
+						appendFallback(sb, segment, arg);
+					break;
+				case HEX:
+					if (!appendHex(sb, segment, arg))
+						appendFallback(sb, segment, arg);
+					break;
+				case DECIMAL:
+					if (!appendDecimal(sb, segment, arg))
+						appendFallback(sb, segment, arg);
+					break;
+				case STRING:
+					if (!appendString(sb, segment, arg))
+						appendFallback(sb, segment, arg);
+					break;
+				default:
+					appendFallback(sb, segment, arg);
+					break;
+			}
+		}
+	}
+
+	private void appendFallback(StringBuilder sb, Segment segment, Object arg) {
+		if (segment.consumesArgument)
+			sb.append(String.format(locale, segment.text, arg));
+		else
+			sb.append(String.format(locale, segment.text));
+	}
+
+	private static boolean appendInteger(StringBuilder sb, Segment segment, Object arg) {
+		if (!(arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte))
+			return false;
+		long value = ((Number) arg).longValue();
+		int start = sb.length();
+		if (segment.plus && value >= 0)
+			sb.append('+');
+		sb.append(value);
+		pad(sb, segment, start, value < 0 || segment.plus ? 1 : 0);
+		return true;
+	}
+
+	private static boolean appendHex(StringBuilder sb, Segment segment, Object arg) {
+		long value;
+		int bits;
+		if (arg instanceof Integer) {
+			value = ((Integer) arg) & 0xFFFFFFFFL;
+			bits = 32;
+		} else if (arg instanceof Long) {
+			value = (Long) arg;
+			bits = 64;
+		} else if (arg instanceof Short) {
+			value = ((Short) arg) & 0xFFFFL;
+			bits = 16;
+		} else if (arg instanceof Byte) {
+			value = ((Byte) arg) & 0xFFL;
+			bits = 8;
+		} else {
+			return false;
+		}
+		char[] digits = segment.upper ? HEX_UPPER : HEX_LOWER;
+		int start = sb.length();
+		boolean leading = true;
+		for (int shift = bits - 4; shift >= 0; shift -= 4) {
+			int digit = (int) ((value >>> shift) & 0xF);
+			if (leading && digit == 0 && shift > 0)
+				continue;
+			leading = false;
+			sb.append(digits[digit]);
+		}
+		pad(sb, segment, start, 0);
+		return true;
+	}
+
+	private boolean appendDecimal(StringBuilder sb, Segment segment, Object arg) {
+		if (!(arg instanceof Double || arg instanceof Float))
+			return false;
+		double value = ((Number) arg).doubleValue();
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return false;
+		int precision = segment.precision < 0 ? 6 : segment.precision;
+
+		// Collect the shortest decimal digits of the value, which is what Formatter rounds from.
+		// The digit at index 'k' has a place value of 10^(point - 1 - k).
+		String text = Double.toString(Math.abs(value));
+		char[] digits = digitBuffers.get();
+		int count = 0;
+		int point = -1;
+		int exponent = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '.') {
+				point = count;
+			} else if (c == 'E') {
+				exponent = parseExponent(text, i + 1);
+				break;
+			} else {
+				digits[count++] = c;
+			}
+		}
+		if (point < 0)
+			point = count;
+		point += exponent;
+
+		// Round half-up at the requested precision
+		int cut = point + precision;
+		if (cut < count) {
+			boolean roundUp = cut >= 0 && digits[cut] >= '5';
+			count = Math.max(cut, 0);
+			if (roundUp) {
+				int i = count - 1;
+				while (i >= 0 && digits[i] == '9')
+					digits[i--] = '0';
+				if (i >= 0) {
+					digits[i]++;
+				} else {
+					if (count + 1 > digits.length) {
+						digits = java.util.Arrays.copyOf(digits, count + 1);
+						digitBuffers.set(digits);
+					}
+					System.arraycopy(digits, 0, digits, 1, count);
+					digits[0] = '1';
+					count++;
+					point++;
+				}
+			}
+		}
+
+		int start = sb.length();
+		boolean negative = Double.compare(value, 0.0) < 0;
+		if (negative)
+			sb.append('-');
+		else if (segment.plus)
+			sb.append('+');
+		if (point <= 0) {
+			sb.append('0');
+		} else {
+			for (int k = 0; k < point; k++)
+				sb.append(k < count ? digits[k] : '0');
+		}
+		if (precision > 0) {
+			sb.append(decimalSeparator);
+			for (int j = 1; j <= precision; j++) {
+				int k = point - 1 + j;
+				sb.append(k >= 0 && k < count ? digits[k] : '0');
+			}
+		}
+		pad(sb, segment, start, negative || segment.plus ? 1 : 0);
+		return true;
+	}
+
+	private static boolean appendString(StringBuilder sb, Segment segment, Object arg) {
+		if (arg instanceof java.util.Formattable)
+			return false;
+		int start = sb.length();
+		String text = String.valueOf(arg);
+		if (segment.precision >= 0 && segment.precision < text.length())
+			sb.append(text, 0, segment.precision);
+		else
+			sb.append(text);
+		pad(sb, segment, start, 0);
+		return true;
+	}
+
+	/**
+	 * @param sb
+	 * 		Builder with the field text appended.
+	 * @param segment
+	 * 		Field segment.
+	 * @param start
+	 * 		Start of the field text in the builder.
+	 * @param signLength
+	 * 		Length of the sign prefix of the field text, which zero padding is inserted after.
+	 */
+	private static void pad(StringBuilder sb, Segment segment, int start, int signLength) {
+		int padding = segment.width - (sb.length() - start);
+		if (padding <= 0)
+			return;
+		if (segment.leftAlign) {
+			for (int i = 0; i < padding; i++)
+				sb.append(' ');
+		} else {
+			char pad = segment.zeroPad ? '0' : ' ';
+			int at = segment.zeroPad ? start + signLength : start;
+			for (int i = 0; i < padding; i++)
+				sb.insert(at, pad);
+		}
+	}
+
+	private static int parseExponent(String text, int offset) {
+		boolean negative = text.charAt(offset) == '-';
+		if (negative)
+			offset++;
+		int exponent = 0;
+		for (int i = offset; i < text.length(); i++)
+			exponent = exponent * 10 + (text.charAt(i) - '0');
+		return negative ? -exponent : exponent;
+	}
+
+	/**
+	 * @param format
+	 * 		Format pattern.
+	 * @param plainDigits
+	 * 		Flag indicating the locale uses ASCII digits and minus sign, allowing numeric fast paths.
+	 *
+	 * @return Segments of the pattern, or {@code null} if the pattern uses explicit argument indices
+	 * or is malformed, in which case it must be formatted as a whole.
+	 */
+	private static Segment[] parse(String format, boolean plainDigits) {
+		List<Segment> segments = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		int length = format.length();
+		int i = 0;
+		while (i < length) {
+			char c = format.charAt(i);
+			if (c != '%') {
+				literal.append(c);
+				i++;
+				continue;
+			}
+			int start = i++;
+			boolean leftAlign = false, zeroPad = false, plus = false, otherFlags = false;
+			int width = -1, precision = -1;
+
+			// Argument index is not supported, as it can reference any argument
+			int digitsEnd = i;
+			while (digitsEnd < length && Character.isDigit(format.charAt(digitsEnd)))
+				digitsEnd++;
+			if (digitsEnd < length && format.charAt(digitsEnd) == '$')
+				return null;
+
+			// Flags
+			while (i < length) {
+				char f = format.charAt(i);
+				if (f == '-') leftAlign = true;
+				else if (f == '0') zeroPad = true;
+				else if (f == '+') plus = true;
+				else if (f == '<') return null;
+				else if (f == '#' || f == ' ' || f == ',' || f == '(') otherFlags = true;
+				else break;
+				i++;
+			}
+
+			// Width
+			int widthStart = i;
+			while (i < length && Character.isDigit(format.charAt(i)))
+				i++;
+			if (i > widthStart)
+				width = parseInt(format, widthStart, i);
+
+			// Precision
+			if (i < length && format.charAt(i) == '.') {
+				int precisionStart = ++i;
+				while (i < length && Character.isDigit(format.charAt(i)))
+					i++;
+				if (i == precisionStart)
+					return null;
+				precision = parseInt(format, precisionStart, i);
+			}
+
+			// Conversion
+			if (i >= length)
+				return null;
+			char conversion = format.charAt(i++);
+			if ((conversion == 't' || conversion == 'T') && i < length)
+				i++;
+			String spec = format.substring(start, i);
+			if (conversion == '%' && !leftAlign && !zeroPad && !plus && !otherFlags && width < 0 && precision < 0) {
+				literal.append('%');
+				continue;
+			} else if (conversion == 'n' && !leftAlign && !zeroPad && !plus && !otherFlags && width < 0 && precision < 0) {
+				literal.append(System.lineSeparator());
+				continue;
+			}
+			if (literal.length() > 0) {
+				segments.add(new Segment(LITERAL, literal.toString(), false));
+				literal.setLength(0);
+			}
+			int kind = FALLBACK;
+			boolean validFlags = !otherFlags && !(leftAlign && zeroPad) && (width > 0 || !(leftAlign || zeroPad));
+			if (validFlags) {
+				switch (conversion) {
+					case 'd':
+						if (plainDigits && precision < 0)
+							kind = INTEGER;
+						break;
+					case 'x':
+					case 'X':
+						if (plainDigits && precision < 0 && !plus)
+							kind = HEX;
+						break;
+					case 'f':
+						if (plainDigits)
+							kind = DECIMAL;
+						break;
+					case 's':
+						if (!zeroPad && !plus)
+							kind = STRING;
+						break;
+					default:
+						break;
+				}
+			}
+			boolean consumesArgument = conversion != '%' && conversion != 'n';
+			Segment segment = new Segment(kind, spec, consumesArgument);
+			segment.leftAlign = leftAlign;
+			segment.zeroPad = zeroPad;
+			segment.plus = plus;
+			segment.upper = Character.isUpperCase(conversion);
+			segment.width = width;
+			segment.precision = precision;
+			segments.add(segment);
+		}
+		if (literal.length() > 0)
+			segments.add(new Segment(LITERAL, literal.toString(), false));
+		return segments.toArray(new Segment[0]);
+	}
+
+	private static int parseInt(String text, int start, int end) {
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			value = value * 10 + (text.charAt(i) - '0');
+			if (value < 0)
+				return Integer.MAX_VALUE;
+		}
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return format;
+	}
+
+	/**
+	 * Literal text, or a single format specifier.
+	 */
+	private static class Segment {
+		private final int kind;
+		private final String text;
+		private final boolean consumesArgument;
+		private boolean leftAlign;
+		private boolean zeroPad;
+		private boolean plus;
+		private boolean upper;
+		private int width = -1;
+		private int precision = -1;
+
+		private Segment(int kind, String text, boolean consumesArgument) {
+			this.kind = kind;
+			this.text = text;
+			this.consumesArgument = consumesArgument;
+		}
+	}
+}
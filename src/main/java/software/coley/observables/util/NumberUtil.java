@@ -16,6 +16,15 @@
 public class NumberUtil {
 	private static final Map<Class<? extends Number>, BiFunction<Number, Function<Object, ? extends Number>, ? extends ObservableNumber>> map = new IdentityHashMap<>();
 
+	private static final double[] DOUBLE_POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	private static final float[] FLOAT_POWERS_OF_TEN = {
+			1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+	private static final int MAX_MANTISSA_DIGITS = 18;
+
 	/**
 	 * @param input
 	 * 		Text input that represents a number.
@@ -27,50 +36,221 @@ public class NumberUtil {
 	 *
 	 * @return Number parsed from text.
 	 * Can be an {@link Integer}, {@link Long}, {@link Float}, or {@link Double}.
+	 *
+	 * @see #parse(CharSequence, int, int, ParsedNumber)
 	 */
-	@SuppressWarnings("")
 	public static Result parse(String input) {
-		String text = input.trim().toUpperCase();
-		Result value;
-		if (text.indexOf('.') > 0) {
-			value = parseDecimal(text);
-		} else {
-			if (text.endsWith("L") && text.startsWith("0X"))
-				value = new Result(Long.parseLong(text.substring(2, text.indexOf("L")), 16), Long.class);
-			else if (text.endsWith("L"))
-				value = new Result(Long.parseLong(text.substring(0, text.indexOf("L"))), Long.class);
-			else if (text.startsWith("0X"))
-				value = new Result(Integer.parseInt(text.substring(2), 16), Integer.class);
-			else if (text.endsWith("F"))
-				value = new Result(Float.parseFloat(text.substring(0, text.indexOf("F"))), Float.class);
-			else if (text.endsWith("D") || text.contains("."))
-				value = new Result(Double.parseDouble(text.substring(0, text.indexOf("D"))), Double.class);
-			else
-				value = new Result(Integer.parseInt(text), Integer.class);
-		}
-		return value;
+		ParsedNumber parsed = new ParsedNumber();
+		parse(input, 0, input.length(), parsed);
+		return new Result(parsed.toNumber(), parsed.getType());
 	}
 
 	/**
-	 * @param text
-	 * 		Text input that represents a decimal number.
+	 * @param input
+	 * 		Text input that represents a number.
+	 * @param out
+	 * 		Carrier to write the parsed value to.
+	 *
+	 * @return Carrier, holding the parsed value.
 	 *
-	 * @return Decimal number, either {@link Float} or {@link Double}.
+	 * @see #parse(CharSequence, int, int, ParsedNumber)
 	 */
-	private static Result parseDecimal(String text) {
-		text = text.toUpperCase();
-		if (text.endsWith("F"))
-			return new Result(Float.parseFloat(text.substring(0, text.indexOf("F"))), Float.class);
-
-		// Cut off 'D' suffix
-		if (text.endsWith("D"))
-			text = text.substring(text.length() - 1);
-
-		// Handle as double/int
-		if (text.contains("."))
-			return new Result(Double.parseDouble(text), Double.class);
-		else
-			return new Result(Integer.parseInt(text), Integer.class);
+	public static ParsedNumber parse(CharSequence input, ParsedNumber out) {
+		return parse(input, 0, input.length(), out);
+	}
+
+	/**
+	 * Parses a number in a single pass without allocating, except when a decimal number has more significant
+	 * digits or a larger exponent than can be converted exactly, in which case the text is passed to
+	 * {@link Double#parseDouble(String)} or {@link Float#parseFloat(String)}.
+	 * <ul>
+	 * <li>Leading and trailing whitespace is ignored.</li>
+	 * <li>Numbers starting with {@code 0x} are parsed as hexadecimal {@link Integer},
+	 * or {@link Long} when ending with {@code L}.</li>
+	 * <li>Numbers ending with {@code F} are parsed as {@link Float}.</li>
+	 * <li>Numbers ending with {@code D}, or containing a decimal point or exponent, are parsed as {@link Double}.</li>
+	 * <li>Numbers ending with {@code L} are parsed as {@link Long}.</li>
+	 * <li>Other numbers are parsed as {@link Integer}.</li>
+	 * </ul>
+	 * Suffixes and the hex prefix are case-insensitive.
+	 *
+	 * @param input
+	 * 		Text containing a number.
+	 * @param offset
+	 * 		Offset of the number in the text.
+	 * @param length
+	 * 		Length of the number in the text.
+	 * @param out
+	 * 		Carrier to write the parsed value to.
+	 *
+	 * @return Carrier, holding the parsed value.
+	 *
+	 * @throws NumberFormatException
+	 * 		When the text does not represent a number, or the number does not fit in its type.
+	 */
+	public static ParsedNumber parse(CharSequence input, int offset, int length, ParsedNumber out) {
+		if (offset < 0 || length < 0 || offset + length > input.length())
+			throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length) + ") out of bounds for length " + input.length());
+		int start = offset;
+		int end = offset + length;
+		while (start < end && input.charAt(start) <= ' ')
+			start++;
+		while (end > start && input.charAt(end - 1) <= ' ')
+			end--;
+		if (start == end)
+			throw invalid(input, offset, length);
+
+		// Sign
+		int i = start;
+		boolean negative = false;
+		char c = input.charAt(i);
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			i++;
+		}
+
+		// Hex integers, where 'F' and 'D' are digits rather than suffixes
+		if (i + 1 < end && input.charAt(i) == '0' && (input.charAt(i + 1) | 0x20) == 'x') {
+			boolean isLong = (input.charAt(end - 1) | 0x20) == 'l';
+			long limit = isLong ? Long.MAX_VALUE : Integer.MAX_VALUE;
+			long value = parseIntegral(input, offset, length, i + 2, isLong ? end - 1 : end, 16, limit, negative);
+			return isLong ? out.setLong(value) : out.setInt((int) value);
+		}
+
+		// Type suffix
+		char suffix = (char) (input.charAt(end - 1) | 0x20);
+		Class<? extends Number> type = null;
+		if (suffix == 'l')
+			type = Long.class;
+		else if (suffix == 'f')
+			type = Float.class;
+		else if (suffix == 'd')
+			type = Double.class;
+		int digitsEnd = type == null ? end : end - 1;
+		if (type == null) {
+			for (int j = i; j < digitsEnd; j++) {
+				char d = (char) (input.charAt(j) | 0x20);
+				if (d == '.' || d == 'e') {
+					type = Double.class;
+					break;
+				}
+			}
+			if (type == null)
+				type = Integer.class;
+		}
+
+		if (type == Integer.class || type == Long.class) {
+			long limit = type == Integer.class ? Integer.MAX_VALUE : Long.MAX_VALUE;
+			long value = parseIntegral(input, offset, length, i, digitsEnd, 10, limit, negative);
+			return type == Integer.class ? out.setInt((int) value) : out.setLong(value);
+		}
+		return parseFloating(input, offset, length, i, digitsEnd, negative, type == Float.class, out);
+	}
+
+	/**
+	 * Accumulates digits negatively, as {@link Long#parseLong(String, int)} does,
+	 * so that the minimum value of the type can be represented.
+	 *
+	 * @return Signed value of the digits.
+	 */
+	private static long parseIntegral(CharSequence input, int offset, int length,
+									  int start, int end, int radix, long limit, boolean negative) {
+		if (start >= end)
+			throw invalid(input, offset, length);
+		long min = negative ? -limit - 1 : -limit;
+		long multiplyMin = min / radix;
+		long result = 0;
+		for (int i = start; i < end; i++) {
+			char c = input.charAt(i);
+			int digit = radix == 10 ? c - '0' : Character.digit(c, radix);
+			if (digit < 0 || digit >= radix || result < multiplyMin)
+				throw invalid(input, offset, length);
+			result *= radix;
+			if (result < min + digit)
+				throw invalid(input, offset, length);
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	private static ParsedNumber parseFloating(CharSequence input, int offset, int length, int start, int end,
+											  boolean negative, boolean isFloat, ParsedNumber out) {
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean exact = true;
+		boolean seenDigit = false;
+		boolean seenPoint = false;
+		int i = start;
+		for (; i < end; i++) {
+			char c = input.charAt(i);
+			if (c >= '0' && c <= '9') {
+				seenDigit = true;
+				if (digits < MAX_MANTISSA_DIGITS) {
+					if (mantissa != 0 || c != '0')
+						digits++;
+					mantissa = mantissa * 10 + (c - '0');
+					if (seenPoint)
+						exponent--;
+				} else {
+					if (c != '0')
+						exact = false;
+					if (!seenPoint)
+						exponent++;
+				}
+			} else if (c == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				break;
+			}
+		}
+		if (!seenDigit)
+			throw invalid(input, offset, length);
+		if (i < end) {
+			char c = input.charAt(i);
+			if ((c | 0x20) != 'e' || ++i >= end)
+				throw invalid(input, offset, length);
+			boolean negativeExponent = false;
+			c = input.charAt(i);
+			if (c == '-' || c == '+') {
+				negativeExponent = c == '-';
+				if (++i >= end)
+					throw invalid(input, offset, length);
+			}
+			int explicit = 0;
+			for (; i < end; i++) {
+				int digit = input.charAt(i) - '0';
+				if (digit < 0 || digit > 9)
+					throw invalid(input, offset, length);
+				if (explicit < 100_000)
+					explicit = explicit * 10 + digit;
+			}
+			exponent += negativeExponent ? -explicit : explicit;
+		}
+
+		if (exact) {
+			if (mantissa == 0)
+				return isFloat ? out.setFloat(negative ? -0f : 0f) : out.setDouble(negative ? -0d : 0d);
+			if (isFloat) {
+				if (mantissa <= (1L << 24) && exponent >= -10 && exponent <= 10) {
+					float value = (float) mantissa;
+					value = exponent >= 0 ? value * FLOAT_POWERS_OF_TEN[exponent] : value / FLOAT_POWERS_OF_TEN[-exponent];
+					return out.setFloat(negative ? -value : value);
+				}
+			} else if (mantissa <= (1L << 53) && exponent >= -22 && exponent <= 22) {
+				double value = (double) mantissa;
+				value = exponent >= 0 ? value * DOUBLE_POWERS_OF_TEN[exponent] : value / DOUBLE_POWERS_OF_TEN[-exponent];
+				return out.setDouble(negative ? -value : value);
+			}
+		}
+
+		// Cannot convert exactly with primitive arithmetic, use the JDK's arbitrary precision conversion.
+		String text = input.subSequence(negative ? start - 1 : start, end).toString();
+		return isFloat ? out.setFloat(Float.parseFloat(text)) : out.setDouble(Double.parseDouble(text));
+	}
+
+	private static NumberFormatException invalid(CharSequence input, int offset, int length) {
+		return new NumberFormatException("For input string: \"" + input.subSequence(offset, offset + length) + "\"");
 	}
 
 	/**
@@ -378,4 +558,98 @@ public Class<? extends Number> getType() {
 			return type;
 		}
 	}
+
+	/**
+	 * Mutable carrier for numbers parsed by {@link #parse(CharSequence, int, int, ParsedNumber)}.
+	 * Values are held as primitives, so reusing a carrier avoids allocating boxed results.
+	 */
+	public static class ParsedNumber {
+		private Class<? extends Number> type = Integer.class;
+		private long longValue;
+		private double doubleValue;
+
+		/**
+		 * @return Parsed value type. One of {@link Integer}, {@link Long}, {@link Float}, or {@link Double}.
+		 */
+		public Class<? extends Number> getType() {
+			return type;
+		}
+
+		/**
+		 * @return {@code true} when the parsed value is an {@link Integer} or {@link Long}.
+		 */
+		public boolean isIntegral() {
+			return type == Integer.class || type == Long.class;
+		}
+
+		/**
+		 * @return Parsed value as {@code int}.
+		 */
+		public int intValue() {
+			return isIntegral() ? (int) longValue : (int) doubleValue;
+		}
+
+		/**
+		 * @return Parsed value as {@code long}.
+		 */
+		public long longValue() {
+			return isIntegral() ? longValue : (long) doubleValue;
+		}
+
+		/**
+		 * @return Parsed value as {@code float}.
+		 */
+		public float floatValue() {
+			return isIntegral() ? (float) longValue : (float) doubleValue;
+		}
+
+		/**
+		 * @return Parsed value as {@code double}.
+		 */
+		public double doubleValue() {
+			return isIntegral() ? (double) longValue : doubleValue;
+		}
+
+		/**
+		 * @return Parsed value, boxed as its {@link #getType() type}.
+		 */
+		public Number toNumber() {
+			if (type == Integer.class)
+				return (int) longValue;
+			if (type == Long.class)
+				return longValue;
+			if (type == Float.class)
+				return (float) doubleValue;
+			return doubleValue;
+		}
+
+		private ParsedNumber setInt(int value) {
+			type = Integer.class;
+			longValue = value;
+			return this;
+		}
+
+		private ParsedNumber setLong(long value) {
+			type = Long.class;
+			longValue = value;
+			return this;
+		}
+
+		private ParsedNumber setFloat(float value) {
+			type = Float.class;
+			doubleValue = value;
+			return this;
+		}
+
+		private ParsedNumber setDouble(double value) {
+			type = Double.class;
+			doubleValue = value;
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(toNumber());
+		}
+	}
 }
@@ -0,0 +1,415 @@
+package software.coley.observables.util;
+
+import java.util.Objects;
+
+/**
+ * Immutable text sequence, stored as a height-balanced tree of text chunks.
+ * <br>
+ * Edits such as {@link #insert(int, CharSequence)} and {@link #delete(int, int)} yield a new rope sharing all
+ * untouched chunks with the original, in {@code O(log n)} time. {@link #charAt(int)} and
+ * {@link #subSequence(int, int)} are also {@code O(log n)}, so large text can be edited and viewed
+ * without ever being materialized into a single string.
+ *
+ * @author Matt Coley
+ */
+public abstract class Rope implements CharSequence {
+	/**
+	 * Maximum length of a single chunk. Small edits to a chunk copy at most this many characters.
+	 */
+	static final int MAX_LEAF = 1024;
+	private static final Rope EMPTY = new Leaf("");
+
+	private Rope() {
+	}
+
+	/**
+	 * @return Empty rope.
+	 */
+	public static Rope empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * @param text
+	 * 		Text content.
+	 *
+	 * @return Rope of the given text.
+	 */
+	public static Rope of(CharSequence text) {
+		Objects.requireNonNull(text, "Text must not be null");
+		if (text instanceof Rope)
+			return (Rope) text;
+		int length = text.length();
+		if (length == 0)
+			return EMPTY;
+		if (length <= MAX_LEAF)
+			return new Leaf(text.toString());
+		int chunks = (length + MAX_LEAF - 1) / MAX_LEAF;
+		return build(text.toString(), 0, chunks, length);
+	}
+
+	/**
+	 * Builds a balanced tree from consecutive chunks of the given text.
+	 */
+	private static Rope build(String text, int fromChunk, int toChunk, int length) {
+		if (toChunk - fromChunk == 1) {
+			int start = fromChunk * MAX_LEAF;
+			return new Leaf(text.substring(start, Math.min(length, start + MAX_LEAF)));
+		}
+		int mid = (fromChunk + toChunk) >>> 1;
+		return new Concat(build(text, fromChunk, mid, length), build(text, mid, toChunk, length));
+	}
+
+	/**
+	 * @param text
+	 * 		Text to append.
+	 *
+	 * @return New rope with the given text at the end.
+	 */
+	public Rope append(CharSequence text) {
+		return join(this, of(text));
+	}
+
+	/**
+	 * @param offset
+	 * 		Position to insert at.
+	 * @param text
+	 * 		Text to insert.
+	 *
+	 * @return New rope with the given text inserted.
+	 */
+	public Rope insert(int offset, CharSequence text) {
+		checkOffset(offset);
+		Rope inserted = of(text);
+		if (inserted.length() == 0)
+			return this;
+		if (offset == length())
+			return join(this, inserted);
+		if (offset == 0)
+			return join(inserted, this);
+		Rope[] parts = split(this, offset);
+		return join(join(parts[0], inserted), parts[1]);
+	}
+
+	/**
+	 * @param start
+	 * 		Start offset, inclusive.
+	 * @param end
+	 * 		End offset, exclusive.
+	 *
+	 * @return New rope with the given range removed.
+	 */
+	public Rope delete(int start, int end) {
+		checkRange(start, end);
+		if (start == end)
+			return this;
+		Rope head = split(this, start)[0];
+		Rope tail = split(this, end)[1];
+		return join(head, tail);
+	}
+
+	/**
+	 * @param start
+	 * 		Start offset, inclusive.
+	 * @param end
+	 * 		End offset, exclusive.
+	 * @param text
+	 * 		Text to insert in place of the removed range.
+	 *
+	 * @return New rope with the given range replaced.
+	 */
+	public Rope replace(int start, int end, CharSequence text) {
+		checkRange(start, end);
+		Rope head = split(this, start)[0];
+		Rope tail = split(this, end)[1];
+		return join(join(head, of(text)), tail);
+	}
+
+	/**
+	 * @param other
+	 * 		Rope to append.
+	 *
+	 * @return New rope of this content followed by the other rope's content.
+	 */
+	public Rope concat(Rope other) {
+		return join(this, other);
+	}
+
+	@Override
+	public Rope subSequence(int start, int end) {
+		checkRange(start, end);
+		if (start == 0 && end == length())
+			return this;
+		return split(split(this, end)[0], start)[1];
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length())
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length());
+		Rope node = this;
+		while (node instanceof Concat) {
+			Concat concat = (Concat) node;
+			int leftLength = concat.left.length();
+			if (index < leftLength) {
+				node = concat.left;
+			} else {
+				index -= leftLength;
+				node = concat.right;
+			}
+		}
+		return ((Leaf) node).text.charAt(index);
+	}
+
+	/**
+	 * @param sb
+	 * 		Builder to append the rope content to.
+	 *
+	 * @return Same builder.
+	 */
+	public abstract StringBuilder appendTo(StringBuilder sb);
+
+	/**
+	 * @param text
+	 * 		Text to compare with.
+	 *
+	 * @return {@code true} when the text has the same characters as this rope.
+	 */
+	public boolean contentEquals(CharSequence text) {
+		if (text == this)
+			return true;
+		if (text == null || text.length() != length())
+			return false;
+		// Compared chunk by chunk, so neither side is materialized
+		return matches(text, 0);
+	}
+
+	/**
+	 * @return Height of the tree, where a single chunk has a height of {@code 0}.
+	 */
+	abstract int height();
+
+	/**
+	 * @param text
+	 * 		Text to compare with.
+	 * @param offset
+	 * 		Offset in the text to compare from.
+	 *
+	 * @return {@code true} when the text has the characters of this rope at the given offset.
+	 */
+	abstract boolean matches(CharSequence text, int offset);
+
+	/**
+	 * @param offset
+	 * 		Offset in this rope to compare from.
+	 * @param chunk
+	 * 		Chunk to compare with.
+	 * @param chunkOffset
+	 * 		Offset in the chunk to compare from.
+	 * @param length
+	 * 		Number of characters to compare.
+	 *
+	 * @return {@code true} when the range of this rope has the same characters as the range of the chunk.
+	 */
+	abstract boolean regionMatches(int offset, String chunk, int chunkOffset, int length);
+
+	@Override
+	public String toString() {
+		return appendTo(new StringBuilder(length())).toString();
+	}
+
+	private void checkOffset(int offset) {
+		if (offset < 0 || offset > length())
+			throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for length " + length());
+	}
+
+	private void checkRange(int start, int end) {
+		if (start < 0 || end > length() || start > end)
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + length());
+	}
+
+	/**
+	 * @param rope
+	 * 		Rope to split.
+	 * @param index
+	 * 		Split offset.
+	 *
+	 * @return Array of content before and after the offset.
+	 */
+	private static Rope[] split(Rope rope, int index) {
+		if (index <= 0)
+			return new Rope[]{EMPTY, rope};
+		if (index >= rope.length())
+			return new Rope[]{rope, EMPTY};
+		if (rope instanceof Leaf) {
+			String text = ((Leaf) rope).text;
+			return new Rope[]{new Leaf(text.substring(0, index)), new Leaf(text.substring(index))};
+		}
+		Concat concat = (Concat) rope;
+		int leftLength = concat.left.length();
+		if (index == leftLength)
+			return new Rope[]{concat.left, concat.right};
+		if (index < leftLength) {
+			Rope[] parts = split(concat.left, index);
+			parts[1] = join(parts[1], concat.right);
+			return parts;
+		}
+		Rope[] parts = split(concat.right, index - leftLength);
+		parts[0] = join(concat.left, parts[0]);
+		return parts;
+	}
+
+	/**
+	 * Concatenates two ropes, descending the taller one so that the result stays height-balanced.
+	 *
+	 * @param left
+	 * 		Leading content.
+	 * @param right
+	 * 		Trailing content.
+	 *
+	 * @return Balanced concatenation.
+	 */
+	private static Rope join(Rope left, Rope right) {
+		if (left.length() == 0)
+			return right;
+		if (right.length() == 0)
+			return left;
+		if (left instanceof Leaf && right instanceof Leaf && left.length() + right.length() <= MAX_LEAF)
+			return new Leaf(((Leaf) left).text + ((Leaf) right).text);
+		int leftHeight = left.height();
+		int rightHeight = right.height();
+		if (leftHeight > rightHeight + 1) {
+			Concat concat = (Concat) left;
+			return balance(concat.left, join(concat.right, right));
+		} else if (rightHeight > leftHeight + 1) {
+			Concat concat = (Concat) right;
+			return balance(join(left, concat.left), concat.right);
+		}
+		return new Concat(left, right);
+	}
+
+	/**
+	 * @param left
+	 * 		Balanced left subtree.
+	 * @param right
+	 * 		Balanced right subtree, whose height differs from the left by at most {@code 2}.
+	 *
+	 * @return Balanced concatenation.
+	 */
+	private static Rope balance(Rope left, Rope right) {
+		int leftHeight = left.height();
+		int rightHeight = right.height();
+		if (leftHeight > rightHeight + 1) {
+			Concat concat = (Concat) left;
+			if (concat.left.height() >= concat.right.height())
+				return new Concat(concat.left, new Concat(concat.right, right));
+			Concat inner = (Concat) concat.right;
+			return new Concat(new Concat(concat.left, inner.left), new Concat(inner.right, right));
+		} else if (rightHeight > leftHeight + 1) {
+			Concat concat = (Concat) right;
+			if (concat.right.height() >= concat.left.height())
+				return new Concat(new Concat(left, concat.left), concat.right);
+			Concat inner = (Concat) concat.left;
+			return new Concat(new Concat(left, inner.left), new Concat(inner.right, concat.right));
+		}
+		return new Concat(left, right);
+	}
+
+	/**
+	 * Single chunk of text.
+	 */
+	private static final class Leaf extends Rope {
+		private final String text;
+
+		private Leaf(String text) {
+			this.text = text;
+		}
+
+		@Override
+		public int length() {
+			return text.length();
+		}
+
+		@Override
+		int height() {
+			return 0;
+		}
+
+		@Override
+		public StringBuilder appendTo(StringBuilder sb) {
+			return sb.append(text);
+		}
+
+		@Override
+		boolean matches(CharSequence other, int offset) {
+			if (other instanceof Rope)
+				return ((Rope) other).regionMatches(offset, text, 0, text.length());
+			if (other instanceof String)
+				return ((String) other).regionMatches(offset, text, 0, text.length());
+			for (int i = 0; i < text.length(); i++)
+				if (text.charAt(i) != other.charAt(offset + i))
+					return false;
+			return true;
+		}
+
+		@Override
+		boolean regionMatches(int offset, String chunk, int chunkOffset, int length) {
+			return text.regionMatches(offset, chunk, chunkOffset, length);
+		}
+
+		@Override
+		public String toString() {
+			return text;
+		}
+	}
+
+	/**
+	 * Concatenation of two subtrees.
+	 */
+	private static final class Concat extends Rope {
+		private final Rope left;
+		private final Rope right;
+		private final int length;
+		private final int height;
+
+		private Concat(Rope left, Rope right) {
+			this.left = left;
+			this.right = right;
+			this.length = left.length() + right.length();
+			this.height = Math.max(left.height(), right.height()) + 1;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		int height() {
+			return height;
+		}
+
+		@Override
+		public StringBuilder appendTo(StringBuilder sb) {
+			left.appendTo(sb);
+			return right.appendTo(sb);
+		}
+
+		@Override
+		boolean matches(CharSequence text, int offset) {
+			return left.matches(text, offset) && right.matches(text, offset + left.length());
+		}
+
+		@Override
+		boolean regionMatches(int offset, String chunk, int chunkOffset, int length) {
+			int leftLength = left.length();
+			if (offset + length <= leftLength)
+				return left.regionMatches(offset, chunk, chunkOffset, length);
+			if (offset >= leftLength)
+				return right.regionMatches(offset - leftLength, chunk, chunkOffset, length);
+			int inLeft = leftLength - offset;
+			return left.regionMatches(offset, chunk, chunkOffset, inLeft)
+					&& right.regionMatches(0, chunk, chunkOffset + inLeft, length - inLeft);
+		}
+	}
+}
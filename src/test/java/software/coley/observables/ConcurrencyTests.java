@@ -0,0 +1,488 @@
+package software.coley.observables;
+
+import org.junit.jupiter.api.Test;
+import software.coley.observables.flow.ObservablePublisher;
+import software.coley.observables.flow.OverflowStrategy;
+import software.coley.observables.flow.Subscriber;
+import software.coley.observables.flow.Subscription;
+
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress tests of observables used from multiple threads. Each test documents the outcomes it permits.
+ */
+public class ConcurrencyTests {
+	private static final int THREADS = 8;
+
+	/**
+	 * Permitted: the final value is any one of the values set. Every notification carries a value that was set.
+	 * Forbidden: values never set, and exceptions.
+	 */
+	@Test
+	void testConcurrentSetValue() throws Exception {
+		ObservableInteger ob = new ObservableInteger(-1);
+		Set<Integer> notified = ConcurrentHashMap.newKeySet();
+		ob.addChangeListener((observable, oldValue, newValue) -> notified.add(newValue));
+		ob.addChangeListener((observable, oldValue, newValue) -> assertNotNull(newValue));
+		race(THREADS, thread -> {
+			for (int i = 0; i < 10_000; i++)
+				ob.setValue(thread * 10_000 + i);
+		});
+		int value = ob.getValue();
+		assertTrue(value >= 0 && value < THREADS * 10_000, "Value was never set: " + value);
+		for (int n : notified)
+			assertTrue(n >= 0 && n < THREADS * 10_000, "Notified of value never set: " + n);
+	}
+
+	/**
+	 * Permitted: none, every element added must be present.
+	 * Forbidden: lost updates from interleaved read-copy-set sequences.
+	 */
+	@Test
+	void testConcurrentCollectionAdd() throws Exception {
+		ObservableList<Integer, List<Integer>> list = new ObservableList<>(ArrayList::new);
+		AtomicInteger changes = new AtomicInteger();
+		list.addChangeListener((observable, oldValue, newValue) -> changes.incrementAndGet());
+		race(THREADS, thread -> {
+			for (int i = 0; i < 1_000; i++)
+				list.add(thread * 1_000 + i);
+		});
+		assertEquals(THREADS * 1_000, list.size());
+		assertEquals(THREADS * 1_000, changes.get());
+		for (int i = 0; i < THREADS * 1_000; i++)
+			assertTrue(list.contains(i), "Lost update: " + i);
+	}
+
+	/**
+	 * Permitted: intermediate sums observed by listeners.
+	 * Forbidden: a final value or dependency set computed from anything but the latest dependency values.
+	 */
+	@Test
+	void testConcurrentComputedRecompute() throws Exception {
+		List<ObservableInteger> inputs = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++)
+			inputs.add(new ObservableInteger(0));
+		ComputedObservable<Integer> sum = Observables.computed(() -> {
+			int total = 0;
+			for (ObservableInteger input : inputs)
+				total += input.getValue();
+			return total;
+		});
+		race(THREADS, thread -> {
+			for (int i = 1; i <= 1_000; i++)
+				inputs.get(thread).setValue(i);
+		});
+		assertEquals(THREADS * 1_000, sum.getValue());
+		assertEquals(THREADS, sum.getDependencies().size());
+		sum.dispose();
+		assertEquals(0, sum.getDependencies().size());
+	}
+
+	/**
+	 * Permitted: none, every entry put must be present.
+	 * Forbidden: lost updates from interleaved read-copy-set sequences.
+	 */
+	@Test
+	void testConcurrentMapPut() throws Exception {
+		ObservableMap<Integer, Integer, Map<Integer, Integer>> map = new ObservableMap<>(HashMap::new);
+		race(THREADS, thread -> {
+			for (int i = 0; i < 1_000; i++)
+				map.put(thread * 1_000 + i, thread);
+		});
+		assertEquals(THREADS * 1_000, map.size());
+	}
+
+	/**
+	 * Permitted: none, every merge must be counted.
+	 * Forbidden: lost updates from compound operations implemented as separate reads and writes.
+	 */
+	@Test
+	void testConcurrentMapMerge() throws Exception {
+		ObservableMap<String, Integer, Map<String, Integer>> map = new ObservableMap<>(HashMap::new);
+		race(THREADS, thread -> {
+			for (int i = 0; i < 1_000; i++) {
+				map.merge("count", 1, Integer::sum);
+				map.computeIfAbsent("first", k -> thread);
+			}
+		});
+		assertEquals(THREADS * 1_000, map.get("count"));
+		assertNotNull(map.get("first"));
+	}
+
+	/**
+	 * Permitted: none.
+	 * Forbidden: deadlock of a listener waiting on another thread which uses the same collection.
+	 */
+	@Test
+	void testCollectionListenersRunWithoutLock() throws Exception {
+		ObservableList<Integer, List<Integer>> list = new ObservableList<>(ArrayList::new);
+		AtomicBoolean helperDone = new AtomicBoolean();
+		list.addChangeListener((observable, oldValue, newValue) -> {
+			if (newValue.size() != 1)
+				return;
+			Thread helper = new Thread(() -> {
+				list.addChangeListener((o, oldV, newV) -> {
+				});
+				list.add(2);
+				helperDone.set(true);
+			});
+			helper.start();
+			try {
+				helper.join(5_000);
+			} catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+		list.add(1);
+		assertTrue(helperDone.get(), "Helper thread blocked by the notifying thread");
+		assertEquals(2, list.size());
+	}
+
+	/**
+	 * Permitted: listeners added or removed concurrently with a notification may or may not receive it.
+	 * Forbidden: a listener registered for the whole run missing or repeating a notification, and exceptions.
+	 */
+	@Test
+	void testListenerRegistrationDuringDispatch() throws Exception {
+		ObservableInteger ob = new ObservableInteger(0);
+		AtomicInteger stable = new AtomicInteger();
+		ob.addChangeListener((observable, oldValue, newValue) -> stable.incrementAndGet());
+		AtomicBoolean done = new AtomicBoolean();
+		int sets = 20_000;
+		race(THREADS, thread -> {
+			if (thread == 0) {
+				// Single setter, so every set is a change
+				for (int i = 1; i <= sets; i++)
+					ob.setValue(i);
+				done.set(true);
+				return;
+			}
+			List<ListenerSubscription> subscriptions = new ArrayList<>();
+			while (!done.get()) {
+				// Grow and shrink the listener list to force inflation, growth and compaction
+				for (int i = 0; i < 32; i++)
+					subscriptions.add(ob.subscribe((observable, oldValue, newValue) -> {
+					}));
+				for (ListenerSubscription subscription : subscriptions)
+					subscription.cancel();
+				subscriptions.clear();
+			}
+		});
+		assertEquals(sets, stable.get());
+	}
+
+	/**
+	 * Permitted: receivers bound or unbound concurrently with a change may or may not receive it.
+	 * Forbidden: a receiver bound for the whole run not holding the final value, and exceptions.
+	 */
+	@Test
+	void testConcurrentBindAndUnbind() throws Exception {
+		ObservableInteger source = new ObservableInteger(0);
+		ObservableInteger stable = new ObservableInteger(0);
+		stable.bindTo(source);
+		AtomicBoolean done = new AtomicBoolean();
+		List<ObservableInteger> transients = new CopyOnWriteArrayList<>();
+		race(THREADS, thread -> {
+			if (thread == 0) {
+				for (int i = 1; i <= 20_000; i++)
+					source.setValue(i);
+				done.set(true);
+				return;
+			}
+			while (!done.get()) {
+				ObservableInteger receiver = new ObservableInteger(-1);
+				receiver.bindTo(source);
+				int value = receiver.getValue();
+				assertTrue(value >= -1 && value <= 20_000, "Received value never set: " + value);
+				receiver.unbind(source);
+				transients.add(receiver);
+			}
+		});
+		assertEquals(20_000, stable.getValue());
+		assertEquals(1, source.getBoundReceivers().size());
+		assertTrue(source.getBoundReceivers().contains(stable));
+		assertFalse(transients.isEmpty());
+	}
+
+	/**
+	 * Permitted: snapshots of any update, including the initial values.
+	 * Forbidden: snapshots mixing values of different updates, and exceptions.
+	 */
+	@Test
+	void testGroupSnapshots() throws Exception {
+		ObservableDouble bid = new ObservableDouble(0);
+		ObservableDouble ask = new ObservableDouble(1);
+		ObservableLong timestamp = new ObservableLong(0);
+		ObservableGroup group = Observables.group(bid, ask, timestamp);
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicInteger snapshots = new AtomicInteger();
+		race(4, thread -> {
+			if (thread == 0) {
+				for (int i = 1; i <= 50_000; i++) {
+					int tick = i;
+					group.update(() -> {
+						bid.setValue((double) tick);
+						ask.setValue(tick + 1.0);
+						timestamp.setValue(tick * 2L);
+					});
+				}
+				done.set(true);
+				return;
+			}
+			Object[] values = new Object[3];
+			while (!done.get()) {
+				group.read(values);
+				double b = (Double) values[0];
+				double a = (Double) values[1];
+				long t = (Long) values[2];
+				assertEquals(b + 1, a, "Torn bid/ask");
+				assertEquals((long) b * 2, t, "Torn timestamp");
+				snapshots.incrementAndGet();
+			}
+		});
+		assertTrue(snapshots.get() > 0);
+		ObservableGroup.Snapshot snapshot = group.snapshot();
+		assertEquals(50_000.0, snapshot.get(bid));
+		assertEquals(100_000L, snapshot.get(timestamp));
+	}
+
+	@Test
+	void testGroupNotifiesAfterUpdate() {
+		ObservableInteger a = new ObservableInteger(0);
+		ObservableInteger b = new ObservableInteger(0);
+		ObservableGroup group = new ObservableGroup(a, b);
+		List<String> snapshots = new ArrayList<>();
+		// Listeners run once the update is complete, so snapshots taken by listeners see all changes
+		a.addChangeListener((observable, oldValue, newValue) -> snapshots.add(group.snapshot().toString()));
+		long before = group.snapshot().getStamp();
+		group.update(() -> {
+			a.setValue(1);
+			b.setValue(2);
+		});
+		assertEquals(Collections.singletonList("[1, 2]"), snapshots);
+		assertNotEquals(before, group.snapshot().getStamp());
+		assertThrows(IllegalArgumentException.class, () -> group.snapshot().get(new ObservableInteger(0)));
+	}
+
+	@Test
+	void testGroupReadsWithinUpdate() {
+		ObservableInteger a = new ObservableInteger(0);
+		ObservableInteger b = new ObservableInteger(0);
+		ObservableGroup group = new ObservableGroup(a, b);
+		List<String> snapshots = new ArrayList<>();
+		// Reads and nested updates on the updating thread would otherwise wait on the lock it holds
+		group.update(() -> {
+			a.setValue(1);
+			snapshots.add(group.snapshot().toString());
+			group.update(() -> b.setValue(2));
+			snapshots.add(group.snapshot().toString());
+			assertEquals(0, group.snapshot().getStamp());
+		});
+		assertEquals(Arrays.asList("[1, 0]", "[1, 2]"), snapshots);
+		assertNotEquals(0, group.snapshot().getStamp());
+	}
+
+	/**
+	 * Permitted: receivers and their own receivers updated on any pool thread, in any order.
+	 * Forbidden: receivers updated on the thread setting the value, and receivers not updated once it returns.
+	 */
+	@Test
+	void testParallelPropagation() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ObservableInteger source = new ObservableInteger(0);
+			source.setParallelPropagation(pool, 64);
+			Thread caller = Thread.currentThread();
+			Set<Thread> threads = ConcurrentHashMap.newKeySet();
+			List<ObservableInteger> leaves = new ArrayList<>();
+			for (int i = 0; i < 2_000; i++) {
+				int offset = i;
+				ObservableInteger receiver = source.mapInt(v -> {
+					threads.add(Thread.currentThread());
+					return v + offset;
+				});
+				leaves.add(receiver.mapInt(v -> v * 2));
+			}
+			threads.clear();
+			source.setValue(1);
+			assertFalse(threads.contains(caller), "Receivers updated on the calling thread");
+			for (int i = 0; i < leaves.size(); i++)
+				assertEquals((1 + i) * 2, leaves.get(i).getValue());
+
+			// Below the threshold, receivers are updated sequentially on the calling thread
+			ObservableInteger narrow = new ObservableInteger(0);
+			narrow.setParallelPropagation(pool, 64);
+			List<Thread> narrowThreads = new ArrayList<>();
+			for (int i = 0; i < 10; i++)
+				narrow.mapInt(v -> {
+					narrowThreads.add(Thread.currentThread());
+					return v;
+				});
+			narrowThreads.clear();
+			narrow.setValue(1);
+			assertEquals(Collections.nCopies(10, caller), narrowThreads);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Permitted: failures reported in any order.
+	 * Forbidden: a failing receiver preventing updates of its siblings, and failures escaping the watchdog.
+	 */
+	@Test
+	void testParallelPropagationFailures() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ObservableInteger source = new ObservableInteger(1);
+			source.setParallelPropagation(pool, 2);
+			ObservableInteger failing = source.mapInt(v -> 10 / v);
+			ObservableInteger sibling = source.mapInt(v -> v + 1);
+			assertThrows(ArithmeticException.class, () -> source.setValue(0));
+			assertEquals(1, sibling.getValue(), "Sibling still updated without a watchdog");
+
+			List<Object> failed = new CopyOnWriteArrayList<>();
+			source.setListenerWatchdog(new ListenerWatchdog(1, TimeUnit.SECONDS)
+					.withErrorHandler((observable, target, error) -> failed.add(target)));
+			source.setValue(5);
+			source.setValue(0);
+			assertEquals(Collections.singletonList(failing), failed);
+			assertEquals(1, sibling.getValue());
+			assertEquals(2, failing.getValue());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Permitted: the checked exception wrapped in any unchecked exception.
+	 * Forbidden: a {@link ClassCastException} from treating the checked exception as an error.
+	 */
+	@Test
+	void testParallelPropagationCheckedFailures() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ObservableInteger source = new ObservableInteger(1);
+			source.setParallelPropagation(pool, 2);
+			source.mapInt(v -> v == 0 ? sneakyThrow(new IOException("checked")) : v);
+			source.mapInt(v -> v + 1);
+			UndeclaredThrowableException ex = assertThrows(UndeclaredThrowableException.class, () -> source.setValue(0));
+			Throwable cause = ex;
+			while (!(cause instanceof IOException) && cause.getCause() != null)
+				cause = cause.getCause();
+			assertTrue(cause instanceof IOException, "Checked failure should be the cause");
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Permitted: subscribers completed by close, or immediately when subscribing after it.
+	 * Forbidden: subscribers added after close and never completed, and signals before onSubscribe.
+	 */
+	@Test
+	void testPublisherSubscribeRacesClose() throws Exception {
+		for (int round = 0; round < 200; round++) {
+			ObservableInteger ob = new ObservableInteger(0);
+			ObservablePublisher<Integer> publisher = ob.toPublisher(OverflowStrategy.BUFFER, 4);
+			AtomicInteger completed = new AtomicInteger();
+			race(THREADS, thread -> {
+				if (thread == 0) {
+					publisher.close();
+					return;
+				}
+				publisher.subscribe(new Subscriber<Integer>() {
+					// Flow subscription, not the listener subscription of this package
+					private Subscription subscription;
+
+					@Override
+					public void onSubscribe(Subscription subscription) {
+						this.subscription = subscription;
+						subscription.request(Long.MAX_VALUE);
+					}
+
+					@Override
+					public void onNext(Integer item) {
+						assertNotNull(subscription, "Value before onSubscribe");
+					}
+
+					@Override
+					public void onError(Throwable throwable) {
+						fail("Unexpected failure: " + throwable);
+					}
+
+					@Override
+					public void onComplete() {
+						assertNotNull(subscription, "Completion before onSubscribe");
+						completed.incrementAndGet();
+					}
+				});
+			});
+			assertEquals(THREADS - 1, completed.get(), "Subscriber missed by close");
+			assertEquals(0, publisher.getSubscriberCount());
+		}
+	}
+
+	/**
+	 * @param t
+	 * 		Checked exception to throw without declaring it.
+	 * @param <T>
+	 * 		Exception type, inferred as unchecked.
+	 *
+	 * @return Never returns.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends Throwable> int sneakyThrow(Throwable t) throws T {
+		throw (T) t;
+	}
+
+	/**
+	 * Runs the body on the given number of threads, all released at once.
+	 *
+	 * @param threads
+	 * 		Number of threads.
+	 * @param body
+	 * 		Work of each thread, given the thread's index.
+	 */
+	private static void race(int threads, IntConsumer body) throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Throwable> failures = new CopyOnWriteArrayList<>();
+		List<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			int index = i;
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+					body.accept(index);
+				} catch (Throwable t) {
+					failures.add(t);
+				}
+			});
+			thread.start();
+			workers.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : workers)
+			thread.join();
+		if (!failures.isEmpty())
+			throw new AssertionError("Failure on worker thread", failures.get(0));
+	}
+}
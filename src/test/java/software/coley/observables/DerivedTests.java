@@ -0,0 +1,273 @@
+package software.coley.observables;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DerivedTests {
+	@Test
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	void testAsyncMappingCoalesces() {
+		Queue<Runnable> tasks = new ArrayDeque<>();
+		ObservableInteger source = new ObservableInteger(1);
+		List<Integer> inputs = new ArrayList<>();
+		ObservableObject<String> mapped = source.mapObjectAsync(value -> {
+			inputs.add(value);
+			return "v" + value;
+		}, tasks::add);
+		assertNull(mapped.getValue());
+
+		// Changes made before the queued computation runs only compute the latest value
+		source.setValue(2);
+		source.setValue(3);
+		assertEquals(1, tasks.size());
+		tasks.poll().run();
+		assertEquals("v3", mapped.getValue());
+		assertEquals(Arrays.asList(3), inputs);
+		assertThrows(BoundValueSetException.class, () -> mapped.setValue("x"));
+
+		// A value arriving during a computation makes its result stale, so it is not assigned
+		List<String> values = new ArrayList<>();
+		mapped.addChangeListener((observable, oldValue, newValue) -> values.add(newValue));
+		ObservableObject<Integer> slow = source.mapObjectAsync(value -> {
+			if (value == 3)
+				source.setValue(4);
+			return value * 10;
+		}, tasks::add);
+		tasks.poll().run();
+		assertEquals(40, slow.getValue());
+		tasks.poll().run();
+		assertEquals(Arrays.asList("v4"), values);
+
+		// Unbound receivers are no longer updated, unbind takes the receiver's value type so a raw cast is needed
+		assertTrue(mapped.unbind((Observable) source));
+		source.setValue(5);
+		assertTrue(tasks.size() <= 1);
+		while (!tasks.isEmpty())
+			tasks.poll().run();
+		assertEquals("v4", mapped.getValue());
+		assertEquals(50, slow.getValue());
+
+		// Results of a computation during which the receiver is unbound are not assigned
+		ObservableObject<Integer>[] unbound = new ObservableObject[1];
+		unbound[0] = source.mapObjectAsync(value -> {
+			assertTrue(unbound[0].unbind((Observable) source));
+			return value;
+		}, tasks::add);
+		tasks.poll().run();
+		assertNull(unbound[0].getValue());
+		assertTrue(tasks.isEmpty());
+	}
+
+	@Test
+	void testAsyncBindingOnExecutor() throws InterruptedException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			ObservableInteger source = new ObservableInteger(0);
+			ObservableInteger receiver = new ObservableInteger(-1, (Integer value) -> value * 2);
+			CountDownLatch done = new CountDownLatch(1);
+			receiver.addChangeListener((observable, oldValue, newValue) -> {
+				if (newValue == 20_000)
+					done.countDown();
+			});
+			receiver.bindTo(source, executor);
+			for (int i = 1; i <= 10_000; i++)
+				source.setValue(i);
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertEquals(20_000, receiver.getValue());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testComputedTracksDependencies() {
+		ObservableBoolean useFirst = new ObservableBoolean(true);
+		ObservableInteger first = new ObservableInteger(1);
+		ObservableInteger second = new ObservableInteger(2);
+		AtomicInteger computations = new AtomicInteger();
+		ComputedObservable<Integer> computed = Observables.computed(() -> {
+			computations.incrementAndGet();
+			return useFirst.getValue() ? first.getValue() : second.getValue();
+		});
+		assertEquals(1, computed.getValue());
+		assertEquals(2, computed.getDependencies().size());
+
+		// Second is not read by the current branch, so changing it does nothing
+		second.setValue(20);
+		assertEquals(1, computations.get());
+
+		// Switch branches, first is no longer a dependency
+		useFirst.setValue(false);
+		assertEquals(20, computed.getValue());
+		assertEquals(2, computations.get());
+		first.setValue(10);
+		assertEquals(2, computations.get());
+		second.setValue(30);
+		assertEquals(30, computed.getValue());
+		assertEquals(3, computations.get());
+	}
+
+	@Test
+	void testComputedMultipleInputs() {
+		ObservableInteger a = new ObservableInteger(2);
+		ObservableInteger b = new ObservableInteger(3);
+		ComputedObservable<Integer> product = Observables.computed(() -> a.getValue() * b.getValue());
+		ComputedObservable<String> label = Observables.computed(() -> "Product: " + product.getValue());
+		AtomicInteger changes = new AtomicInteger();
+		label.addChangeListener((observable, oldValue, newValue) -> changes.incrementAndGet());
+		a.setValue(4);
+		assertEquals(12, product.getValue());
+		assertEquals("Product: 12", label.getValue());
+		a.setValue(6);
+		b.setValue(2);
+		assertEquals(3, changes.get());
+		assertEquals("Product: 12", label.getValue());
+		// Product changes, but the derived flag does not
+		ComputedObservable<Boolean> large = Observables.computed(() -> product.getValue() > 10);
+		AtomicInteger flagChanges = new AtomicInteger();
+		large.addChangeListener((observable, oldValue, newValue) -> flagChanges.incrementAndGet());
+		a.setValue(7);
+		assertEquals(0, flagChanges.get());
+		assertEquals(4, changes.get());
+		assertThrows(BoundValueSetException.class, () -> product.setValue(0));
+	}
+
+	@Test
+	void testComputedDispose() {
+		ObservableInteger a = new ObservableInteger(1);
+		ComputedObservable<Integer> computed = Observables.computed(() -> a.getValue() + 1);
+		computed.dispose();
+		a.setValue(5);
+		assertEquals(2, computed.getValue());
+		assertTrue(computed.getDependencies().isEmpty());
+	}
+
+	@Test
+	void testSwitchMapFollowsSelection() {
+		ObservableInteger balanceA = new ObservableInteger(100);
+		ObservableInteger balanceB = new ObservableInteger(200);
+		ObservableObject<String> selected = new ObservableObject<>("a");
+		SwitchObservable<String, Integer> balance = selected.switchMap(name -> "a".equals(name) ? balanceA : balanceB);
+		AtomicInteger changes = new AtomicInteger();
+		balance.addChangeListener((observable, oldValue, newValue) -> changes.incrementAndGet());
+		assertEquals(100, balance.getValue());
+		balanceA.setValue(150);
+		assertEquals(150, balance.getValue());
+
+		// Previously selected source is no longer followed
+		selected.setValue("b");
+		assertEquals(200, balance.getValue());
+		balanceA.setValue(0);
+		assertEquals(200, balance.getValue());
+		assertSame(balanceB, balance.getCurrent());
+		balanceB.setValue(250);
+		assertEquals(250, balance.getValue());
+		assertEquals(3, changes.get());
+		assertThrows(BoundValueSetException.class, () -> balance.setValue(0));
+
+		balance.dispose();
+		balanceB.setValue(300);
+		assertEquals(250, balance.getValue());
+	}
+
+	@Test
+	void testFlatten() {
+		ObservableString first = new ObservableString("first");
+		ObservableString second = new ObservableString("second");
+		ObservableObject<Observable<String>> outer = new ObservableObject<>(first);
+		SwitchObservable<?, String> flat = Observables.flatten(outer);
+		assertEquals("first", flat.getValue());
+		outer.setValue(second);
+		assertEquals("second", flat.getValue());
+		first.setValue("changed");
+		assertEquals("second", flat.getValue());
+		outer.setValue(null);
+		assertNull(flat.getValue());
+		second.setValue("changed");
+		assertNull(flat.getValue());
+	}
+
+	@Test
+	void testBatchDefersNotifications() {
+		ObservableInteger a = new ObservableInteger(1);
+		ObservableInteger b = new ObservableInteger(2);
+		ObservableInteger sum = a.mapInt(v -> v + 10);
+		ComputedObservable<Integer> total = Observables.computed(() -> a.getValue() + b.getValue());
+		AtomicInteger aChanges = new AtomicInteger();
+		AtomicInteger totalChanges = new AtomicInteger();
+		a.addChangeListener((observable, oldValue, newValue) -> {
+			assertEquals(1, oldValue);
+			aChanges.incrementAndGet();
+		});
+		total.addChangeListener((observable, oldValue, newValue) -> totalChanges.incrementAndGet());
+		Observables.batch(() -> {
+			a.setValue(5);
+			a.setValue(7);
+			b.setValue(3);
+			// Values are visible within the batch, notifications are not
+			assertEquals(7, a.getValue());
+			assertEquals(0, aChanges.get());
+			assertEquals(11, sum.getValue());
+		});
+		assertEquals(1, aChanges.get());
+		assertEquals(17, sum.getValue());
+		assertEquals(10, total.getValue());
+		assertEquals(1, totalChanges.get());
+
+		// Values set back to their original do not notify
+		Observables.batch(() -> {
+			b.setValue(100);
+			b.setValue(3);
+		});
+		assertEquals(1, totalChanges.get());
+	}
+
+	@Test
+	void testBatchFlushesOnFailure() {
+		ObservableInteger a = new ObservableInteger(1);
+		ObservableInteger b = new ObservableInteger(2);
+		ObservableInteger mapped = b.mapInt(v -> v * 10);
+		AtomicInteger bChanges = new AtomicInteger();
+		a.addChangeListener((observable, oldValue, newValue) -> {
+			throw new IllegalStateException("listener");
+		});
+		b.addChangeListener((observable, oldValue, newValue) -> bChanges.incrementAndGet());
+
+		// Values assigned before the action fails are still notified
+		IllegalArgumentException actionFailure = assertThrows(IllegalArgumentException.class, () -> Observables.batch(() -> {
+			b.setValue(3);
+			throw new IllegalArgumentException("action");
+		}));
+		assertEquals(0, actionFailure.getSuppressed().length);
+		assertEquals(1, bChanges.get());
+		assertEquals(30, mapped.getValue());
+
+		// A failing listener does not stop notification of later observables
+		IllegalStateException listenerFailure = assertThrows(IllegalStateException.class, () -> Observables.batch(() -> {
+			a.setValue(5);
+			b.setValue(4);
+		}));
+		assertEquals("listener", listenerFailure.getMessage());
+		assertEquals(2, bChanges.get());
+		assertEquals(40, mapped.getValue());
+
+		// Notification failures are attached to the failure of the action
+		actionFailure = assertThrows(IllegalArgumentException.class, () -> Observables.batch(() -> {
+			a.setValue(6);
+			throw new IllegalArgumentException("action");
+		}));
+		assertEquals(1, actionFailure.getSuppressed().length);
+	}
+}
@@ -0,0 +1,96 @@
+package software.coley.observables;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FootprintTests {
+	private static final ChangeListener<Integer> FIRST = (observable, oldValue, newValue) -> {
+	};
+	private static final ChangeListener<Integer> SECOND = (observable, oldValue, newValue) -> {
+	};
+
+	@Test
+	void testIdleInstanceSize() {
+		ObservableInteger ob = new ObservableInteger(0);
+		// Header, seven references and the stamp: 12 + 7 * 4 + 8 bytes with compressed references,
+		// and 16 + 7 * 8 + 8 bytes without them
+		long size = ClassLayout.parseInstance(ob).instanceSize();
+		String compressedOops = vmOption("UseCompressedOops");
+		if (compressedOops != null)
+			assertEquals(Boolean.parseBoolean(compressedOops) ? 48 : 80, size, size + " bytes per idle observable");
+		assertNoCollections(ob);
+	}
+
+	@Test
+	void testListenersInflateOnDemand() {
+		ObservableInteger ob = new ObservableInteger(0);
+		ob.addChangeListener(FIRST);
+		assertNoCollections(ob);
+		assertFalse(GraphLayout.parseInstance(ob).getClasses().contains(ListenerList.class));
+
+		ob.addChangeListener(SECOND);
+		assertTrue(GraphLayout.parseInstance(ob).getClasses().contains(ListenerList.class));
+
+		// Storage is released once the last listener is removed
+		assertTrue(ob.removeChangeListener(FIRST));
+		assertTrue(ob.removeChangeListener(SECOND));
+		assertNoCollections(ob);
+		assertFalse(GraphLayout.parseInstance(ob).getClasses().contains(ListenerList.class));
+	}
+
+	@Test
+	void testReceiversInflateOnDemand() {
+		ObservableInteger source = new ObservableInteger(0);
+		ObservableInteger first = new ObservableInteger(0);
+		ObservableInteger second = new ObservableInteger(0);
+		first.bindTo(source);
+		assertNoCollections(source);
+
+		second.bindTo(source);
+		Set<Observable> receivers = source.getBoundReceivers();
+		assertEquals(2, receivers.size());
+		assertTrue(receivers.contains(first));
+		assertTrue(receivers.contains(second));
+		source.setValue(1);
+		assertEquals(1, first.getValue());
+		assertEquals(1, second.getValue());
+
+		first.unbind(source);
+		Iterator<Observable> iterator = receivers.iterator();
+		assertSame(second, iterator.next());
+		iterator.remove();
+		assertTrue(receivers.isEmpty());
+		assertNoCollections(source);
+	}
+
+	/**
+	 * @param name
+	 * 		Name of a HotSpot VM option.
+	 *
+	 * @return Value of the option, or {@code null} when not running on HotSpot.
+	 */
+	private static String vmOption(String name) {
+		try {
+			HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+			return bean == null ? null : bean.getVMOption(name).getValue();
+		} catch (IllegalArgumentException | LinkageError ex) {
+			return null;
+		}
+	}
+
+	private static void assertNoCollections(Object root) {
+		for (Class<?> type : GraphLayout.parseInstance(root).getClasses())
+			assertFalse(Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type),
+					"Unexpected backing collection: " + type.getName());
+	}
+}
@@ -2,11 +2,18 @@
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ListenerTests {
 	@Test
@@ -19,6 +26,79 @@ void testAddAndRemove() {
 		assertFalse(ob.removeChangeListener(listener), "Should only need to remove once");
 	}
 
+	@Test
+	void testDirtyTracker() {
+		ObservableInteger a = new ObservableInteger(0);
+		ObservableList<String, List<String>> b = new ObservableList<>(new ArrayList<>(), ArrayList::new);
+		ObservableInteger untracked = new ObservableInteger(0);
+		DirtyTracker tracker = new DirtyTracker();
+		assertTrue(tracker.track(a));
+		assertTrue(tracker.track(b));
+		assertFalse(tracker.track(a));
+		assertTrue(tracker.poll().isEmpty());
+
+		// Multiple changes are reported once, and equal copies still count as changes
+		long stamp = a.getStamp();
+		a.setValue(1);
+		a.setValue(2);
+		a.setValue(2);
+		assertEquals(stamp + 2, a.getStamp());
+		b.setValue(new ArrayList<>());
+		untracked.setValue(1);
+		assertEquals(Arrays.asList(a, b), new ArrayList<>(tracker.poll()));
+		assertTrue(tracker.poll().isEmpty());
+
+		assertTrue(tracker.untrack(a));
+		assertFalse(tracker.untrack(a));
+		a.setValue(3);
+		b.add("x");
+		List<AbstractObservable<?>> drained = new ArrayList<>();
+		tracker.drain(drained::add);
+		assertEquals(Collections.singletonList(b), drained);
+		assertEquals(1, tracker.size());
+	}
+
+	@Test
+	void testSubscriptions() {
+		ObservableInteger ob = new ObservableInteger(0);
+		AtomicInteger counter = new AtomicInteger();
+		List<ListenerSubscription> subscriptions = new ArrayList<>();
+		for (int i = 0; i < 50_000; i++)
+			subscriptions.add(ob.subscribe((observable, oldValue, newValue) -> counter.incrementAndGet()));
+		ob.setValue(1);
+		assertEquals(50_000, counter.get());
+		// Cancel all but the last
+		for (int i = 0; i < subscriptions.size() - 1; i++)
+			subscriptions.get(i).cancel();
+		assertFalse(subscriptions.get(0).isActive());
+		assertTrue(subscriptions.get(subscriptions.size() - 1).isActive());
+		ob.setValue(2);
+		assertEquals(50_001, counter.get());
+		subscriptions.get(subscriptions.size() - 1).cancel();
+		ob.setValue(3);
+		assertEquals(50_001, counter.get());
+	}
+
+	@Test
+	void testRemoveDuringDispatch() {
+		ObservableInteger ob = new ObservableInteger(0);
+		List<String> calls = new ArrayList<>();
+		ChangeListener<Integer> second = (observable, oldValue, newValue) -> calls.add("second");
+		ListenerSubscription[] first = new ListenerSubscription[1];
+		first[0] = ob.subscribe((observable, oldValue, newValue) -> {
+			calls.add("first");
+			// Removing listeners while notifying should skip removed listeners without failing
+			first[0].cancel();
+			ob.removeChangeListener(second);
+			ob.addChangeListener((o, ov, nv) -> calls.add("added"));
+		});
+		ob.addChangeListener(second);
+		ob.setValue(1);
+		assertEquals(Arrays.asList("first"), calls);
+		ob.setValue(2);
+		assertEquals(Arrays.asList("first", "added"), calls);
+	}
+
 	@Test
 	void testAddAndRemoveAsync() {
 		ObservableInteger ob = new ObservableInteger(0);
@@ -51,4 +131,233 @@ void testAsyncListenerIsAsync() {
 		}
 		assertTrue(counter.get() < iterations, "The delayed async listener calls should not have caught up yet");
 	}
+
+	@Test
+	void testPartitionedDispatcherKeepsOrder() throws InterruptedException {
+		int observableCount = 16;
+		int updates = 500;
+		List<List<Integer>> received = new ArrayList<>();
+		try (PartitionedDispatcher dispatcher = new PartitionedDispatcher(4)) {
+			List<ObservableInteger> observables = new ArrayList<>();
+			for (int i = 0; i < observableCount; i++) {
+				List<Integer> values = Collections.synchronizedList(new ArrayList<>());
+				received.add(values);
+				ObservableInteger ob = new ObservableInteger(0);
+				ob.addAsyncChangeListener((observable, oldValue, newValue) -> values.add(newValue), dispatcher);
+				observables.add(ob);
+			}
+			for (int v = 1; v <= updates; v++)
+				for (ObservableInteger ob : observables)
+					ob.setValue(v);
+			// Closing waits for all submitted events
+		}
+		for (List<Integer> values : received) {
+			assertEquals(updates, values.size());
+			for (int i = 0; i < updates; i++)
+				assertEquals(i + 1, values.get(i), "Events of an observable should be received in order");
+		}
+	}
+
+	@Test
+	void testPartitionedDispatcherBlockedObservable() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch other = new CountDownLatch(20);
+		try (PartitionedDispatcher dispatcher = new PartitionedDispatcher(2)) {
+			dispatcher.executorFor("blocked").execute(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			// Events of other keys run even when they hash to the blocked lane, as idle lanes steal them
+			for (int i = 0; i < 20; i++)
+				dispatcher.executorFor("key" + i).execute(other::countDown);
+			assertTrue(other.await(10, TimeUnit.SECONDS), "Events of other keys should not wait on the blocked key");
+			release.countDown();
+		}
+	}
+
+	@Test
+	void testEventRingDeliversInOrder() throws InterruptedException {
+		List<WaitStrategy> strategies = Arrays.asList(WaitStrategy.busySpin(), WaitStrategy.yielding(),
+				WaitStrategy.sleeping(TimeUnit.MICROSECONDS.toNanos(100)), WaitStrategy.blocking());
+		for (WaitStrategy strategy : strategies) {
+			int producers = 2;
+			int updates = 50_000;
+			long[] lastSeen = new long[producers];
+			AtomicInteger outOfOrder = new AtomicInteger();
+			AtomicInteger received = new AtomicInteger();
+			List<ObservableLong> observables = new ArrayList<>();
+			for (int p = 0; p < producers; p++)
+				observables.add(new ObservableLong(0L));
+			EventRing<Long> ring = new EventRing<Long>(1024, strategy)
+					.addConsumer((observable, oldValue, newValue) -> {
+						int producer = observables.indexOf(observable);
+						if (newValue != lastSeen[producer] + 1 || oldValue != lastSeen[producer])
+							outOfOrder.incrementAndGet();
+						lastSeen[producer] = newValue;
+					})
+					.addConsumer((observable, oldValue, newValue) -> received.incrementAndGet())
+					.start();
+			List<Thread> threads = new ArrayList<>();
+			for (ObservableLong ob : observables) {
+				ob.addChangeListener(ring);
+				// Each observable is only updated by one thread, but the ring is shared
+				Thread thread = new Thread(() -> {
+					for (long v = 1; v <= updates; v++)
+						ob.setValue(v);
+				});
+				threads.add(thread);
+				thread.start();
+			}
+			for (Thread thread : threads)
+				thread.join();
+			ring.close();
+			assertEquals(0, outOfOrder.get(), "Events of each observable should be consumed in order");
+			assertEquals(producers * updates, received.get());
+			assertEquals(producers * updates, ring.getPublishedCount());
+		}
+	}
+
+	@Test
+	void testEventRingSignalsPublishers() throws InterruptedException {
+		AtomicInteger fullWaits = new AtomicInteger();
+		AtomicInteger freedSignals = new AtomicInteger();
+		AtomicInteger received = new AtomicInteger();
+		WaitStrategy strategy = new WaitStrategy() {
+			@Override
+			public void idle(int attempt) {
+				Thread.yield();
+			}
+
+			@Override
+			public void idleFull(int attempt) {
+				fullWaits.incrementAndGet();
+				Thread.yield();
+			}
+
+			@Override
+			public void signalFreed() {
+				freedSignals.incrementAndGet();
+			}
+		};
+		ObservableInteger ob = new ObservableInteger(0);
+		EventRing<Integer> ring = new EventRing<Integer>(2, strategy)
+				.addConsumer((observable, oldValue, newValue) -> {
+					// Slow consumer, so that publishers fill the ring
+					LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+					received.incrementAndGet();
+				})
+				.start();
+		ob.addChangeListener(ring);
+		for (int i = 1; i <= 100; i++)
+			ob.setValue(i);
+		ring.close();
+		assertEquals(100, received.get());
+		assertTrue(fullWaits.get() > 0, "Publishers should wait on a full ring through idleFull");
+		assertTrue(freedSignals.get() > 0, "Consumers should signal publishers after freeing slots");
+	}
+
+	@Test
+	void testWatchdogIsolatesFailures() {
+		List<Object> failed = new ArrayList<>();
+		AtomicInteger counter = new AtomicInteger();
+		ObservableInteger ob = new ObservableInteger(1);
+		ob.setListenerWatchdog(new ListenerWatchdog(1, TimeUnit.SECONDS)
+				.withErrorHandler((observable, target, error) -> failed.add(target)));
+		ChangeListener<Integer> throwing = (observable, oldValue, newValue) -> {
+			throw new IllegalStateException();
+		};
+		ob.addChangeListener(throwing);
+		ob.addChangeListener((observable, oldValue, newValue) -> counter.incrementAndGet());
+		ObservableInteger failingReceiver = ob.mapInt(i -> 10 / i);
+		ObservableInteger receiver = ob.mapInt(i -> i + 1);
+		ob.setValue(0);
+		assertEquals(1, receiver.getValue(), "Receiver after the throwing receiver should still be updated");
+		ob.setValue(2);
+		assertEquals(2, counter.get(), "Listener after the throwing listener should still be called");
+		assertEquals(5, failingReceiver.getValue(), "Throwing receiver should recover on later values");
+		assertTrue(failed.contains(throwing));
+		assertTrue(failed.contains(failingReceiver));
+	}
+
+	@Test
+	void testWatchdogIsolatesNestedReceiverFailures() {
+		List<Object> failed = new ArrayList<>();
+		ObservableInteger ob = new ObservableInteger(1);
+		ob.setListenerWatchdog(new ListenerWatchdog(1, TimeUnit.SECONDS)
+				.withErrorHandler((observable, target, error) -> failed.add(target)));
+		ObservableInteger child = ob.mapInt(i -> i + 1);
+		ObservableInteger failingGrandchild = child.mapInt(i -> 10 / (i - 1));
+		ObservableInteger sibling = ob.mapInt(i -> i * 2);
+		ob.setValue(0);
+		assertEquals(0, sibling.getValue(), "Sibling of the failing subtree should still be updated");
+		assertEquals(1, child.getValue());
+		assertEquals(10, failingGrandchild.getValue());
+		assertEquals(1, failed.size());
+		assertSame(child, failed.get(0), "Failure should be reported for the binding with the watchdog");
+	}
+
+	@Test
+	void testWatchdogDemotesSlowListener() {
+		List<Runnable> deferred = new ArrayList<>();
+		Executor executor = deferred::add;
+		AtomicInteger slowReports = new AtomicInteger();
+		ListenerWatchdog watchdog = new ListenerWatchdog(0, TimeUnit.NANOSECONDS)
+				.withSlowListenerHandler((observable, listener, nanos, demoted) -> slowReports.incrementAndGet())
+				.withDemotion(2, executor);
+		ObservableInteger ob = new ObservableInteger(0);
+		ob.setListenerWatchdog(watchdog);
+		AtomicInteger counter = new AtomicInteger();
+		ChangeListener<Integer> listener = (observable, oldValue, newValue) -> {
+			try {
+				Thread.sleep(1);
+				counter.incrementAndGet();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		};
+		ob.addChangeListener(listener);
+		ob.setValue(1);
+		ob.setValue(2);
+		assertTrue(watchdog.isDemoted(ob, listener), "Listener over budget twice should be demoted");
+		assertEquals(2, slowReports.get());
+		ob.setValue(3);
+		assertEquals(2, counter.get(), "Demoted listener should not run on the setting thread");
+		assertEquals(1, deferred.size());
+		deferred.forEach(Runnable::run);
+		assertEquals(3, counter.get());
+		ob.removeChangeListener(listener);
+		assertFalse(watchdog.isDemoted(ob, listener));
+	}
+
+	@Test
+	void testWatchdogStrikesPerObservable() {
+		ListenerWatchdog watchdog = new ListenerWatchdog(0, TimeUnit.NANOSECONDS)
+				.withDemotion(1, Runnable::run);
+		ObservableInteger first = new ObservableInteger(0);
+		ObservableInteger second = new ObservableInteger(0);
+		first.setListenerWatchdog(watchdog);
+		second.setListenerWatchdog(watchdog);
+		ChangeListener<Integer> listener = (observable, oldValue, newValue) -> {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		};
+		first.addChangeListener(listener);
+		second.addChangeListener(listener);
+		first.setValue(1);
+		assertTrue(watchdog.isDemoted(first, listener));
+		assertFalse(watchdog.isDemoted(second, listener), "Strikes on one observable should not demote on another");
+		second.setValue(1);
+		assertTrue(watchdog.isDemoted(second, listener));
+
+		// Removing the listener from one observable keeps its demotion on the other
+		first.removeChangeListener(listener);
+		assertFalse(watchdog.isDemoted(first, listener));
+		assertTrue(watchdog.isDemoted(second, listener));
+	}
 }
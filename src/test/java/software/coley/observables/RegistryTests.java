@@ -0,0 +1,117 @@
+package software.coley.observables;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegistryTests {
+	@Test
+	void testLookupAndPrefixQueries() {
+		ObservableRegistry registry = new ObservableRegistry();
+		ObservableInteger port = registry.register("server.http.port", new ObservableInteger(8080));
+		registry.register("server.http.host", new ObservableString("localhost"));
+		registry.register("server.name", new ObservableString("main"));
+		registry.register("serverless", new ObservableBoolean(false));
+		assertSame(port, registry.get("server.http.port"));
+		assertSame(port, registry.get("server.http.port", ObservableInteger.class));
+		assertThrows(ClassCastException.class, () -> registry.get("server.http.port", ObservableString.class));
+		assertThrows(IllegalStateException.class, () -> registry.register("server.http.port", new ObservableInteger(0)));
+		assertEquals(Arrays.asList("server.http.host", "server.http.port", "server.name"),
+				new ArrayList<>(registry.getChildren("server").keySet()));
+		assertEquals(2, registry.getChildren("server.http").size());
+
+		ObservableInteger created = registry.getOrRegister("server.threads", () -> new ObservableInteger(4));
+		assertSame(created, registry.getOrRegister("server.threads", () -> new ObservableInteger(8)));
+
+		assertEquals(4, registry.removeAll("server"));
+		assertEquals(1, registry.size());
+		assertTrue(registry.contains("serverless"));
+	}
+
+	@Test
+	void testSnapshotAndRestore() {
+		ObservableRegistry registry = new ObservableRegistry();
+		ObservableInteger count = registry.register("count", new ObservableInteger(1));
+		ObservableList<String, List<String>> names = registry.register("names",
+				new ObservableList<>(new ArrayList<>(Arrays.asList("a", "b")), ArrayList::new));
+		ObservableInteger doubled = registry.register("doubled", count.mapInt(i -> i * 2));
+		ObservableRegistry.Snapshot snapshot = registry.snapshot();
+		assertEquals(3, snapshot.size());
+		count.setValue(5);
+		names.removeIf("a"::equals);
+		assertEquals(Arrays.asList("a", "b"), snapshot.get("names"), "Snapshot should not see in-place modifications");
+		registry.restore(snapshot);
+		assertEquals(1, count.getValue());
+		assertEquals(2, doubled.getValue());
+		assertEquals(Arrays.asList("a", "b"), names.getValue());
+	}
+
+	@Test
+	void testSnapshotsDoNotSeePartialUpdates() throws InterruptedException {
+		ObservableRegistry registry = new ObservableRegistry();
+		ObservableInteger a = registry.register("pair.a", new ObservableInteger(0));
+		ObservableInteger b = registry.register("pair.b", new ObservableInteger(0));
+		AtomicBoolean running = new AtomicBoolean(true);
+		List<Thread> writers = new ArrayList<>();
+		for (int t = 0; t < 2; t++) {
+			Thread writer = new Thread(() -> {
+				for (int i = 0; running.get(); i++) {
+					int value = i;
+					// Observables are not thread-safe, so writers coordinate with each other on the pair
+					synchronized (registry) {
+						registry.update(() -> {
+							a.setValue(value);
+							b.setValue(value);
+						});
+					}
+				}
+			});
+			writers.add(writer);
+			writer.start();
+		}
+		try {
+			for (int i = 0; i < 2000; i++) {
+				ObservableRegistry.Snapshot snapshot = registry.snapshot();
+				assertEquals(snapshot.get("pair.a"), snapshot.get("pair.b"));
+			}
+		} finally {
+			running.set(false);
+			for (Thread writer : writers)
+				writer.join();
+		}
+	}
+
+	@Test
+	void testListenersCanSnapshotAndRestore() {
+		ObservableRegistry registry = new ObservableRegistry();
+		ObservableInteger a = registry.register("a", new ObservableInteger(0));
+		ObservableInteger b = registry.register("b", new ObservableInteger(0));
+		List<Object> seen = new ArrayList<>();
+		ObservableRegistry.Snapshot initial = registry.snapshot();
+		// Listeners run once the update releases its lock, so they may take the exclusive lock themselves
+		a.addChangeListener((observable, oldValue, newValue) -> {
+			seen.add(registry.snapshot().get("b"));
+			if (newValue == 2)
+				registry.restore(initial);
+		});
+		registry.update(() -> {
+			a.setValue(1);
+			b.setValue(1);
+		});
+		assertEquals(Collections.singletonList(1), seen);
+		registry.setValue("a", 2);
+		assertEquals(0, a.getValue());
+		assertEquals(0, b.getValue());
+
+		// Within the update itself, a snapshot would wait on the update forever
+		assertThrows(IllegalStateException.class, () -> registry.update(registry::snapshot));
+		registry.update(() -> registry.update(() -> a.setValue(3)));
+		assertEquals(3, registry.snapshot().get("a"));
+	}
+}
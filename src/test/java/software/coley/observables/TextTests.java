@@ -0,0 +1,163 @@
+package software.coley.observables;
+
+import org.junit.jupiter.api.Test;
+import software.coley.observables.util.Rope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextTests {
+	@Test
+	void testRopeMatchesStringBuilder() {
+		Random random = new Random(0);
+		StringBuilder expected = new StringBuilder();
+		Rope rope = Rope.empty();
+		for (int i = 0; i < 5000; i++) {
+			int op = random.nextInt(4);
+			if (op == 0 || expected.length() == 0) {
+				String text = randomText(random);
+				int offset = random.nextInt(expected.length() + 1);
+				expected.insert(offset, text);
+				rope = rope.insert(offset, text);
+			} else if (op == 1) {
+				String text = randomText(random);
+				expected.append(text);
+				rope = rope.append(text);
+			} else {
+				int start = random.nextInt(expected.length());
+				int end = start + random.nextInt(Math.min(200, expected.length() - start) + 1);
+				expected.delete(start, end);
+				rope = rope.delete(start, end);
+			}
+			assertEquals(expected.length(), rope.length());
+			if (i % 250 == 0) {
+				assertEquals(expected.toString(), rope.toString());
+				if (expected.length() > 10) {
+					int start = random.nextInt(expected.length() / 2);
+					int end = start + random.nextInt(expected.length() - start);
+					assertEquals(expected.substring(start, end), rope.subSequence(start, end).toString());
+					assertEquals(expected.charAt(start), rope.charAt(start));
+				}
+			}
+		}
+		assertEquals(expected.toString(), rope.toString());
+	}
+
+	@Test
+	void testLargeTextEditsShareContent() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200_000; i++)
+			sb.append("line ").append(i).append('\n');
+		Rope original = Rope.of(sb);
+		Rope appended = original;
+		for (int i = 0; i < 100_000; i++)
+			appended = appended.append("x");
+		assertEquals(original.length() + 100_000, appended.length());
+		assertEquals('x', appended.charAt(appended.length() - 1));
+		assertEquals(sb.toString(), original.toString(), "Original must be unaffected by edits");
+	}
+
+	@Test
+	void testEditEvents() {
+		ObservableText text = new ObservableText("hello");
+		List<String> edits = new ArrayList<>();
+		List<String> changes = new ArrayList<>();
+		text.addEditListener((t, offset, removed, inserted) -> edits.add(offset + ":" + removed + ":" + inserted));
+		text.addChangeListener((observable, oldValue, newValue) -> changes.add(oldValue + "->" + newValue));
+		text.append(" world");
+		text.insert(0, ">");
+		text.delete(1, 7);
+		text.replace(0, 1, "<");
+		text.setText("reset");
+		assertEquals("reset", text.getValue().toString());
+		assertEquals(5, text.length());
+		assertEquals(5, edits.size());
+		assertEquals("5:0: world", edits.get(0));
+		assertEquals("0:0:>", edits.get(1));
+		assertEquals("1:6:", edits.get(2));
+		assertEquals("0:1:<", edits.get(3));
+		assertEquals("0:6:reset", edits.get(4));
+		assertEquals("hello->hello world", changes.get(0));
+	}
+
+	@Test
+	void testRopeContentEquals() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++)
+			sb.append(i % 10);
+		Rope rope = Rope.of(sb).insert(1500, "abc").delete(1500, 1503);
+		// Same content, chunked differently
+		Rope other = Rope.of(sb.substring(0, 700)).append(sb.substring(700));
+		assertTrue(rope.contentEquals(sb));
+		assertTrue(rope.contentEquals(sb.toString()));
+		assertTrue(rope.contentEquals(other));
+		assertTrue(other.contentEquals(rope));
+		sb.setCharAt(4999, 'x');
+		assertFalse(rope.contentEquals(sb));
+		assertFalse(rope.contentEquals(sb.toString()));
+		assertFalse(rope.contentEquals(Rope.of(sb)));
+		assertFalse(rope.contentEquals(rope.delete(0, 1)));
+	}
+
+	@Test
+	void testEditEventsInBatch() {
+		ObservableText text = new ObservableText("hello");
+		List<String> edits = new ArrayList<>();
+		text.addEditListener((t, offset, removed, inserted) -> edits.add(offset + ":" + removed + ":" + inserted));
+		Observables.batch(() -> {
+			text.append(" world");
+			text.delete(0, 1);
+			assertTrue(edits.isEmpty(), "Edits are reported once the batch completes");
+		});
+		assertEquals(2, edits.size());
+		assertEquals("5:0: world", edits.get(0));
+		assertEquals("0:1:", edits.get(1));
+
+		// A value set in the batch breaks the chain of edits, so the whole text is reported as replaced
+		edits.clear();
+		Observables.batch(() -> {
+			text.append("!");
+			text.setText("other");
+			text.append("?");
+		});
+		assertEquals(1, edits.size());
+		assertEquals("0:10:other?", edits.get(0));
+	}
+
+	@Test
+	void testEditEventsIgnoreWatchdogDemotion() {
+		List<Runnable> deferred = new ArrayList<>();
+		ListenerWatchdog watchdog = new ListenerWatchdog(0, TimeUnit.NANOSECONDS)
+				.withDemotion(1, deferred::add);
+		ObservableText text = new ObservableText("a");
+		text.setListenerWatchdog(watchdog);
+		List<String> edits = new ArrayList<>();
+		text.addEditListener((t, offset, removed, inserted) -> edits.add(offset + ":" + removed + ":" + inserted));
+		for (int i = 0; i < 5; i++)
+			text.append("b");
+		assertEquals(5, edits.size(), "Edits are not dispatched by a listener the watchdog could demote");
+		assertTrue(deferred.isEmpty());
+	}
+
+	@Test
+	void testBoundTextCannotBeEdited() {
+		ObservableString source = new ObservableString("a");
+		ObservableText text = new ObservableText(source.getValue(), (String s) -> Rope.of(s));
+		text.bindTo(source);
+		source.setValue("b");
+		assertEquals("b", text.getValue().toString());
+		assertThrows(BoundValueSetException.class, () -> text.append("c"));
+	}
+
+	private static String randomText(Random random) {
+		int length = random.nextInt(50) + 1;
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+			sb.append((char) ('a' + random.nextInt(26)));
+		return sb.toString();
+	}
+}
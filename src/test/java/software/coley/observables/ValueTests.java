@@ -2,11 +2,17 @@
 
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import software.coley.observables.util.FormatTemplate;
+import software.coley.observables.util.NumberUtil;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IllegalFormatException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -212,6 +218,69 @@ void testIntShiftRightUnsignedBind() {
 			assertEquals(-1, intA.getValue());
 			assertEquals(-1 >>> 1, intB.getValue());
 		}
+
+		@Test
+		void testDeepBindChain() {
+			ObservableInteger root = new ObservableInteger(0);
+			ObservableInteger tail = root;
+			for (int i = 0; i < 100_000; i++)
+				tail = tail.mapInt(v -> v + 1);
+			assertEquals(100_000, tail.getValue());
+			root.setValue(5);
+			assertEquals(100_005, tail.getValue());
+		}
+
+		@Test
+		void testBindPropagationOrder() {
+			List<String> order = new ArrayList<>();
+			ObservableInteger root = new ObservableInteger(0);
+			ObservableInteger child = root.mapInt(v -> v + 1);
+			ObservableInteger grandchild = child.mapInt(v -> v + 1);
+			child.addChangeListener((observable, oldValue, newValue) -> order.add("child"));
+			grandchild.addChangeListener((observable, oldValue, newValue) -> {
+				order.add("grandchild");
+				// Listeners may start propagations of their own while one is in progress
+				if (newValue < 10)
+					root.setValue(10);
+			});
+			root.setValue(1);
+			assertEquals(Arrays.asList("child", "grandchild", "child", "grandchild"), order);
+			assertEquals(10, root.getValue());
+			assertEquals(12, grandchild.getValue());
+		}
+
+		@Test
+		void testIntExpression() {
+			ObservableInteger intA = new ObservableInteger(3);
+			NumberExpression<Integer> added = intA.expression().add(2);
+			NumberExpression<Integer> expression = added.multiply(3).shiftLeft(1);
+			ObservableNumber<?> intB = expression.toObservable();
+			// Assert bind exists
+			assertThrows(BoundTargetSetException.class, () -> intB.bindTo(intA));
+			// Assert value of the single fused stage
+			assertEquals(30, intB.getValue());
+			intA.setValue(-4);
+			assertEquals(-12, intB.getValue());
+			// Intermediate stages are only observed when asked for
+			ObservableNumber<?> intC = added.toObservable();
+			assertEquals(-2, intC.getValue());
+			intA.setValue(0);
+			assertEquals(2, intC.getValue());
+			assertEquals(12, intB.getValue());
+		}
+
+		@Test
+		void testExpressionTypePromotion() {
+			ObservableInteger intA = new ObservableInteger(7);
+			NumberExpression<Integer> expression = intA.expression().add(1L).multiply(0.5).and(3);
+			assertEquals(0, expression.evaluate(0));
+			assertEquals(0, expression.evaluate(7));
+			assertEquals(1L, intA.expression().add(1L).and(3).evaluate(4));
+			assertEquals(2.5, intA.expression().divide(2.0).evaluate(5));
+			assertEquals(-1, intA.expression().compare(10).evaluate(5));
+			assertEquals(1, intA.expression().multiply(1.5f).compare(10).evaluate(8));
+			assertThrows(ArithmeticException.class, () -> intA.expression().divide(0).toObservable());
+		}
 	}
 
 	@Nested
@@ -263,6 +332,39 @@ void testMapIntToString() {
 			assertEquals(20, stringA.mapNumber().getValue());
 		}
 
+		@Test
+		void testParseNumbers() {
+			NumberUtil.ParsedNumber parsed = new NumberUtil.ParsedNumber();
+			assertEquals(10, NumberUtil.parse(" 10 ", parsed).toNumber());
+			assertEquals(Integer.class, parsed.getType());
+			assertEquals(10L, NumberUtil.parse("10L", parsed).toNumber());
+			assertEquals(1.5F, NumberUtil.parse("1.5f", parsed).toNumber());
+			assertEquals(1.5, NumberUtil.parse("1.5D", parsed).toNumber());
+			assertEquals(2.0, NumberUtil.parse("2d", parsed).toNumber());
+			assertEquals(0.001, NumberUtil.parse("1e-3", parsed).toNumber());
+			assertEquals(0xFF, NumberUtil.parse("0xFF", parsed).toNumber());
+			assertEquals(0xFFL, NumberUtil.parse("0xffL", parsed).toNumber());
+			assertEquals(Integer.MIN_VALUE, NumberUtil.parse("-2147483648", parsed).toNumber());
+			assertEquals(123, NumberUtil.parse("id=123;", 3, 3, parsed).intValue());
+			assertThrows(NumberFormatException.class, () -> NumberUtil.parse("2147483648", parsed));
+			assertThrows(NumberFormatException.class, () -> NumberUtil.parse("1.2.3", parsed));
+			assertThrows(NumberFormatException.class, () -> NumberUtil.parse("0x", parsed));
+			assertEquals(1.5, NumberUtil.parse("1.5").getValue());
+		}
+
+		@Test
+		void testMapStringToNumber() {
+			ObservableString string = new ObservableString("1");
+			ObservableNumber<Number> number = string.mapNumber();
+			AtomicInteger changes = new AtomicInteger();
+			number.addChangeListener((observable, oldValue, newValue) -> changes.incrementAndGet());
+			string.setValue(" 1 ");
+			assertEquals(0, changes.get(), "Equal parsed values should not propagate");
+			string.setValue("2.5");
+			assertEquals(2.5, number.getValue());
+			assertEquals(1, changes.get());
+		}
+
 		@Test
 		void testMapDoubleToString() {
 			ObservableDouble intA = new ObservableDouble(0.123456789);
@@ -277,6 +379,42 @@ void testMapDoubleToString() {
 		}
 	}
 
+	@Nested
+	class Formats {
+		@Test
+		void testTemplateMatchesStringFormat() {
+			String[] formats = {"%d", "%05d", "%-6d|", "%+d", "%x", "%X", "%.3f", "%f", "%+09.2f", "%.0f", "%s", "%.2s", "%8s", "%e", "%,d"};
+			Object[] values = {0, -1, 42, Integer.MAX_VALUE, Long.MIN_VALUE, (short) -3, (byte) 127,
+					0.0, -0.0, 0.5, 2.5, 1.005, 0.0005, -12.3456789, 9.9995, 1e-7, 1e21, 3.14159f};
+			for (String format : formats) {
+				FormatTemplate template = FormatTemplate.compile(format, Locale.US);
+				for (Object value : values) {
+					String expected;
+					try {
+						expected = String.format(Locale.US, format, value);
+					} catch (IllegalFormatException ex) {
+						assertThrows(ex.getClass(), () -> template.format(value));
+						continue;
+					}
+					assertEquals(expected, template.format(value), format + " of " + value);
+				}
+			}
+		}
+
+		@Test
+		void testTemplateLiteralsAndMultipleArgs() {
+			FormatTemplate template = FormatTemplate.compile("%s: %d%% of %.1f%n", Locale.US);
+			assertEquals(String.format(Locale.US, "%s: %d%% of %.1f%n", "Done", 50, 2.25),
+					template.format("Done", 50, 2.25));
+		}
+
+		@Test
+		void testTemplateUsesLocale() {
+			FormatTemplate template = FormatTemplate.compile("%.2f", Locale.GERMANY);
+			assertEquals("1,50", template.format(1.5));
+		}
+	}
+
 	@Nested
 	class Collections {
 		@Test
@@ -324,4 +462,144 @@ void testMapMapSize() {
 			assertEquals(0, mapSize.getValue());
 		}
 	}
+
+	@Nested
+	class Equivalences {
+		@Test
+		void testEqualNumbersAreSuppressed() {
+			ObservableInteger intA = new ObservableInteger(1000);
+			ObservableNumber<?> intB = intA.mapAdd(1);
+			AtomicInteger changes = new AtomicInteger();
+			intA.addChangeListener((observable, oldValue, newValue) -> changes.incrementAndGet());
+			intB.addChangeListener((observable, oldValue, newValue) -> changes.incrementAndGet());
+			intA.setValue(1000); // boxes to a different instance than the initial value
+			assertEquals(0, changes.get(), "Equal boxes should not notify listeners or receivers");
+			intA.setValue(1001);
+			assertEquals(2, changes.get());
+		}
+
+		@Test
+		void testEqualStringsAreSuppressed() {
+			ObservableString string = new ObservableString("text");
+			AtomicInteger changes = new AtomicInteger();
+			string.addChangeListener((observable, oldValue, newValue) -> changes.incrementAndGet());
+			string.setValue(new String("text"));
+			assertEquals(0, changes.get());
+		}
+
+		@Test
+		void testIdentityForCollections() {
+			ObservableCollection<String, List<String>> list = new ObservableCollection<>(ArrayList::new);
+			AtomicInteger changes = new AtomicInteger();
+			list.addChangeListener((observable, oldValue, newValue) -> changes.incrementAndGet());
+			list.setValue(new ArrayList<>());
+			assertEquals(1, changes.get(), "Collections should compare by identity by default");
+			list.setEquivalence(Equivalence.equality());
+			list.setValue(new ArrayList<>());
+			assertEquals(1, changes.get());
+		}
+
+		@Test
+		void testEpsilon() {
+			ObservableDouble value = new ObservableDouble(0);
+			value.setEquivalence(Equivalence.epsilon(0.1));
+			AtomicInteger changes = new AtomicInteger();
+			value.addChangeListener((observable, oldValue, newValue) -> changes.incrementAndGet());
+			value.setValue(0.05);
+			value.setValue(0.09);
+			assertEquals(0, changes.get());
+			assertEquals(0.0, value.getValue(), "Suppressed assignments should keep the current value");
+			value.setValue(0.11);
+			assertEquals(1, changes.get());
+			assertEquals(0.11, value.getValue());
+		}
+
+		@Test
+		void testCustom() {
+			ObservableString string = new ObservableString("text");
+			string.setEquivalence(Equivalence.of(String::equalsIgnoreCase));
+			string.setValue("TEXT");
+			assertEquals("text", string.getValue());
+		}
+	}
+
+	@Nested
+	class PrimitiveArrays {
+		@Test
+		void testIntArray() {
+			ObservableIntArray array = new ObservableIntArray(100_000);
+			List<String> changes = new ArrayList<>();
+			array.addChangeListener((a, index, oldValue, newValue) -> changes.add(index + ":" + oldValue + "->" + newValue));
+			array.set(5, 10);
+			array.set(5, 10);
+			array.set(99_999, -1);
+			assertEquals(10, array.get(5));
+			assertEquals(Arrays.asList("5:0->10", "99999:0->-1"), changes);
+			assertThrows(IndexOutOfBoundsException.class, () -> array.set(100_000, 1));
+		}
+
+		@Test
+		void testIndexListeners() {
+			ObservableLongArray array = new ObservableLongArray(new long[]{1, 2, 3});
+			AtomicInteger calls = new AtomicInteger();
+			LongArrayListener listener = (a, index, oldValue, newValue) -> {
+				assertEquals(1, index);
+				assertEquals(2, oldValue);
+				assertEquals(20, newValue);
+				calls.incrementAndGet();
+			};
+			array.addIndexListener(1, listener);
+			array.set(0, 10);
+			array.set(2, 30);
+			array.set(1, 20);
+			assertEquals(1, calls.get());
+			assertTrue(array.removeIndexListener(1, listener));
+			assertFalse(array.removeIndexListener(1, listener));
+			array.set(1, 0);
+			assertEquals(1, calls.get());
+			assertArrayEquals(new long[]{10, 0, 30}, array.toArray());
+			assertThrows(IndexOutOfBoundsException.class, () -> array.addIndexListener(3, listener));
+		}
+
+		@Test
+		void testIndexListenersRemovedDuringDispatch() {
+			ObservableIntArray array = new ObservableIntArray(100);
+			List<String> calls = new ArrayList<>();
+			IntArrayListener second = (a, index, oldValue, newValue) -> calls.add("second:" + index);
+			IntArrayListener first = new IntArrayListener() {
+				@Override
+				public void changed(ObservableIntArray a, int index, int oldValue, int newValue) {
+					calls.add("first:" + index);
+					// Removing listeners mid-dispatch neither skips nor fails the dispatch in progress
+					a.removeIndexListener(index, this);
+					a.removeIndexListener(index, second);
+				}
+			};
+			// Indices added out of order, to be kept sorted
+			for (int index : new int[]{70, 3, 42})
+				array.addIndexListener(index, (a, i, oldValue, newValue) -> calls.add("watch:" + i));
+			array.addIndexListener(42, first);
+			array.addIndexListener(42, second);
+			array.set(42, 1);
+			array.set(42, 2);
+			array.set(3, 1);
+			array.set(70, 1);
+			array.set(50, 1);
+			assertEquals(Arrays.asList("watch:42", "first:42", "second:42", "watch:42", "watch:3", "watch:70"), calls);
+		}
+
+		@Test
+		void testDoubleArray() {
+			ObservableDoubleArray array = new ObservableDoubleArray(new double[]{Double.NaN, 0.0});
+			AtomicInteger calls = new AtomicInteger();
+			array.addChangeListener((a, index, oldValue, newValue) -> calls.incrementAndGet());
+			array.set(0, Double.NaN);
+			assertEquals(0, calls.get());
+			array.set(1, -0.0);
+			assertEquals(1, calls.get());
+			array.fill(1.5);
+			assertEquals(3, calls.get());
+			assertEquals(1.5, array.get(0));
+		}
+	}
 }
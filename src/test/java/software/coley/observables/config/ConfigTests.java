@@ -0,0 +1,136 @@
+package software.coley.observables.config;
+
+import org.junit.jupiter.api.Test;
+import software.coley.observables.ObservableBoolean;
+import software.coley.observables.ObservableInteger;
+import software.coley.observables.ObservableMap;
+import software.coley.observables.ObservableString;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigTests {
+	@Test
+	void testReloadParsesLikeProperties() throws IOException {
+		Path file = Files.createTempFile("config", ".properties");
+		try (ConfigFile config = new ConfigFile(file)) {
+			ObservableString text = config.string("text", "");
+			ObservableString other = config.string("other", "");
+			write(file, "# comment ending in \\\r\ntext = first \\\r\n   second\r\n\r\nother:a\\\\\nother=b\n");
+			assertEquals(2, config.reload());
+			assertEquals("first second", text.getValue());
+			// Later lines override earlier ones, and an escaped backslash does not continue the line
+			assertEquals("b", other.getValue());
+
+			// Reparsing only the changed continuation keeps the unchanged lines
+			write(file, "# comment ending in \\\r\ntext = first \\\r\n   third\r\n\r\nother:a\\\\\nother=b\n");
+			assertEquals(1, config.reload());
+			assertEquals("first third", text.getValue());
+			assertEquals("b", other.getValue());
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void testReloadOnlyAssignsChangedProperties() throws IOException {
+		Path file = Files.createTempFile("config", ".properties");
+		try (ConfigFile config = new ConfigFile(file)) {
+			write(file, "port=8080\nenabled=true\nname=main\nheaders.accept=json\n");
+			ObservableInteger port = config.integer("port", 80);
+			ObservableBoolean enabled = config.bool("enabled", false);
+			ObservableMap<String, String, Map<String, String>> headers = config.map("headers");
+			AtomicInteger portChanges = new AtomicInteger();
+			AtomicInteger enabledChanges = new AtomicInteger();
+			AtomicInteger headerChanges = new AtomicInteger();
+			port.addChangeListener((observable, oldValue, newValue) -> portChanges.incrementAndGet());
+			enabled.addChangeListener((observable, oldValue, newValue) -> enabledChanges.incrementAndGet());
+			headers.addChangeListener((observable, oldValue, newValue) -> headerChanges.incrementAndGet());
+			assertEquals(4, config.reload());
+			assertEquals(8080, port.getValue());
+			assertTrue(enabled.getValue());
+			assertEquals("json", headers.get("accept"));
+			ObservableString name = config.getRegistry().get("name");
+			assertEquals("main", name.getValue());
+
+			// Only the changed line is assigned
+			write(file, "port=9090\nenabled=true\nname=main\nheaders.accept=json\n");
+			assertEquals(1, config.reload());
+			assertEquals(2, portChanges.get());
+			assertEquals(1, enabledChanges.get());
+			assertEquals(1, headerChanges.get());
+			assertEquals(0, config.reload());
+
+			// Removed properties revert to their defaults
+			write(file, "port=9090\nname=other\nheaders.accept=xml\nheaders.encoding=gzip\n");
+			assertEquals(4, config.reload());
+			assertFalse(enabled.getValue());
+			assertEquals("other", name.getValue());
+			assertEquals(2, headers.size());
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void testReloadIsSingleBatch() throws IOException {
+		Path file = Files.createTempFile("config", ".properties");
+		try (ConfigFile config = new ConfigFile(file)) {
+			ObservableInteger min = config.integer("min", 0);
+			ObservableInteger max = config.integer("max", 10);
+			List<String> seen = new ArrayList<>();
+			// Listeners see all values of a reload, never a mix of old and new values
+			min.addChangeListener((observable, oldValue, newValue) -> seen.add(min.getValue() + ".." + max.getValue()));
+			max.addChangeListener((observable, oldValue, newValue) -> seen.add(min.getValue() + ".." + max.getValue()));
+			write(file, "min=20\nmax=30\n");
+			config.reload();
+			assertEquals(2, seen.size());
+			assertEquals("20..30", seen.get(0));
+			assertEquals("20..30", seen.get(1));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void testInvalidValuesAreReported() throws IOException {
+		Path file = Files.createTempFile("config", ".properties");
+		List<Exception> errors = new ArrayList<>();
+		try (ConfigFile config = new ConfigFile(file).withErrorHandler(errors::add)) {
+			ObservableInteger port = config.integer("port", 80);
+			write(file, "port=eighty\n");
+			config.reload();
+			assertEquals(80, port.getValue());
+			assertEquals(1, errors.size());
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void testWatchReloadsModifiedFile() throws Exception {
+		Path file = Files.createTempFile("config", ".properties");
+		try (ConfigFile config = new ConfigFile(file)) {
+			ObservableInteger port = config.integer("port", 80);
+			config.watch();
+			write(file, "port=8080\n");
+			for (int i = 0; i < 200 && port.getValue() != 8080; i++)
+				Thread.sleep(50);
+			assertEquals(8080, port.getValue());
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static void write(Path file, String text) throws IOException {
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+	}
+}
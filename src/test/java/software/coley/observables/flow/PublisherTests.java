@@ -0,0 +1,104 @@
+package software.coley.observables.flow;
+
+import org.junit.jupiter.api.Test;
+import software.coley.observables.ObservableInteger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublisherTests {
+	@Test
+	void testDemandIsHonored() {
+		ObservableInteger ob = new ObservableInteger(0);
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		ob.toPublisher(OverflowStrategy.BUFFER, 16).subscribe(subscriber);
+		for (int i = 1; i <= 5; i++)
+			ob.setValue(i);
+		assertTrue(subscriber.values.isEmpty(), "Nothing should be delivered without demand");
+		subscriber.subscription.request(2);
+		assertEquals(Arrays.asList(1, 2), subscriber.values);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5), subscriber.values);
+		ob.setValue(6);
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), subscriber.values);
+	}
+
+	@Test
+	void testOverflowStrategies() {
+		ObservableInteger ob = new ObservableInteger(0);
+		RecordingSubscriber drop = new RecordingSubscriber();
+		RecordingSubscriber latest = new RecordingSubscriber();
+		RecordingSubscriber buffer = new RecordingSubscriber();
+		new ObservablePublisher<>(ob, OverflowStrategy.DROP, 2).subscribe(drop);
+		new ObservablePublisher<>(ob, OverflowStrategy.LATEST, 2).subscribe(latest);
+		new ObservablePublisher<>(ob, OverflowStrategy.BUFFER, 2).subscribe(buffer);
+		for (int i = 1; i <= 5; i++)
+			ob.setValue(i);
+		drop.subscription.request(10);
+		latest.subscription.request(10);
+		buffer.subscription.request(10);
+		assertEquals(Arrays.asList(1, 2), drop.values, "Drop should keep the oldest values");
+		assertEquals(Arrays.asList(5), latest.values, "Latest should keep only the newest value");
+		assertEquals(Arrays.asList(4, 5), buffer.values, "Buffer should evict the oldest values");
+	}
+
+	@Test
+	void testCancelAndClose() {
+		ObservableInteger ob = new ObservableInteger(0);
+		ObservablePublisher<Integer> publisher = ob.toPublisher(OverflowStrategy.BUFFER, 4);
+		RecordingSubscriber cancelled = new RecordingSubscriber();
+		RecordingSubscriber completed = new RecordingSubscriber();
+		publisher.subscribe(cancelled);
+		publisher.subscribe(completed);
+		assertEquals(2, publisher.getSubscriberCount());
+		cancelled.subscription.cancel();
+		assertEquals(1, publisher.getSubscriberCount());
+		ob.setValue(1);
+		publisher.close();
+		assertFalse(completed.complete, "Buffered values must be delivered before completion");
+		completed.subscription.request(1);
+		assertEquals(Arrays.asList(1), completed.values);
+		assertTrue(completed.complete);
+		assertTrue(cancelled.values.isEmpty());
+		assertEquals(0, publisher.getSubscriberCount());
+	}
+
+	@Test
+	void testInvalidRequest() {
+		ObservableInteger ob = new ObservableInteger(0);
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		ob.toPublisher(OverflowStrategy.DROP, 1).subscribe(subscriber);
+		subscriber.subscription.request(0);
+		assertTrue(subscriber.error instanceof IllegalArgumentException);
+	}
+
+	private static class RecordingSubscriber implements Subscriber<Integer> {
+		private final List<Integer> values = new ArrayList<>();
+		private Subscription subscription;
+		private Throwable error;
+		private boolean complete;
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(Integer item) {
+			values.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			complete = true;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package software.coley.observables.metrics;
+
+import org.junit.jupiter.api.Test;
+import software.coley.observables.ChangeListener;
+import software.coley.observables.ObservableBoolean;
+import software.coley.observables.ObservableInteger;
+import software.coley.observables.ObservableString;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTests {
+	@Test
+	void testCounters() {
+		MetricsRegistry registry = new MetricsRegistry(true);
+		ObservableBoolean ob = registry.attach("flag", new ObservableBoolean(false));
+		ChangeListener<Boolean> listener = (observable, oldValue, newValue) -> {
+		};
+		ob.addChangeListener(listener);
+		ob.setValue(true);
+		ob.setValue(true); // same boxed instance, suppressed
+		ob.setValue(false);
+		MetricsGroup group = registry.group("flag");
+		assertEquals(2, group.getListenerLatencies().get(listener).getCount());
+		ob.removeChangeListener(listener);
+
+		assertEquals(2, group.getSets());
+		assertEquals(1, group.getSuppressedSets());
+		assertEquals(1, group.getListenersAdded());
+		assertEquals(1, group.getListenersRemoved());
+		assertEquals(2, group.getListenerInvocations());
+		assertEquals(2, group.getListenerLatency().getCount());
+		// Removed listeners are no longer tracked individually, so they can be collected
+		assertFalse(group.getListenerLatencies().containsKey(listener));
+	}
+
+	@Test
+	void testPropagationDepth() {
+		MetricsRegistry registry = new MetricsRegistry();
+		ObservableInteger source = new ObservableInteger(0);
+		ObservableString label = registry.attach("chain", source.mapAdd(1).mapString());
+		registry.attach("chain", source);
+		source.setValue(10);
+		MetricsGroup group = registry.group("chain");
+		assertEquals("11", label.getValue());
+		assertEquals(1, group.getPropagations(), "Only the label is in the group, the intermediate is not");
+		assertEquals(2, group.getMaxPropagationDepth());
+		assertEquals(2, group.getSets());
+	}
+
+	@Test
+	void testNoMetricsByDefault() {
+		ObservableInteger ob = new ObservableInteger(0);
+		assertSame(ObservableMetrics.none(), ob.getMetrics());
+		ob.setMetrics(new MetricsGroup("temp"));
+		ob.setMetrics(null);
+		assertSame(ObservableMetrics.none(), ob.getMetrics());
+	}
+
+	@Test
+	void testHistogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 99; i++)
+			histogram.record(100);
+		histogram.record(1_000_000);
+		assertEquals(100, histogram.getCount());
+		assertEquals(1_000_000, histogram.getMax());
+		assertTrue(histogram.getPercentile(50) >= 100 && histogram.getPercentile(50) < 256);
+		assertEquals(1_000_000, histogram.getPercentile(100));
+	}
+}
@@ -0,0 +1,348 @@
+package software.coley.observables.sync;
+
+import org.junit.jupiter.api.Test;
+import software.coley.observables.ObservableDouble;
+import software.coley.observables.ObservableInteger;
+import software.coley.observables.ObservableList;
+import software.coley.observables.ObservableLong;
+import software.coley.observables.ObservableMap;
+import software.coley.observables.ObservableObject;
+import software.coley.observables.ObservableRegistry;
+import software.coley.observables.ObservableString;
+import software.coley.observables.WaitStrategy;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SyncTests {
+	private static final long TIMEOUT_MS = 10_000;
+
+	@Test
+	void testReplicaConverges() throws Exception {
+		ObservableRegistry primaryRegistry = new ObservableRegistry();
+		ObservableInteger count = primaryRegistry.register("count", new ObservableInteger(1));
+		ObservableString name = primaryRegistry.register("name", new ObservableString("a"));
+		ObservableList<String, List<String>> items = primaryRegistry.register("items", new ObservableList<>(ArrayList::new));
+		ObservableMap<String, Integer, Map<String, Integer>> scores = primaryRegistry.register("scores", new ObservableMap<>(HashMap::new));
+		items.add("x");
+		ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		ObservableRegistry replicaRegistry = new ObservableRegistry();
+		try (ReplicationPrimary primary = new ReplicationPrimary(primaryRegistry, server);
+			 ReplicationReplica replica = new ReplicationReplica(replicaRegistry, "localhost", server.getLocalPort())) {
+			await(() -> replica.getSequence() >= 0);
+			assertEquals(1, replicaRegistry.get("count", ObservableInteger.class).getValue());
+			assertEquals("a", replicaRegistry.get("name", ObservableString.class).getValue());
+
+			for (int i = 2; i <= 100; i++)
+				count.setValue(i);
+			name.setValue("b");
+			items.add(0, "w");
+			items.add("y");
+			items.remove("x");
+			scores.put("p", 1);
+			scores.put("q", 2);
+			scores.remove("p");
+			// The last change is in the last frame, so once it is applied everything before it is too
+			await(() -> replicaRegistry.get("scores", ObservableMap.class).getValue().equals(scores.getValue()));
+			assertEquals(100, replicaRegistry.get("count", ObservableInteger.class).getValue());
+			assertEquals("b", replicaRegistry.get("name", ObservableString.class).getValue());
+			assertEquals(Arrays.asList("w", "y"), replicaRegistry.get("items", ObservableList.class).getValue());
+			// The replica counts a frame only once it has applied it
+			await(() -> replica.getSequence() == primary.getSequence());
+			assertEquals(0, replica.getResyncCount());
+		}
+	}
+
+	@Test
+	void testGapRequestsResync() throws Exception {
+		ObservableRegistry registry = new ObservableRegistry();
+		try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			ReplicationReplica replica = new ReplicationReplica(registry, "localhost", server.getLocalPort());
+			try (Socket socket = server.accept()) {
+				DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+				out.write(snapshot(0, 10));
+				out.write(delta(1, 11));
+				out.flush();
+				await(() -> replica.getSequence() == 1);
+				assertEquals(11, registry.get("value", ObservableInteger.class).getValue());
+
+				// Frame 2 is missing, so frame 3 and anything after it until the next snapshot must be ignored
+				out.write(delta(3, 13));
+				out.write(delta(4, 14));
+				out.flush();
+				assertEquals(Protocol.REQUEST_RESYNC, socket.getInputStream().read());
+				assertEquals(1, replica.getResyncCount());
+				assertEquals(1, replica.getSequence());
+				assertEquals(11, registry.get("value", ObservableInteger.class).getValue());
+
+				out.write(snapshot(4, 14));
+				out.write(delta(5, 15));
+				out.flush();
+				await(() -> replica.getSequence() == 5);
+				assertEquals(15, registry.get("value", ObservableInteger.class).getValue());
+			} finally {
+				replica.close();
+			}
+		}
+	}
+
+	@Test
+	void testUnsupportedValues() throws Exception {
+		ObservableRegistry registry = new ObservableRegistry();
+		ObservableObject<Object> object = registry.register("object", new ObservableObject<>(new Object()));
+		try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			assertThrows(IllegalArgumentException.class, () -> new ReplicationPrimary(registry, server));
+		}
+		object.setValue("supported");
+		ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		List<Exception> failures = new CopyOnWriteArrayList<>();
+		ObservableRegistry replicaRegistry = new ObservableRegistry();
+		try (ReplicationPrimary primary = new ReplicationPrimary(registry, server).withErrorHandler(failures::add);
+			 ReplicationReplica replica = new ReplicationReplica(replicaRegistry, "localhost", server.getLocalPort())) {
+			await(() -> replica.getSequence() >= 0);
+			// Failures are reported by the primary, never thrown to the writer
+			object.setValue(new Object());
+			await(() -> !failures.isEmpty());
+			object.setValue(repeat('x', 100_000));
+			await(() -> repeat('x', 100_000).equals(replicaRegistry.get("object", ObservableString.class).getValue()));
+			assertEquals(1, failures.size());
+		}
+	}
+
+	@Test
+	void testFullQueueResyncs() throws Exception {
+		ObservableRegistry registry = new ObservableRegistry();
+		ObservableString value = registry.register("value", new ObservableString(""));
+		ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		try (ReplicationPrimary primary = new ReplicationPrimary(registry, server, 1);
+			 Socket socket = new Socket(server.getInetAddress(), server.getLocalPort())) {
+			// The replica does not read while the changes are made, so the socket and the queue fill up
+			String last = null;
+			for (int i = 0; i < 30; i++)
+				value.setValue(last = i + repeat('x', 1 << 20));
+			socket.setSoTimeout((int) TIMEOUT_MS);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			int snapshots = 0;
+			Object latest = null;
+			while (!last.equals(latest)) {
+				byte[] frame = new byte[in.readInt()];
+				in.readFully(frame);
+				DataInputStream records = new DataInputStream(new ByteArrayInputStream(frame));
+				byte type = records.readByte();
+				records.readLong();
+				int count = Protocol.readVarInt(records);
+				for (int i = 0; i < count; i++) {
+					Protocol.readVarInt(records);
+					if (type == Protocol.FRAME_SNAPSHOT)
+						Protocol.readString(records);
+					else
+						assertEquals(Protocol.OP_SET, records.readByte());
+					latest = Protocol.readValue(records);
+				}
+				if (type == Protocol.FRAME_SNAPSHOT)
+					snapshots++;
+			}
+			assertTrue(snapshots > 1, "Replica was not resynced");
+		}
+	}
+
+	@Test
+	void testSharedRegionViews() throws Exception {
+		Path file = Files.createTempFile("region", ".bin");
+		try (SharedRegion first = new SharedRegion(file, 4, 2);
+			 SharedRegion second = new SharedRegion(file, 4, 2)) {
+			ObservableLong written = first.longValue(0);
+			ObservableLong read = second.longValue(0);
+			ObservableDouble price = second.doubleValue(1);
+			List<Long> changes = new ArrayList<>();
+			read.addChangeListener((observable, oldValue, newValue) -> changes.add(newValue));
+			assertSame(written, first.longValue(0));
+			assertThrows(IllegalStateException.class, () -> first.doubleValue(0));
+
+			written.setValue(42L);
+			assertEquals(1, first.getSequence(0));
+			assertEquals(1, second.poll());
+			assertEquals(42L, read.getValue());
+			assertEquals(Collections.singletonList(42L), changes);
+			// Values assigned by polling are not written back
+			assertEquals(0, second.poll());
+			assertEquals(1, second.getSequence(0));
+
+			first.doubleValue(1).setValue(1.5);
+			second.poll();
+			assertEquals(1.5, price.getValue());
+
+			// Records are written whole, views show their first word
+			first.write(0, new long[]{7, 8});
+			long[] record = new long[2];
+			assertEquals(2, second.read(0, record));
+			assertArrayEquals(new long[]{7, 8}, record);
+			first.poll();
+			assertEquals(7L, written.getValue());
+			second.poll();
+			assertEquals(7L, read.getValue());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void testSharedRegionRepairsDeadWriter() throws Exception {
+		Path file = Files.createTempFile("region", ".bin");
+		try (SharedRegion region = new SharedRegion(file, 1, 1);
+			 FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			region.write(0, new long[]{1});
+			// A writer dying mid-write leaves the counter of its slot odd
+			MappedByteBuffer raw = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			raw.order(ByteOrder.nativeOrder());
+			raw.putLong(16, raw.getLong(16) + 1);
+			assertEquals(2, region.write(0, new long[]{2}));
+			long[] record = new long[1];
+			assertEquals(2, region.read(0, record));
+			assertEquals(2, record[0]);
+			assertEquals(3, region.write(0, new long[]{3}));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void testSharedRegionLayoutMismatch() throws Exception {
+		Path file = Files.createTempFile("region", ".bin");
+		try (SharedRegion ignored = new SharedRegion(file, 4, 1)) {
+			assertThrows(IOException.class, () -> new SharedRegion(file, 8, 1));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void testSharedRegionPollingAndTornRecords() throws Exception {
+		Path file = Files.createTempFile("region", ".bin");
+		try (SharedRegion writer = new SharedRegion(file, 1, 4);
+			 SharedRegion reader = new SharedRegion(file, 1, 4)) {
+			ObservableLong view = reader.longValue(0);
+			reader.startPolling(WaitStrategy.yielding());
+			Thread thread = new Thread(() -> {
+				try {
+					for (long i = 1; i <= 20_000; i++)
+						writer.write(0, new long[]{i, i, i, i});
+				} catch (IOException ex) {
+					throw new IllegalStateException(ex);
+				}
+			});
+			thread.start();
+			long[] record = new long[4];
+			while (thread.isAlive()) {
+				reader.read(0, record);
+				for (long word : record)
+					assertEquals(record[0], word, "Torn record");
+			}
+			thread.join();
+			await(() -> view.getValue() == 20_000L);
+			assertEquals(20_000, reader.getSequence(0));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void testSharedRegionPollingKeepsLocalWrites() throws Exception {
+		Path file = Files.createTempFile("region", ".bin");
+		try (SharedRegion remote = new SharedRegion(file, 1, 1);
+			 SharedRegion local = new SharedRegion(file, 1, 1)) {
+			ObservableLong view = local.longValue(0);
+			local.startPolling(WaitStrategy.yielding());
+			int writes = 5_000;
+			Thread thread = new Thread(() -> {
+				try {
+					for (long i = 1; i <= writes; i++)
+						remote.write(0, new long[]{i});
+				} catch (IOException ex) {
+					throw new IllegalStateException(ex);
+				}
+			});
+			thread.start();
+			// Local values never collide with remote ones, so each is written exactly once
+			for (long i = 1; i <= writes; i++)
+				view.setValue(-i);
+			thread.join();
+			// Polled values written back to the file would count as extra writes
+			assertEquals(2 * writes, remote.getSequence(0), "Polled values written back");
+			long[] record = new long[1];
+			local.read(0, record);
+			await(() -> view.getValue() == record[0]);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static byte[] snapshot(long sequence, int value) throws IOException {
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(records);
+		Protocol.writeVarInt(out, 0);
+		Protocol.writeString(out, "value");
+		Protocol.writeValue(out, value);
+		return frame(Protocol.FRAME_SNAPSHOT, sequence, records.toByteArray());
+	}
+
+	private static byte[] delta(long sequence, int value) throws IOException {
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(records);
+		Protocol.writeVarInt(out, 0);
+		out.writeByte(Protocol.OP_SET);
+		Protocol.writeValue(out, value);
+		return frame(Protocol.FRAME_DELTA, sequence, records.toByteArray());
+	}
+
+	private static byte[] frame(byte type, long sequence, byte[] records) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(body);
+		out.writeByte(type);
+		out.writeLong(sequence);
+		Protocol.writeVarInt(out, 1);
+		out.write(records);
+		ByteArrayOutputStream frame = new ByteArrayOutputStream();
+		new DataOutputStream(frame).writeInt(body.size());
+		body.writeTo(frame);
+		return frame.toByteArray();
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT_MS;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > end)
+				fail("Timed out waiting for replication");
+			Thread.sleep(5);
+		}
+	}
+}